@@ -59,20 +59,20 @@ public class DerivativePeakSearcher implements PeakSearcher {
 		
 		Spectrum smoothed = new ISpectrum(data.size());
 		
+		//prefix sums, so that each window's sum doesn't have to be added up from scratch
+		double[] prefix = new double[data.size() + 1];
+		for (int i = 0; i < data.size(); i++) {
+			prefix[i+1] = prefix[i] + data.get(i);
+		}
+		
 		int start, stop;
-		float sum;
 		for (int i = 0; i < data.size(); i++) {
 
 			// exact same as in last loop
 			start = Math.max(0,  i - windowSpan);
 			stop = Math.min(data.size()-1, i + windowSpan + 1);
 			
-			sum = 0;
-			for (int p = start; p < stop; p++) {
-				sum += data.get(p);
-			}
-
-			smoothed.set(i, sum);
+			smoothed.set(i, stop > start ? (float) (prefix[stop] - prefix[start]) : 0f);
 
 		}
 
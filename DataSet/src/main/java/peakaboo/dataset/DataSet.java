@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.Optional;
 
 import peakaboo.dataset.analysis.Analysis;
+import peakaboo.dataset.index.ChannelIndex;
 import peakaboo.datasource.model.DataSource;
 import peakaboo.datasource.model.components.datasize.DataSize;
 import peakaboo.datasource.model.components.metadata.Metadata;
@@ -26,6 +27,14 @@ public interface DataSet {
 
 	Analysis getAnalysis();
 
+	
+	/**
+	 * Returns a channel-major index of this DataSet's scans, for fast per-channel 
+	 * and energy-window queries. The index is built in the background the first time
+	 * it is requested, and answers queries by reading the scans directly until then.
+	 */
+	ChannelIndex getChannelIndex();
+
 
 	/**
 	 * Gets the {@link File} representation of the data source. Could be a file path, a network address, or anything else
@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import peakaboo.dataset.analysis.Analysis;
 import peakaboo.dataset.analysis.DummyAnalysis;
+import peakaboo.dataset.index.ChannelIndex;
 import peakaboo.datasource.model.DataSource;
 import peakaboo.datasource.model.components.datasize.DataSize;
 import peakaboo.datasource.model.components.metadata.Metadata;
@@ -15,6 +16,9 @@ import peakaboo.datasource.model.components.scandata.ScanData;
 public class EmptyDataSet implements DataSet
 {
 
+	//there is nothing to index, so every empty dataset can share one index
+	private static final ChannelIndex EMPTY_INDEX = new ChannelIndex(new DummyScanData(), 0);
+
 
 
 	
@@ -80,5 +84,10 @@ public class EmptyDataSet implements DataSet
 
 
 
+	@Override
+	public ChannelIndex getChannelIndex() {
+		return EMPTY_INDEX;
+	}
+
 
 }
@@ -3,28 +3,41 @@ package peakaboo.dataset;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import commonenvironment.AlphaNumericComparitor;
 import peakaboo.dataset.DatasetReadResult.ReadStatus;
 import peakaboo.dataset.analysis.Analysis;
+import peakaboo.dataset.analysis.AnalysisCache;
 import peakaboo.dataset.analysis.DataSourceAnalysis;
+import peakaboo.dataset.analysis.ScanStatistic;
+import peakaboo.dataset.index.ChannelIndex;
 import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.model.MultiFileDataSource;
+import peakaboo.datasource.model.MultiFileReader;
+import peakaboo.datasource.model.PartitionedDataSource;
+import peakaboo.datasource.model.PartitionedReader;
 import peakaboo.datasource.model.components.datasize.DataSize;
 import peakaboo.datasource.model.components.datasize.DummyDataSize;
 import peakaboo.datasource.model.components.interaction.CallbackInteraction;
 import peakaboo.datasource.model.components.metadata.Metadata;
 import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
 import peakaboo.datasource.model.components.scandata.DummyScanData;
+import peakaboo.datasource.model.components.scandata.ScanBuffer;
 import peakaboo.datasource.model.components.scandata.ScanData;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import peakaboo.datasource.model.internal.LiveDataSource;
+import peakaboo.datasource.model.internal.SubsetDataSource;
 import plural.executor.DummyExecutor;
 import plural.executor.ExecutorSet;
 import scitypes.Coord;
-import scitypes.ReadOnlySpectrum;
 
 
 
@@ -42,13 +55,20 @@ public class StandardDataSet implements DataSet
 {
 
 
-	protected DataSource			dataSource;
+	//written by the preview thread while a dataset is loading, and read from the UI
+	protected volatile DataSource	dataSource;
 
 	//Data sources are not guaranteed to be fast at retrieving 
 	//information about scans, so we store the physical coordinates
 	//here
 	protected List<Coord<Number>>	realCoords;
-	protected Analysis				analysis;
+	protected volatile Analysis		analysis;
+	protected ChannelIndex			channelIndex;
+	
+	//how often a preview of a partially read dataset is published
+	private static final long		PREVIEW_INTERVAL = 1000;
+	private volatile Consumer<DataSet>	previewListener;
+	private volatile boolean		loading = false;
 	
 
 	public StandardDataSet()
@@ -65,7 +85,7 @@ public class StandardDataSet implements DataSet
 	{
 		super();
 		
-		readDataSource(ds, progress, isAborted);
+		readDataSource(ds, progress, isAborted, Optional.empty());
 		dataSource = ds;
 		
 	}
@@ -113,6 +133,11 @@ public class StandardDataSet implements DataSet
 					
 					//anon function to call when we get the number of scans
 					Consumer<Integer> gotScanCount = (Integer count) ->	{
+						//let the scan data plan how to store the scans it is about to receive
+						ScanData scandata = dataSource.getScanData();
+						if (scandata instanceof SimpleScanData) {
+							((SimpleScanData) scandata).setExpectedScanCount(count);
+						}
 						reading.setWorkUnits(count);
 						opening.advanceState();
 						reading.advanceState();
@@ -129,7 +154,19 @@ public class StandardDataSet implements DataSet
 	
 
 					dataSource.setInteraction(new CallbackInteraction(gotScanCount, readScans, isAborted));
-					dataSource.read(paths);
+					loading = true;
+					Thread preview = startPreview(dataSource);
+					try {
+						if (dataSource instanceof MultiFileDataSource && paths.size() > 1 && ((MultiFileDataSource) dataSource).isOneScanPerFile(paths)) {
+							MultiFileReader.read((MultiFileDataSource) dataSource, paths);
+						} else if (dataSource instanceof PartitionedDataSource) {
+							PartitionedReader.read((PartitionedDataSource) dataSource, paths);
+						} else {
+							dataSource.read(paths);
+						}
+					} finally {
+						stopPreview(preview);
+					}
 					
 	
 					
@@ -149,8 +186,8 @@ public class StandardDataSet implements DataSet
 					applying.advanceState();
 					
 					
-					//now that we have the datasource, read it
-					readDataSource(dataSource, applying, isAborted);
+					//now that we have the datasource, read it, unless we've already analysed these files
+					readDataSource(dataSource, applying, isAborted, AnalysisCache.key(paths, dataSource));
 					
 					
 					if (isAborted.get())
@@ -170,6 +207,8 @@ public class StandardDataSet implements DataSet
 					
 				} catch (Exception e) {
 					return new DatasetReadResult(e);
+				} finally {
+					loading = false;
 				}
 				
 			}
@@ -186,10 +225,12 @@ public class StandardDataSet implements DataSet
 
 
 	
-
-	
-	
-	private void readDataSource(DataSource ds, DummyExecutor applying, Supplier<Boolean> isAborted)
+	/**
+	 * Analyses every scan in the given {@link DataSource}. If a cache key is given, the results 
+	 * of an earlier analysis of the same files are restored from the {@link AnalysisCache} 
+	 * instead, and new results are stored there for next time.
+	 */
+	private void readDataSource(DataSource ds, DummyExecutor applying, Supplier<Boolean> isAborted, Optional<String> cacheKey)
 	{
 		
 		if (ds == null || ds.getScanData().scanCount() == 0) return;
@@ -203,35 +244,245 @@ public class StandardDataSet implements DataSet
 
 		
 		//go over each scan, calculating the average, max10th and max value
-		ReadOnlySpectrum current;
-		int updateInterval = Math.min(Math.max(ds.getScanData().scanCount()/100, 20), 1000);
-		int gcInterval = 5000;
+		ScanData scandata = ds.getScanData();
+		int scanCount = scandata.scanCount();
+		int updateInterval = Math.min(Math.max(scanCount/100, 20), 1000);
 		
-		analysis = new DataSourceAnalysis(this, ds);
-		for (int i = 0; i < ds.getScanData().scanCount(); i++)
-		{
-			current = ds.getScanData().get(i);
-			analysis.process(i, current);
-
-			//read the real coordinates for this scan
-			if (ds.getPhysicalSize().isPresent()) {
-				realCoords.add(ds.getPhysicalSize().get().getPhysicalCoordinatesAtIndex(i));
+		@SuppressWarnings("unchecked")
+		Coord<Number>[] coords = new Coord[realCoords == null ? 0 : scanCount];
+		
+		//any preview analysis stays in place until the full analysis is complete
+		Analysis full = createAnalysis(ds);
+		if (cacheKey.isPresent() && AnalysisCache.load(cacheKey.get(), full, coords, scanCount)) {
+			if (applying != null) applying.workUnitCompleted(scanCount);
+		} else {
+			//the analysis doesn't depend on the order scans are read in, so subsets 
+			//are read in whichever order is most sequential for their original data
+			int[] order = ds instanceof SubsetDataSource ? ((SubsetDataSource) ds).getSequentialOrder() : null;
+			Analysis results = ForkJoinPool.commonPool().invoke(new AnalysisTask(ds, full, coords, order, 0, scanCount, updateInterval, applying, isAborted));
+			if (isAborted != null && isAborted.get()) return;
+			full.merge(results);
+			if (cacheKey.isPresent()) {
+				AnalysisCache.store(cacheKey.get(), full, coords, scanCount);
 			}
+		}
+		
+		if (realCoords != null) {
+			realCoords.addAll(Arrays.asList(coords));
+		}
+		
+		this.analysis = full;
+		this.dataSource = ds;
+		
+
+	}
+	
 
-			if (i % updateInterval == 0) {
-				if (applying != null) applying.workUnitCompleted(updateInterval);
-				if (isAborted != null && isAborted.get()) return;
+	/**
+	 * Updates this DataSet after new scans have been appended to its {@link DataSource}, 
+	 * as happens with a {@link LiveDataSource}. Only the new scans are read: they are 
+	 * added to a copy of the current {@link Analysis}, which then replaces it.
+	 * @param start the index of the first new scan
+	 * @param end the index after the last new scan
+	 */
+	public synchronized void scansAdded(int start, int end)
+	{
+		DataSource ds = dataSource;
+		if (ds == null || analysis == null || end <= start) return;
+		
+		Analysis updated = analysis.partial();
+		updated.merge(analysis);
+		ds.getScanData().visit(start, end, updated::process);
+		
+		if (realCoords != null) {
+			PhysicalSize physical = ds.getPhysicalSize().get();
+			for (int i = start; i < end; i++) {
+				Coord<Number> coord;
+				try {
+					coord = physical.getPhysicalCoordinatesAtIndex(i);
+				} catch (IndexOutOfBoundsException e) {
+					coord = null;
+				}
+				realCoords.add(coord);
 			}
-			if (i % gcInterval == 0) {
-				System.gc();
+		}
+		
+		analysis = updated;
+		
+		//the channel index only covers the scans it was built with
+		if (channelIndex != null) {
+			channelIndex.discard();
+			channelIndex = null;
+		}
+	}
+	
+
+	/**
+	 * Registers a listener to be notified periodically while 
+	 * {@link #TASK_readFileListAsDataset(List, DataSource)} is reading scans. Each 
+	 * time it is called, this DataSet has a new {@link Analysis} covering the
+	 * scans read so far, and can be plotted and fitted as if it were complete. 
+	 * The listener is called from a background thread.
+	 */
+	public void setPreviewListener(Consumer<DataSet> listener) {
+		this.previewListener = listener;
+	}
+	
+	/**
+	 * Indicates if this DataSet is still reading scans, in which case its
+	 * {@link Analysis} is only a preview of the scans read so far.
+	 */
+	public boolean isLoading() {
+		return loading;
+	}
+	
+	/**
+	 * Starts a thread which periodically analyses newly read scans and publishes
+	 * a preview {@link Analysis} to the preview listener, if there is one.
+	 */
+	private Thread startPreview(DataSource ds) {
+		if (previewListener == null) return null;
+		
+		Thread thread = new Thread(() -> {
+			
+			Analysis running = null;
+			int processed = 0;
+			
+			while (true) {
+				try {
+					Thread.sleep(PREVIEW_INTERVAL);
+				} catch (InterruptedException e) {
+					return;
+				}
+				
+				ScanData scandata = ds.getScanData();
+				int available = scandata.scanCount();
+				if (available <= processed) continue;
+				
+				//scans are still being written while we read them, so a read may fail 
+				//or find a scan missing. Anything missed will be in the full analysis
+				try {
+					if (running == null) {
+						running = createAnalysis(ds);
+					}
+					for (; processed < available; processed++) {
+						if (Thread.currentThread().isInterrupted()) return;
+						running.process(processed, scandata.get(processed));
+					}
+				} catch (RuntimeException e) {
+					if (running == null) continue;
+				}
+				
+				//publish a copy, since the running analysis will keep changing
+				Analysis snapshot = running.partial();
+				snapshot.merge(running);
+				dataSource = ds;
+				analysis = snapshot;
+				previewListener.accept(this);
 			}
 			
+		}, "Dataset Preview");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	private void stopPreview(Thread preview) throws InterruptedException {
+		if (preview == null) return;
+		preview.interrupt();
+		preview.join();
+	}
+	
+	
+	/**
+	 * Creates the {@link Analysis} for the given {@link DataSource}. Subclasses
+	 * may override this to calculate additional {@link ScanStatistic}s in the 
+	 * same pass over the data.
+	 */
+	protected Analysis createAnalysis(DataSource ds) {
+		return new DataSourceAnalysis(this, ds);
+	}
+	
+	
+	/**
+	 * Analyses a range of scans by splitting it in half until each piece is 
+	 * small enough, analysing each piece with its own partial {@link Analysis}, 
+	 * and then merging the partial results back together.
+	 */
+	private static class AnalysisTask extends RecursiveTask<Analysis> {
+		
+		private DataSource ds;
+		private Analysis analysis;
+		private Coord<Number>[] coords;
+		private int[] order;
+		private int start, end, leafSize;
+		private DummyExecutor applying;
+		private Supplier<Boolean> isAborted;
+		
+		/**
+		 * @param order if not null, the order to read scans in, with start and end
+		 * being positions in this array rather than scan indexes
+		 */
+		AnalysisTask(DataSource ds, Analysis analysis, Coord<Number>[] coords, int[] order, int start, int end, int leafSize, DummyExecutor applying, Supplier<Boolean> isAborted) {
+			this.ds = ds;
+			this.analysis = analysis;
+			this.coords = coords;
+			this.order = order;
+			this.start = start;
+			this.end = end;
+			this.leafSize = leafSize;
+			this.applying = applying;
+			this.isAborted = isAborted;
 		}
 		
-		System.gc();
-		this.dataSource = ds;
+		@Override
+		protected Analysis compute() {
+			
+			if (end - start > leafSize) {
+				int middle = (start + end) >>> 1;
+				AnalysisTask left = new AnalysisTask(ds, analysis, coords, order, start, middle, leafSize, applying, isAborted);
+				AnalysisTask right = new AnalysisTask(ds, analysis, coords, order, middle, end, leafSize, applying, isAborted);
+				left.fork();
+				Analysis results = right.compute();
+				results.merge(left.join());
+				return results;
+			}
+			
+			Analysis partial = analysis.partial();
+			if (isAborted != null && isAborted.get()) return partial;
+			
+			//scans are read into a reused buffer, so the analysis must not keep them
+			if (order == null) {
+				ds.getScanData().visit(start, end, partial::process);
+			} else {
+				ScanBuffer buffer = new ScanBuffer();
+				for (int p = start; p < end; p++) {
+					partial.process(order[p], buffer.read(ds.getScanData(), order[p]));
+				}
+			}
+			
+			//read the real coordinates for these scans, some of which may have none
+			if (coords.length > 0) {
+				PhysicalSize physical = ds.getPhysicalSize().get();
+				for (int p = start; p < end; p++) {
+					int i = order == null ? p : order[p];
+					try {
+						coords[i] = physical.getPhysicalCoordinatesAtIndex(i);
+					} catch (IndexOutOfBoundsException e) {
+						coords[i] = null;
+					}
+				}
+			}
+			
+			if (applying != null) {
+				synchronized (applying) {
+					applying.workUnitCompleted(end - start);
+				}
+			}
+			
+			return partial;
+		}
 		
-
 	}
 	
 
@@ -271,8 +522,18 @@ public class StandardDataSet implements DataSet
 	@Override
 	public void discard()
 	{
+		//stop following a live acquisition
+		if (dataSource instanceof LiveDataSource) {
+			((LiveDataSource) dataSource).stop();
+		}
+		
 		//discard our reference to the datasource
 		dataSource = null;
+		
+		if (channelIndex != null) {
+			channelIndex.discard();
+			channelIndex = null;
+		}
 	}
 
 
@@ -306,6 +567,13 @@ public class StandardDataSet implements DataSet
 	}
 
 
+	@Override
+	public synchronized ChannelIndex getChannelIndex() {
+		if (channelIndex == null) {
+			channelIndex = new ChannelIndex(getScanData(), analysis.channelsPerScan()).buildInBackground();
+		}
+		return channelIndex;
+	}
+
 	
 }
-
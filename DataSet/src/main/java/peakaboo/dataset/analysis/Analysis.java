@@ -21,6 +21,20 @@ public interface Analysis {
 	void process(int index, ReadOnlySpectrum spectrum);
 	
 	
+	/**
+	 * Creates a new, empty Analysis of the same kind which can process a portion
+	 * of the scans independently (and concurrently) of this one. Its results can 
+	 * then be combined with this one using {@link #merge(Analysis)}.
+	 */
+	Analysis partial();
+	
+	/**
+	 * Merges the results of a partial Analysis created with {@link #partial()} 
+	 * into this one. Scans may be merged in any order.
+	 */
+	void merge(Analysis other);
+	
+	
 	
 
 	
@@ -0,0 +1,237 @@
+package peakaboo.dataset.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import peakaboo.common.Configuration;
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.plugin.DataSourcePlugin;
+import scitypes.Coord;
+import scitypes.Spectrum;
+
+/**
+ * Stores the results of a {@link DataSourceAnalysis} (and the physical coordinates
+ * of each scan) on disk, so that re-opening the same dataset doesn't require
+ * another full pass over its scans. Entries are keyed by the files' paths, sizes
+ * and modification times, along with the {@link DataSourcePlugin} used to read them.
+ * When the cache grows past its size budget, the least recently used entries are
+ * removed.
+ */
+public class AnalysisCache {
+
+	private static final int MAGIC = 0x504B4143; //PKAC
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".pkac";
+
+	private static final long SIZE_BUDGET = 256l << 20;
+
+
+	private AnalysisCache() {}
+
+
+	/**
+	 * Generates a key identifying the given files as read by the given {@link DataSource}.
+	 * Only datasets read by a {@link DataSourcePlugin} without user-provided parameters
+	 * can be cached.
+	 */
+	public static Optional<String> key(List<Path> paths, DataSource ds) {
+		if (!(ds instanceof DataSourcePlugin)) return Optional.empty();
+		DataSourcePlugin plugin = (DataSourcePlugin) ds;
+
+		try {
+			if (plugin.getParameters(paths).isPresent()) return Optional.empty();
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			update(digest, "v" + VERSION);
+			update(digest, plugin.pluginUUID());
+			update(digest, plugin.pluginVersion());
+			for (Path path : paths) {
+				update(digest, path.toAbsolutePath().toString());
+				update(digest, Long.toString(Files.size(path)));
+				update(digest, Long.toString(Files.getLastModifiedTime(path).toMillis()));
+			}
+
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest()) {
+				key.append(String.format("%02x", b));
+			}
+			return Optional.of(key.toString());
+		} catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+			PeakabooLog.get().log(Level.INFO, "Could not generate analysis cache key", e);
+			return Optional.empty();
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte)0);
+	}
+
+
+	/**
+	 * Attempts to restore the results of an earlier analysis of the same dataset.
+	 * @param key the key from {@link #key(List, DataSource)}
+	 * @param analysis a newly created analysis to restore the results into
+	 * @param coords an array to restore the physical coordinates of each scan into,
+	 * or an empty array if the dataset has no physical coordinates
+	 * @param scanCount the number of scans in the dataset
+	 * @return true if the results were restored, false if the analysis must be calculated
+	 */
+	public static boolean load(String key, Analysis analysis, Coord<Number>[] coords, int scanCount) {
+		if (!cacheable(analysis)) return false;
+		DataSourceAnalysis target = (DataSourceAnalysis) analysis;
+
+		File file = file(key);
+		if (!file.exists()) return false;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+			if (in.readInt() != scanCount) return false;
+			if (in.readInt() != target.channelCount) return false;
+			int coordCount = in.readInt();
+			if (coordCount != coords.length) return false;
+
+			target.summedScanCount = in.readInt();
+			target.maxValue = in.readFloat();
+			readSpectrum(in, target.summedSpectrum, target.channelCount);
+			readSpectrum(in, target.maximumSpectrum, target.channelCount);
+
+			for (int i = 0; i < coordCount; i++) {
+				double x = in.readDouble();
+				double y = in.readDouble();
+				coords[i] = Double.isNaN(x) ? null : new Coord<>(x, y);
+			}
+
+		} catch (IOException | RuntimeException e) {
+			PeakabooLog.get().log(Level.INFO, "Could not read analysis cache entry " + file, e);
+			file.delete();
+			return false;
+		}
+
+		//mark this entry as recently used
+		file.setLastModified(System.currentTimeMillis());
+		return true;
+	}
+
+	/**
+	 * Stores the results of a completed analysis, evicting old entries if the cache is over budget
+	 * @param key the key from {@link #key(List, DataSource)}
+	 * @param analysis the completed analysis
+	 * @param coords the physical coordinates of each scan, or an empty array
+	 */
+	public static void store(String key, Analysis analysis, Coord<Number>[] coords, int scanCount) {
+		if (!cacheable(analysis)) return;
+		DataSourceAnalysis source = (DataSourceAnalysis) analysis;
+
+		File file = file(key);
+		File temp = new File(file.getParentFile(), key + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(scanCount);
+			out.writeInt(source.channelCount);
+			out.writeInt(coords.length);
+
+			out.writeInt(source.summedScanCount);
+			out.writeFloat(source.maxValue);
+			writeSpectrum(out, source.summedSpectrum, source.channelCount);
+			writeSpectrum(out, source.maximumSpectrum, source.channelCount);
+
+			for (Coord<Number> coord : coords) {
+				out.writeDouble(coord == null ? Double.NaN : coord.x.doubleValue());
+				out.writeDouble(coord == null ? Double.NaN : coord.y.doubleValue());
+			}
+
+		} catch (IOException | RuntimeException e) {
+			PeakabooLog.get().log(Level.INFO, "Could not write analysis cache entry " + file, e);
+			temp.delete();
+			return;
+		}
+
+		file.delete();
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			return;
+		}
+		evict();
+	}
+
+
+	/**
+	 * Only the built-in measurements are cached, so analyses which calculate
+	 * additional {@link ScanStatistic}s are always recalculated
+	 */
+	private static boolean cacheable(Analysis analysis) {
+		return analysis != null && analysis.getClass() == DataSourceAnalysis.class && ((DataSourceAnalysis) analysis).statistics.isEmpty();
+	}
+
+	private static void readSpectrum(DataInputStream in, Spectrum target, int size) throws IOException {
+		for (int i = 0; i < size; i++) {
+			target.set(i, in.readFloat());
+		}
+	}
+
+	private static void writeSpectrum(DataOutputStream out, Spectrum source, int size) throws IOException {
+		for (int i = 0; i < size; i++) {
+			out.writeFloat(source.get(i));
+		}
+	}
+
+
+	private static File directory() {
+		File dir = Configuration.appDir("AnalysisCache");
+		dir.mkdirs();
+		return dir;
+	}
+
+	private static File file(String key) {
+		return new File(directory(), key + EXTENSION);
+	}
+
+	/**
+	 * Removes least recently used entries until the cache is within its size budget
+	 */
+	private static synchronized void evict() {
+		File[] files = directory().listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (files == null) return;
+
+		long total = 0;
+		for (File file : files) {
+			total += file.length();
+		}
+		if (total <= SIZE_BUDGET) return;
+
+		List<File> entries = new ArrayList<>(Arrays.asList(files));
+		entries.sort(Comparator.comparingLong(File::lastModified));
+		for (File entry : entries) {
+			if (total <= SIZE_BUDGET) break;
+			long length = entry.length();
+			if (entry.delete()) {
+				total -= length;
+			}
+		}
+	}
+
+}
@@ -1,5 +1,9 @@
 package peakaboo.dataset.analysis;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import peakaboo.dataset.DataSet;
 import peakaboo.datasource.model.DataSource;
 import scitypes.ISpectrum;
@@ -18,6 +22,8 @@ public class DataSourceAnalysis implements Analysis {
 	protected Spectrum				maximumSpectrum;
 	protected float					maxValue;
 	
+	protected List<ScanStatistic>	statistics = new ArrayList<>();
+	
 	
 	public DataSourceAnalysis(DataSet dataSet, DataSource dataSource) {
 		this.dataSource = dataSource;
@@ -37,9 +43,42 @@ public class DataSourceAnalysis implements Analysis {
 		
 	}
 	
+	protected DataSourceAnalysis(DataSource dataSource, int channelCount) {
+		this.dataSource = dataSource;
+		this.channelCount = channelCount;
+		
+		summedSpectrum = new ISpectrum(channelCount);
+		summedScanCount = 0;
+		maximumSpectrum = new ISpectrum(channelCount);
+		maxValue = 0;
+	}
+	
+	
+	/**
+	 * Adds a {@link ScanStatistic} to be calculated along with this Analysis. 
+	 * This must be done before any scans are processed.
+	 */
+	public void addStatistic(ScanStatistic statistic) {
+		statistics.add(statistic);
+	}
+	
+	/**
+	 * Returns the first {@link ScanStatistic} of the given type calculated by this Analysis, if any
+	 */
+	public <T extends ScanStatistic> Optional<T> getStatistic(Class<T> type) {
+		for (ScanStatistic statistic : statistics) {
+			if (type.isInstance(statistic)) return Optional.of(type.cast(statistic));
+		}
+		return Optional.empty();
+	}
+	
 	
 	@Override
 	public void process(int index, ReadOnlySpectrum spectrum) {
+		for (ScanStatistic statistic : statistics) {
+			statistic.process(index, spectrum);
+		}
+		
 		if (spectrum == null) return;
 		SpectrumCalculations.addLists_inplace(summedSpectrum, spectrum);
 		summedScanCount++;
@@ -47,6 +86,32 @@ public class DataSourceAnalysis implements Analysis {
 		maxValue = Math.max(maxValue, spectrum.max());
 	}
 	
+	@Override
+	public DataSourceAnalysis partial() {
+		DataSourceAnalysis partial = new DataSourceAnalysis(dataSource, channelCount);
+		for (ScanStatistic statistic : statistics) {
+			partial.addStatistic(statistic.partial());
+		}
+		return partial;
+	}
+	
+	@Override
+	public void merge(Analysis other) {
+		if (!(other instanceof DataSourceAnalysis)) {
+			throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into " + getClass().getSimpleName());
+		}
+		DataSourceAnalysis partial = (DataSourceAnalysis) other;
+		
+		SpectrumCalculations.addLists_inplace(summedSpectrum, partial.summedSpectrum);
+		summedScanCount += partial.summedScanCount;
+		SpectrumCalculations.maxLists_inplace(maximumSpectrum, partial.maximumSpectrum);
+		maxValue = Math.max(maxValue, partial.maxValue);
+		
+		for (int i = 0; i < statistics.size(); i++) {
+			statistics.get(i).merge(partial.statistics.get(i));
+		}
+	}
+	
 	
 	@Override
 	public int firstNonNullScanIndex()
@@ -63,6 +63,16 @@ public class DummyAnalysis implements Analysis {
 		
 	}
 
+	@Override
+	public Analysis partial() {
+		return this;
+	}
+
+	@Override
+	public void merge(Analysis other) {
+		
+	}
+
 
 
 	@Override
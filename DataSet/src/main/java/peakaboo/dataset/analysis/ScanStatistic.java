@@ -0,0 +1,32 @@
+package peakaboo.dataset.analysis;
+
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * An additional per-scan measurement which can be calculated alongside the
+ * rest of a {@link DataSourceAnalysis} in the same pass over the data. Like
+ * the {@link Analysis} itself, a statistic may be calculated in pieces on
+ * several threads, with the pieces merged together afterwards, so the
+ * measurement must not depend on the order in which scans are seen.
+ */
+public interface ScanStatistic {
+
+	/**
+	 * Accepts a scan and its index. The scan may be a view of a reused 
+	 * buffer, and must not be kept after this method returns.
+	 * @param index the index of the scan
+	 * @param spectrum the scan, or null if there is no scan at this index
+	 */
+	void process(int index, ReadOnlySpectrum spectrum);
+	
+	/**
+	 * Creates a new, empty statistic of the same kind, for processing a portion of the scans
+	 */
+	ScanStatistic partial();
+	
+	/**
+	 * Merges the results of a partial statistic created with {@link #partial()} into this one
+	 */
+	void merge(ScanStatistic other);
+	
+}
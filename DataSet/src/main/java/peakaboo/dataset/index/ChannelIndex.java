@@ -0,0 +1,257 @@
+package peakaboo.dataset.index;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.components.scandata.ScanData;
+
+/**
+ * A channel-major copy of a {@link ScanData}, stored in a memory-mapped
+ * temporary file. Where the {@link ScanData} stores each scan's channels
+ * together, this stores each channel's values across all scans together,
+ * so that questions about a few channels (such as the intensity in an
+ * energy window at every point in a map) only read those channels, rather
+ * than reading every scan in full.
+ * <br/><br/>
+ * The index is built on a background thread. Until it is ready, queries are
+ * answered by reading the {@link ScanData} directly, so callers never have
+ * to wait for it.
+ */
+public class ChannelIndex {
+
+	//Individual mappings are limited to 2GB, so channels are mapped in segments
+	private static final long SEGMENT_SIZE = 1 << 30;
+
+	//approximate number of bytes of scans read at once while transposing
+	private static final long TILE_SIZE = 16 << 20;
+
+	private ScanData data;
+	private int scans;
+	private int channels;
+
+	private Path file;
+	private volatile List<MappedByteBuffer> segments;
+	private int channelsPerSegment;
+
+	//published and discarded under this index's lock, so that a build which
+	//finishes just as the index is discarded can't leave it ready
+	private volatile boolean ready = false;
+	private volatile boolean discarded = false;
+	private Thread builder;
+
+
+	/**
+	 * Creates a new ChannelIndex for the given {@link ScanData}. The index is not
+	 * built until {@link #build()} or {@link #buildInBackground()} is called.
+	 * @param data the scans to index
+	 * @param channels the number of channels in each scan
+	 */
+	public ChannelIndex(ScanData data, int channels) {
+		this.data = data;
+		this.scans = data.scanCount();
+		this.channels = channels;
+	}
+
+
+	/**
+	 * Starts building this index on a background thread
+	 * @return this index, for chaining
+	 */
+	public synchronized ChannelIndex buildInBackground() {
+		if (builder != null || ready) return this;
+		builder = new Thread(() -> {
+			try {
+				build();
+			} catch (IOException | RuntimeException e) {
+				PeakabooLog.get().log(Level.WARNING, "Failed to build channel index, falling back to reading scans directly", e);
+			}
+		}, "Channel Index Builder");
+		builder.setDaemon(true);
+		builder.setPriority(Thread.MIN_PRIORITY);
+		builder.start();
+		return this;
+	}
+
+	/**
+	 * Builds this index on the calling thread
+	 */
+	public void build() throws IOException {
+		if (ready || discarded || scans == 0 || channels == 0) return;
+
+		long rowBytes = (long)scans * 4;
+		channelsPerSegment = (int) Math.max(1, Math.min(channels, SEGMENT_SIZE / rowBytes));
+
+		Path file = Files.createTempFile("Peakaboo", ".channels");
+		file.toFile().deleteOnExit();
+		synchronized (this) {
+			if (discarded) {
+				delete(file);
+				return;
+			}
+			//from here on, discard() is responsible for deleting the file
+			this.file = file;
+		}
+
+		List<MappedByteBuffer> mapped = new ArrayList<>();
+		List<FloatBuffer> rows = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			for (int first = 0; first < channels; first += channelsPerSegment) {
+				int count = Math.min(channelsPerSegment, channels - first);
+				MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, first * rowBytes, count * rowBytes);
+				segment.order(ByteOrder.LITTLE_ENDIAN);
+				mapped.add(segment);
+				rows.add(segment.asFloatBuffer());
+			}
+		}
+
+		//read a tile of scans at a time, then write each channel's run of values for those scans
+		int tileScans = (int) Math.max(1, Math.min(scans, TILE_SIZE / ((long)channels * 4)));
+		float[][] tile = new float[channels][tileScans];
+
+		for (int start = 0; start < scans; start += tileScans) {
+			if (discarded) return;
+			int count = Math.min(tileScans, scans - start);
+
+			int tileStart = start;
+			data.visit(start, start + count, (index, scan) -> {
+				int s = index - tileStart;
+				int size = scan == null ? 0 : Math.min(channels, scan.size());
+				for (int c = 0; c < size; c++) {
+					tile[c][s] = scan.get(c);
+				}
+				for (int c = size; c < channels; c++) {
+					tile[c][s] = 0f;
+				}
+			});
+
+			for (int c = 0; c < channels; c++) {
+				FloatBuffer row = rows.get(c / channelsPerSegment);
+				row.position((c % channelsPerSegment) * scans + start);
+				row.put(tile[c], 0, count);
+			}
+		}
+
+		synchronized (this) {
+			if (discarded) return;
+			segments = mapped;
+			ready = true;
+		}
+	}
+
+
+	/**
+	 * Indicates if the index has been built. Queries made before then are
+	 * answered by reading the scans directly, and so are slower.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Blocks until the background build of this index has completed (or failed)
+	 */
+	public void awaitReady() throws InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			thread = builder;
+		}
+		if (thread != null) thread.join();
+	}
+
+
+	/**
+	 * Returns the values of a single channel for every scan
+	 * @param channel the channel to read
+	 * @return an array of length {@link ScanData#scanCount()}
+	 */
+	public float[] channel(int channel) {
+		return channelRange(channel, channel+1);
+	}
+
+	/**
+	 * Returns the sum of a range of channels for every scan. Scans which are
+	 * missing (null) are given a value of 0.
+	 * @param start the first channel to include
+	 * @param end the channel after the last channel to include
+	 * @return an array of length {@link ScanData#scanCount()}
+	 */
+	public float[] channelRange(int start, int end) {
+		if (start < 0 || end > channels || start > end) {
+			throw new IndexOutOfBoundsException("Channel range " + start + "-" + end + " outside of 0-" + channels);
+		}
+
+		float[] sums = new float[scans];
+		List<MappedByteBuffer> segments = this.segments;
+		if (!ready || segments == null) {
+			return readScans(sums, start, end);
+		}
+
+		float[] row = new float[scans];
+		for (int c = start; c < end; c++) {
+			FloatBuffer buffer = segments.get(c / channelsPerSegment).asFloatBuffer();
+			buffer.position((c % channelsPerSegment) * scans);
+			buffer.get(row);
+			for (int s = 0; s < scans; s++) {
+				sums[s] += row[s];
+			}
+		}
+		return sums;
+	}
+
+	private float[] readScans(float[] sums, int start, int end) {
+		data.visit((index, scan) -> {
+			if (scan == null) return;
+			int last = Math.min(end, scan.size());
+			float sum = 0;
+			for (int c = start; c < last; c++) {
+				sum += scan.get(c);
+			}
+			sums[index] = sum;
+		});
+		return sums;
+	}
+
+
+	public int scanCount() {
+		return scans;
+	}
+
+	public int channelCount() {
+		return channels;
+	}
+
+
+	/**
+	 * Stops any background build, releases the mapped file, and falls back
+	 * to reading scans directly.
+	 */
+	public synchronized void discard() {
+		discarded = true;
+		ready = false;
+		segments = null;
+		if (file != null) {
+			delete(file);
+			file = null;
+		}
+	}
+
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			//will be deleted on exit instead
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package peakaboo.dataset.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+import peakaboo.common.Configuration;
+import peakaboo.datasource.plugin.plugins.PlainText;
+import scitypes.Coord;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+
+public class AnalysisCacheTest extends TestCase {
+
+	private static final int CHANNELS = 4;
+
+	//a key no real dataset will have
+	private String key = UUID.randomUUID().toString().replace("-", "");
+
+	@Override
+	protected void tearDown() {
+		new File(Configuration.appDir("AnalysisCache"), key + ".pkac").delete();
+	}
+
+
+	private static DataSourceAnalysis analysis() {
+		DataSourceAnalysis analysis = new DataSourceAnalysis(null, CHANNELS);
+		analysis.process(0, new ISpectrum(new float[] {1, 2, 3, 4}));
+		analysis.process(1, null);
+		analysis.process(2, new ISpectrum(new float[] {5, 0, 0.5f, 8}));
+		return analysis;
+	}
+
+	private static void assertSpectrumEquals(ReadOnlySpectrum expected, ReadOnlySpectrum actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), actual.get(i), 0f);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Coord<Number>[] coords(int count) {
+		return new Coord[count];
+	}
+
+
+	public void testRoundTrip() {
+		DataSourceAnalysis stored = analysis();
+		Coord<Number>[] coords = coords(3);
+		coords[0] = new Coord<>(0.5, 1.5);
+		coords[2] = new Coord<>(-2.0, 4.0);
+		AnalysisCache.store(key, stored, coords, 3);
+
+		DataSourceAnalysis loaded = new DataSourceAnalysis(null, CHANNELS);
+		Coord<Number>[] loadedCoords = coords(3);
+		assertTrue(AnalysisCache.load(key, loaded, loadedCoords, 3));
+
+		assertEquals(stored.summedScanCount, loaded.summedScanCount);
+		assertEquals(stored.maxValue, loaded.maxValue, 0f);
+		assertSpectrumEquals(stored.summedSpectrum, loaded.summedSpectrum);
+		assertSpectrumEquals(stored.maximumSpectrum, loaded.maximumSpectrum);
+
+		assertEquals(0.5, loadedCoords[0].x.doubleValue(), 0);
+		assertEquals(1.5, loadedCoords[0].y.doubleValue(), 0);
+		assertNull(loadedCoords[1]);
+		assertEquals(-2.0, loadedCoords[2].x.doubleValue(), 0);
+	}
+
+	public void testMissingEntry() {
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(0), 3));
+	}
+
+	public void testMismatchedEntry() {
+		AnalysisCache.store(key, analysis(), coords(0), 3);
+
+		//a different number of scans, channels or coordinates means the entry is for some other dataset
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(0), 4));
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS + 1), coords(0), 3));
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(3), 3));
+		assertTrue(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(0), 3));
+	}
+
+	public void testCorruptEntry() throws IOException {
+		File file = new File(Configuration.appDir("AnalysisCache"), key + ".pkac");
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[] {1, 2, 3});
+
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(0), 3));
+		assertFalse("A corrupt entry was kept", file.exists());
+	}
+
+	public void testStatisticsNotCached() {
+		DataSourceAnalysis analysis = analysis();
+		analysis.addStatistic(new ScanStatistic() {
+			public void process(int index, ReadOnlySpectrum spectrum) {}
+			public ScanStatistic partial() { return this; }
+			public void merge(ScanStatistic other) {}
+		});
+		AnalysisCache.store(key, analysis, coords(0), 3);
+		assertFalse(AnalysisCache.load(key, new DataSourceAnalysis(null, CHANNELS), coords(0), 3));
+	}
+
+	public void testKey() throws IOException {
+		Path file = Files.createTempFile("AnalysisCacheTest", ".txt");
+		try {
+			Files.write(file, "1 2 3\n".getBytes("UTF-8"));
+			List<Path> paths = Collections.singletonList(file);
+
+			Optional<String> first = AnalysisCache.key(paths, new PlainText());
+			assertTrue(first.isPresent());
+			assertEquals(first, AnalysisCache.key(paths, new PlainText()));
+
+			//a file which has changed is a different dataset
+			Files.write(file, "1 2 3\n4 5 6\n".getBytes("UTF-8"));
+			assertFalse(first.equals(AnalysisCache.key(paths, new PlainText())));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
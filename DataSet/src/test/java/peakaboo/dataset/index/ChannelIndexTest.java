@@ -0,0 +1,108 @@
+package peakaboo.dataset.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+public class ChannelIndexTest extends TestCase {
+
+	private static final int CHANNELS = 16;
+
+	private SimpleScanData data;
+
+	@Override
+	protected void setUp() {
+		data = new SimpleScanData("Test", new ArrayList<>());
+		Random random = new Random(1);
+		for (int s = 0; s < 50; s++) {
+			if (s == 7) {
+				data.add((Spectrum) null);
+				continue;
+			}
+			//some scans are shorter than the index is wide
+			int size = s == 11 ? CHANNELS / 2 : CHANNELS;
+			float[] values = new float[size];
+			for (int c = 0; c < size; c++) {
+				values[c] = random.nextInt(100);
+			}
+			data.add(new ISpectrum(values));
+		}
+	}
+
+	private float[] direct(int start, int end) {
+		float[] sums = new float[data.scanCount()];
+		for (int s = 0; s < sums.length; s++) {
+			if (data.get(s) == null) continue;
+			for (int c = start; c < Math.min(end, data.get(s).size()); c++) {
+				sums[s] += data.get(s).get(c);
+			}
+		}
+		return sums;
+	}
+
+	private void assertRanges(ChannelIndex index) {
+		for (int start = 0; start <= CHANNELS; start++) {
+			for (int end = start; end <= CHANNELS; end++) {
+				float[] expected = direct(start, end);
+				float[] actual = index.channelRange(start, end);
+				assertEquals(expected.length, actual.length);
+				for (int s = 0; s < expected.length; s++) {
+					assertEquals("scan " + s + ", channels " + start + "-" + end, expected[s], actual[s], 0f);
+				}
+			}
+		}
+	}
+
+	public void testQueriesBeforeBuild() {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS);
+		assertFalse(index.isReady());
+		assertRanges(index);
+	}
+
+	public void testQueriesAfterBuild() throws IOException {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS);
+		index.build();
+		assertTrue(index.isReady());
+		assertRanges(index);
+		index.discard();
+	}
+
+	public void testBuildInBackground() throws InterruptedException {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS).buildInBackground();
+		index.awaitReady();
+		assertTrue(index.isReady());
+		assertRanges(index);
+		index.discard();
+	}
+
+	public void testDiscardFallsBack() throws IOException {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS);
+		index.build();
+		index.discard();
+		assertFalse(index.isReady());
+		assertRanges(index);
+	}
+
+	public void testDiscardBeforeBuild() throws IOException {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS);
+		index.discard();
+		index.build();
+		assertFalse(index.isReady());
+	}
+
+	public void testOutOfRange() {
+		ChannelIndex index = new ChannelIndex(data, CHANNELS);
+		try {
+			index.channelRange(0, CHANNELS + 1);
+			fail("Accepted a range past the last channel");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+	}
+
+}
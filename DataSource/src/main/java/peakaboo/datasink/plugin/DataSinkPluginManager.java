@@ -13,6 +13,8 @@ import net.sciencestudio.bolt.scripting.plugin.IBoltScriptPluginLoader;
 import peakaboo.common.Configuration;
 import peakaboo.common.PeakabooLog;
 import peakaboo.datasink.plugin.plugins.CSV;
+import peakaboo.datasink.plugin.plugins.CompressedPeakabooBinarySink;
+import peakaboo.datasink.plugin.plugins.PeakabooBinarySink;
 
 public class DataSinkPluginManager extends BoltPluginManager<DataSinkPlugin>
 {
@@ -31,6 +33,8 @@ public class DataSinkPluginManager extends BoltPluginManager<DataSinkPlugin>
 			
 			//register built-in plugins
 			javaLoader.registerPlugin(CSV.class);
+			javaLoader.registerPlugin(PeakabooBinarySink.class);
+			javaLoader.registerPlugin(CompressedPeakabooBinarySink.class);
 
 			
 		} catch (ClassInheritanceException | ClassInstantiationException e) {
@@ -1,14 +1,16 @@
 package peakaboo.datasink.plugin.plugins;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Collectors;
 
 import peakaboo.datasink.plugin.JavaDataSinkPlugin;
 import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.model.components.scandata.ScanBuffer;
+import peakaboo.datasource.model.components.scandata.ScanData;
 import scitypes.ReadOnlySpectrum;
 
 public class CSV implements JavaDataSinkPlugin {
@@ -40,11 +42,21 @@ public class CSV implements JavaDataSinkPlugin {
 	
 	@Override
 	public void write(DataSource source, Path destination) throws IOException {
-		Writer writer = new OutputStreamWriter(Files.newOutputStream(destination));
-		for (ReadOnlySpectrum s : source.getScanData()) {
-			String spectrum = s.stream().map(f -> Float.toString(f)).collect(Collectors.joining(", "));
-			writer.write(spectrum);
-			writer.write("\n");
+		Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(destination)));
+		ScanData scandata = source.getScanData();
+		ScanBuffer buffer = new ScanBuffer();
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < scandata.scanCount(); i++) {
+			ReadOnlySpectrum s = buffer.read(scandata, i);
+			line.setLength(0);
+			if (s != null) {
+				for (int c = 0; c < s.size(); c++) {
+					if (c > 0) line.append(", ");
+					line.append(s.get(c));
+				}
+			}
+			line.append('\n');
+			writer.append(line);
 		}
 		writer.close();		
 	}
@@ -0,0 +1,30 @@
+package peakaboo.datasink.plugin.plugins;
+
+import peakaboo.datasource.plugin.plugins.PeakabooBinaryFormat;
+
+/**
+ * Writes datasets in the {@link PeakabooBinaryFormat} with each scan deflated,
+ * giving smaller files at the cost of decompressing scans as they are read.
+ */
+public class CompressedPeakabooBinarySink extends PeakabooBinarySink {
+
+	public CompressedPeakabooBinarySink() {
+		super(true);
+	}
+
+	@Override
+	public String pluginUUID() {
+		return "7d2e4a1b-9c3f-4e8a-b6d5-1f0e2c7a9b34";
+	}
+
+	@Override
+	public String getFormatName() {
+		return "Peakaboo Binary (Compressed)";
+	}
+
+	@Override
+	public String getFormatDescription() {
+		return "Peakaboo's native binary dataset format with compressed scans, for smaller files which take longer to re-open";
+	}
+
+}
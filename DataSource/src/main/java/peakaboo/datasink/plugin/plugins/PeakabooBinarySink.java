@@ -0,0 +1,72 @@
+package peakaboo.datasink.plugin.plugins;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import peakaboo.datasink.plugin.JavaDataSinkPlugin;
+import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.plugin.plugins.PeakabooBinaryFormat;
+
+/**
+ * Writes datasets in the {@link PeakabooBinaryFormat} with uncompressed scans, 
+ * which are the fastest to re-open. See {@link CompressedPeakabooBinarySink} for 
+ * smaller files.
+ */
+public class PeakabooBinarySink implements JavaDataSinkPlugin {
+
+	private boolean compress;
+	
+	public PeakabooBinarySink() {
+		this(false);
+	}
+	
+	protected PeakabooBinarySink(boolean compress) {
+		this.compress = compress;
+	}
+	
+	@Override
+	public boolean pluginEnabled() {
+		return true;
+	}
+
+	@Override
+	public String pluginName() {
+		return getFormatName();
+	}
+
+	@Override
+	public String pluginDescription() {
+		return getFormatDescription();
+	}
+
+	@Override
+	public String pluginVersion() {
+		return "1.0";
+	}
+
+	@Override
+	public String pluginUUID() {
+		return "0f6f1c8a-3a5e-4b0e-b2a4-7e4d9c2f8b61";
+	}
+	
+	@Override
+	public void write(DataSource source, Path destination) throws IOException {
+		PeakabooBinaryFormat.write(source, destination, compress);
+	}
+
+	@Override
+	public String getFormatExtension() {
+		return PeakabooBinaryFormat.EXTENSION;
+	}
+
+	@Override
+	public String getFormatName() {
+		return "Peakaboo Binary";
+	}
+
+	@Override
+	public String getFormatDescription() {
+		return "Peakaboo's native binary dataset format, which can be re-opened without parsing";
+	}
+
+}
@@ -0,0 +1,90 @@
+package peakaboo.datasource.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sciencestudio.scratch.ScratchEncoder;
+import net.sciencestudio.scratch.single.Compressed;
+import scitypes.Spectrum;
+
+/**
+ * CompressedSpectrumList is an in-memory implementation of the List interface 
+ * which stores each {@link Spectrum} in compressed form. This trades some CPU
+ * time on each get and set for a smaller heap footprint than storing the 
+ * spectra directly, without going to disk.
+ * <br /><br />
+ * As with the disk-backed lists, get operations return copies of the stored
+ * data, so modifications to a retrieved {@link Spectrum} are not reflected in
+ * the list. Setting an index past the end of the list pads it with null entries.
+ */
+public class CompressedSpectrumList extends AbstractList<Spectrum> {
+
+	private List<Compressed<Spectrum>> entries = new ArrayList<>();
+	private ScratchEncoder<Spectrum> encoder;
+	
+	public CompressedSpectrumList() {
+		this.encoder = SpectrumEncoder.compressed();
+	}
+	
+	/*
+	 * Entries are immutable once created, so only the list itself is guarded. 
+	 * Compressing and decompressing happen outside of the lock, so that 
+	 * concurrent readers and writers don't wait on each other's work.
+	 */
+	
+	@Override
+	public Spectrum get(int index) {
+		Compressed<Spectrum> entry;
+		synchronized (this) {
+			entry = entries.get(index);
+		}
+		if (entry == null) return null;
+		return entry.get();
+	}
+	
+	@Override
+	public Spectrum set(int index, Spectrum spectrum) {
+		Compressed<Spectrum> entry = compress(spectrum);
+		synchronized (this) {
+			while (entries.size() <= index) {
+				entries.add(null);
+			}
+			entries.set(index, entry);
+		}
+		//The previous value is not returned, as that would require decompressing 
+		//a value which the caller almost never wants.
+		return null;
+	}
+	
+	@Override
+	public void add(int index, Spectrum spectrum) {
+		Compressed<Spectrum> entry = compress(spectrum);
+		synchronized (this) {
+			entries.add(index, entry);
+			modCount++;
+		}
+	}
+	
+	@Override
+	public Spectrum remove(int index) {
+		Compressed<Spectrum> entry;
+		synchronized (this) {
+			entry = entries.remove(index);
+			modCount++;
+		}
+		if (entry == null) return null;
+		return entry.get();
+	}
+	
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	private Compressed<Spectrum> compress(Spectrum spectrum) {
+		if (spectrum == null) return null;
+		return Compressed.create(spectrum, encoder);
+	}
+
+}
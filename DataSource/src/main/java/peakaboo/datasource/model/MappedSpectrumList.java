@@ -0,0 +1,323 @@
+package peakaboo.datasource.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+
+import net.sciencestudio.scratch.list.ScratchLists;
+import peakaboo.common.PeakabooLog;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+/**
+ * MappedSpectrumList is an implementation of the List interface which stores
+ * {@link Spectrum}s as fixed-width records of raw floats in a memory-mapped
+ * temporary file. Unlike the serializing scratch lists, no decoding step is
+ * required to read an element back -- the channel values are bulk-copied
+ * straight out of the mapped region into a new {@link ISpectrum}.
+ * <br /><br />
+ * The record width is fixed by the first non-null {@link Spectrum} stored in
+ * the list. Spectra of any other size are still accepted, but are kept in a
+ * compressed overflow list rather than in the mapped file. An offset index
+ * maps each position in the list to a record slot in the file, so that
+ * {@link #set(int, Spectrum)} may be called out of order (eg by an indexed
+ * {@link peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue}).
+ * Setting an index past the end of the list will pad the list with null
+ * entries, and replacing an existing entry overwrites its record in place.
+ * <br /><br />
+ * As with other disk-backed lists, get operations return copies of the stored
+ * data, so modifications to a retrieved {@link Spectrum} are not reflected in
+ * the list. The backing file is deleted when the list is {@link #close() closed}.
+ */
+public class MappedSpectrumList extends AbstractList<Spectrum> implements Closeable {
+
+	//Individual mappings are limited to 2GB, so the file is mapped in segments
+	private static final int SEGMENT_BYTES = 1 << 30;
+	private static final int NO_RECORD = -1;
+
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private List<FloatBuffer> segments = new ArrayList<>();
+
+	private int width = -1;
+	private int recordsPerSegment;
+	private int records = 0;
+
+	//spectra whose size doesn't match the record width
+	private List<Spectrum> overflow;
+
+	//maps list positions to record slots in the file, or to overflow entries as -2-n
+	private int[] offsets = new int[1024];
+	private int size = 0;
+
+	private boolean closed = false;
+
+
+	/**
+	 * Creates a new list backed by a temporary file.
+	 * @param name the name of the dataset this list will store, used to name the file
+	 * @throws IOException if the file could not be created or memory-mapped
+	 */
+	public MappedSpectrumList(String name) throws IOException {
+		file = File.createTempFile("Peakaboo " + filename(name) + " ", ".spectra");
+		file.deleteOnExit();
+		try {
+			raf = new RandomAccessFile(file, "rw");
+			channel = raf.getChannel();
+			//make sure the file can actually be mapped before anything is stored in it
+			channel.map(MapMode.READ_WRITE, 0, 4);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+
+	@Override
+	public Spectrum get(int index) {
+		FloatBuffer region;
+		int position;
+		synchronized (this) {
+			checkIndex(index);
+			int slot = offsets[index];
+			if (slot == NO_RECORD) { return null; }
+			if (slot < NO_RECORD) { return overflow.get(-2 - slot); }
+			region = segments.get(slot / recordsPerSegment).duplicate();
+			position = (slot % recordsPerSegment) * width;
+		}
+
+		float[] values = new float[width];
+		region.position(position);
+		region.get(values);
+		return new ISpectrum(values, false);
+	}
+
+	/**
+	 * Copies the channel values for the given index into the provided buffer,
+	 * avoiding any allocation. If the buffer is shorter than the spectrum,
+	 * only the channels which fit are copied.
+	 * @return the number of channels in the spectrum, or -1 if the entry at this index is null
+	 */
+	public int read(int index, float[] target) {
+		FloatBuffer region;
+		int position;
+		synchronized (this) {
+			checkIndex(index);
+			int slot = offsets[index];
+			if (slot == NO_RECORD) { return -1; }
+			if (slot < NO_RECORD) {
+				Spectrum spectrum = overflow.get(-2 - slot);
+				int count = Math.min(spectrum.size(), target.length);
+				for (int i = 0; i < count; i++) {
+					target[i] = spectrum.get(i);
+				}
+				return spectrum.size();
+			}
+			region = segments.get(slot / recordsPerSegment).duplicate();
+			position = (slot % recordsPerSegment) * width;
+		}
+
+		region.position(position);
+		region.get(target, 0, Math.min(width, target.length));
+		return width;
+	}
+
+	/**
+	 * Replaces the entry at the given index. Setting an index past the end of 
+	 * the list pads it with null entries.
+	 * @return the previous entry, read back from the file, or null if there was none
+	 */
+	@Override
+	public synchronized Spectrum set(int index, Spectrum spectrum) {
+		if (index < 0) throw new IndexOutOfBoundsException("Index: " + index);
+		checkOpen();
+
+		while (index >= size) {
+			append(NO_RECORD);
+		}
+		//entries past the old end are null, so only a real replacement is read back
+		Spectrum previous = get(index);
+		offsets[index] = store(offsets[index], spectrum);
+		return previous;
+	}
+
+	@Override
+	public synchronized void add(int index, Spectrum spectrum) {
+		if (index != size) {
+			throw new UnsupportedOperationException("MappedSpectrumList only supports appending elements");
+		}
+		checkOpen();
+
+		append(store(NO_RECORD, spectrum));
+		modCount++;
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all entries, and releases the space they used in the backing file
+	 */
+	@Override
+	public synchronized void clear() {
+		size = 0;
+		offsets = new int[1024];
+		release();
+		if (channel != null) {
+			try {
+				channel.truncate(0);
+			} catch (IOException e) {
+				PeakabooLog.get().log(Level.WARNING, "Failed to release spectrum storage file " + file, e);
+			}
+		}
+		modCount++;
+	}
+
+	/**
+	 * Releases the mapped file and deletes it. The list cannot be used afterwards.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+		closed = true;
+		size = 0;
+		release();
+		try {
+			if (raf != null) raf.close();
+		} catch (IOException e) {
+			PeakabooLog.get().log(Level.WARNING, "Failed to close spectrum storage file " + file, e);
+		}
+		//on some platforms, the file can't be deleted until the mappings are garbage
+		//collected, in which case it will be deleted at exit instead
+		file.delete();
+	}
+
+	/**
+	 * Returns the number of channels in each record, or -1 if no spectrum has been stored yet
+	 */
+	public synchronized int getWidth() {
+		return width;
+	}
+
+
+
+	/**
+	 * Stores a spectrum, reusing the given slot if the spectrum fits in it
+	 * @return the slot the spectrum was stored in
+	 */
+	private int store(int slot, Spectrum spectrum) {
+		if (spectrum == null) {
+			return NO_RECORD;
+		}
+
+		if (width == -1) {
+			width = spectrum.size();
+			recordsPerSegment = Math.max(1, SEGMENT_BYTES / (Math.max(1, width) * 4));
+		}
+
+		if (spectrum.size() != width) {
+			if (overflow == null) {
+				overflow = ScratchLists.tryDiskBacked(SpectrumEncoder.compressed());
+			}
+			if (slot < NO_RECORD) {
+				overflow.set(-2 - slot, spectrum);
+				return slot;
+			}
+			overflow.add(spectrum);
+			return -2 - (overflow.size() - 1);
+		}
+
+		if (slot < 0) {
+			slot = allocate();
+		}
+		write(slot, spectrum);
+		return slot;
+	}
+
+	private void append(int slot) {
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[size++] = slot;
+	}
+
+	private int allocate() {
+		int slot = records;
+		int segment = slot / recordsPerSegment;
+		while (segments.size() <= segment) {
+			segments.add(map(segments.size()));
+		}
+		//only claim the record once its storage exists
+		records++;
+		return slot;
+	}
+
+	private void write(int slot, Spectrum spectrum) {
+		FloatBuffer region = segments.get(slot / recordsPerSegment).duplicate();
+		region.position((slot % recordsPerSegment) * width);
+		//copied straight from the spectrum's own array, without an intermediate copy
+		region.put(spectrum.backingArray(), 0, width);
+	}
+
+	private FloatBuffer map(int segment) {
+		long bytes = (long)recordsPerSegment * width * 4;
+		try {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, segment * bytes, bytes);
+			buffer.order(ByteOrder.nativeOrder());
+			return buffer.asFloatBuffer();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to map spectrum storage file " + file, e);
+		}
+	}
+
+	/**
+	 * Drops the mappings and any overflow entries, closing the overflow list 
+	 * so that its own backing file is released too
+	 */
+	private void release() {
+		segments = new ArrayList<>();
+		records = 0;
+		width = -1;
+		if (overflow != null) {
+			overflow.clear();
+			if (overflow instanceof Closeable) {
+				try {
+					((Closeable) overflow).close();
+				} catch (IOException e) {
+					PeakabooLog.get().log(Level.WARNING, "Failed to close overflow spectrum storage", e);
+				}
+			}
+			overflow = null;
+		}
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	private void checkOpen() {
+		if (closed) throw new IllegalStateException("MappedSpectrumList has been closed");
+	}
+
+	private static String filename(String name) {
+		if (name == null) return "Dataset";
+		String safe = name.replaceAll("[^A-Za-z0-9._-]", "_");
+		if (safe.length() > 40) safe = safe.substring(0, 40);
+		return safe.isEmpty() ? "Dataset" : safe;
+	}
+
+}
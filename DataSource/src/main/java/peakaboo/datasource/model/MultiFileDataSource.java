@@ -0,0 +1,55 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.Spectrum;
+
+/**
+ * A {@link DataSource} for formats which store one scan per file. Rather than
+ * reading the whole dataset in a single call to {@link DataSource#read(List)},
+ * these DataSources allow Peakaboo to parse the individual files concurrently
+ * and place each scan at its (sorted) index itself using a {@link MultiFileReader}.
+ * <br/><br/>
+ * When reading in this way, Peakaboo will call {@link #prepareRead(List)} once,
+ * then {@link #readScan(Path)} once for every file, possibly from several threads
+ * at the same time, and finally {@link #finishRead()}. {@link DataSource#read(List)}
+ * will not be called. Formats which can also store several scans in one file
+ * should say which kind of files they have been given through 
+ * {@link #isOneScanPerFile(List)}.
+ */
+public interface MultiFileDataSource extends DataSource {
+
+	/**
+	 * Determines if each of the given files holds (at most) a single scan, so 
+	 * that they can be read with {@link #readScan(Path)}. When this is false, 
+	 * the files are read with {@link DataSource#read(List)} instead.
+	 */
+	default boolean isOneScanPerFile(List<Path> paths) throws Exception {
+		return true;
+	}
+
+	/**
+	 * Prepares this DataSource to have the given files read into it one at a time.
+	 * @param paths the (sorted) files which make up this dataset
+	 * @return the {@link SimpleScanData} which scans read by {@link #readScan(Path)}
+	 * will be stored in, and which will later be returned by {@link DataSource#getScanData()}
+	 */
+	SimpleScanData prepareRead(List<Path> paths) throws Exception;
+
+	/**
+	 * Reads the single scan stored in the given file. This method must be safe to
+	 * call from several threads at once.
+	 * @param path the file to read
+	 * @return the scan read from the file, or null if the file contains no scan
+	 */
+	Spectrum readScan(Path path) throws Exception;
+
+	/**
+	 * Called once after all files have been read with {@link #readScan(Path)},
+	 * and all scans have been stored in the {@link SimpleScanData}.
+	 */
+	default void finishRead() throws Exception {}
+
+}
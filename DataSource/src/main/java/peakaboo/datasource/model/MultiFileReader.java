@@ -0,0 +1,90 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import peakaboo.datasource.model.components.interaction.Interaction;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
+import scitypes.Spectrum;
+
+/**
+ * Reads a {@link MultiFileDataSource} by parsing its files on a pool of worker
+ * threads, placing each scan at the index of its file in the (already sorted)
+ * list of paths. This should only be used when
+ * {@link MultiFileDataSource#isOneScanPerFile(List)} is true for those paths.
+ * Progress is reported, and requests to abort are checked, through the DataSource's
+ * {@link Interaction}.
+ */
+public final class MultiFileReader {
+
+	private MultiFileReader() {}
+
+
+	public static void read(MultiFileDataSource ds, List<Path> paths) throws Exception {
+
+		Interaction interaction = ds.getInteraction();
+		SimpleScanData scandata = ds.prepareRead(paths);
+
+		try {
+
+			interaction.notifyScanCount(paths.size());
+
+			LoaderQueue queue = scandata.createLoaderQueue(1000);
+			AtomicInteger next = new AtomicInteger(0);
+			int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), paths.size()));
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+			try {
+
+				List<Future<Void>> workers = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					workers.add(pool.submit(() -> {
+						int index;
+						while ((index = next.getAndIncrement()) < paths.size()) {
+							if (interaction.checkReadAborted()) return null;
+							Spectrum scan = ds.readScan(paths.get(index));
+							if (scan != null) queue.submit(index, scan);
+							synchronized (interaction) {
+								interaction.notifyScanRead(1);
+							}
+						}
+						return null;
+					}));
+				}
+
+				try {
+					for (Future<Void> worker : workers) {
+						worker.get();
+					}
+				} catch (ExecutionException e) {
+					//stop handing out files to the other workers
+					next.set(paths.size());
+					if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+					throw e;
+				} finally {
+					//let any in-flight scans land in the queue before it is finished
+					pool.shutdown();
+					pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				}
+				queue.finish();
+
+			} finally {
+				//stops the queue's consumer if reading failed before it could be finished
+				queue.abort();
+			}
+
+		} finally {
+			ds.finishRead();
+		}
+
+	}
+
+}
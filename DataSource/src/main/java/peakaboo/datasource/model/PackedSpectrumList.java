@@ -0,0 +1,179 @@
+package peakaboo.datasource.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import peakaboo.datasource.model.SpectrumCoding.Reader;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * PackedSpectrumList is an in-memory implementation of the List interface for
+ * spectra of raw detector counts. Counts are whole numbers, usually small, and
+ * most high-energy channels are zero, so rather than storing each channel as a
+ * 32-bit float, each spectrum is stored as a sequence of variable-width integers,
+ * with each run of zeros collapsed into a single entry. Spectra are only expanded
+ * back to floats when they are read.
+ * <br /><br />
+ * Spectra which contain values other than non-negative whole numbers are stored
+ * as raw floats instead, so nothing is lost when a dataset is not entirely integral.
+ * <br /><br />
+ * As with the other compact lists, get operations return copies of the stored
+ * data, so modifications to a retrieved {@link Spectrum} are not reflected in
+ * the list. Setting an index past the end of the list pads it with null entries.
+ */
+public class PackedSpectrumList extends AbstractList<Spectrum> {
+
+	//largest count which can be stored as an integer entry
+	private static final int MAX_COUNT = (1 << 30) - 1;
+
+	private List<byte[]> entries = new ArrayList<>();
+
+	//reused while encoding, since the final size isn't known in advance
+	private byte[] scratch = new byte[0];
+
+
+	/*
+	 * Entries are never modified once encoded, so only the list itself is 
+	 * guarded. Spectra are expanded outside of the lock, so that concurrent 
+	 * readers don't wait on each other's decoding.
+	 */
+
+	@Override
+	public Spectrum get(int index) {
+		byte[] entry = entry(index);
+		if (entry == null) return null;
+		float[] values = new float[channels(entry)];
+		decode(entry, values);
+		return new ISpectrum(values, false);
+	}
+
+	/**
+	 * Expands the spectrum at the given index directly into the given buffer,
+	 * without creating an intermediate {@link Spectrum}. If the buffer is shorter
+	 * than the spectrum, only the channels which fit are copied.
+	 * @return the number of channels in the spectrum, or -1 if there is no spectrum at this index
+	 */
+	public int read(int index, float[] target) {
+		byte[] entry = entry(index);
+		if (entry == null) return -1;
+		return decode(entry, target);
+	}
+
+	@Override
+	public synchronized Spectrum set(int index, Spectrum spectrum) {
+		while (entries.size() <= index) {
+			entries.add(null);
+		}
+		entries.set(index, encode(spectrum));
+		//The previous value is not returned, as that would require decoding
+		//a value which the caller almost never wants.
+		return null;
+	}
+
+	@Override
+	public synchronized void add(int index, Spectrum spectrum) {
+		entries.add(index, encode(spectrum));
+		modCount++;
+	}
+
+	@Override
+	public Spectrum remove(int index) {
+		byte[] entry;
+		synchronized (this) {
+			entry = entries.remove(index);
+			modCount++;
+		}
+		if (entry == null) return null;
+		float[] values = new float[channels(entry)];
+		decode(entry, values);
+		return new ISpectrum(values, false);
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+
+	private synchronized byte[] entry(int index) {
+		return entries.get(index);
+	}
+
+	private byte[] encode(ReadOnlySpectrum spectrum) {
+		if (spectrum == null) return null;
+		int size = spectrum.size();
+
+		//worst case is 5 bytes per channel plus the header
+		if (scratch.length < size * 5 + 6) {
+			scratch = new byte[size * 5 + 6];
+		}
+
+		int position = 1;
+		position = SpectrumCoding.writeVarint(scratch, position, size);
+
+		boolean integral = true;
+		int zeros = 0;
+		for (int i = 0; i < size; i++) {
+			float value = spectrum.get(i);
+			if (Float.floatToRawIntBits(value) == 0) {
+				zeros++;
+				continue;
+			}
+			//negative zero fails this test too, so that its sign is kept
+			if (value <= 0 || value > MAX_COUNT || value != (int) value) {
+				integral = false;
+				break;
+			}
+			if (zeros > 0) {
+				position = SpectrumCoding.writeVarint(scratch, position, (zeros << 1) | 1);
+				zeros = 0;
+			}
+			position = SpectrumCoding.writeVarint(scratch, position, ((int) value) << 1);
+		}
+
+		if (integral) {
+			if (zeros > 0) {
+				position = SpectrumCoding.writeVarint(scratch, position, (zeros << 1) | 1);
+			}
+			scratch[0] = SpectrumCoding.INTEGER;
+			return Arrays.copyOf(scratch, position);
+		}
+
+		//not raw counts, store the floats as-is
+		return SpectrumCoding.encodeFloats(spectrum);
+	}
+
+	private static int channels(byte[] entry) {
+		return new Reader(entry).varint();
+	}
+
+	private static int decode(byte[] entry, float[] target) {
+		Reader reader = new Reader(entry);
+		int size = reader.varint();
+		int limit = Math.min(size, target.length);
+
+		if (reader.tag() == SpectrumCoding.FLOAT) {
+			reader.floats(target, limit);
+			return size;
+		}
+
+		int channel = 0;
+		while (channel < limit) {
+			int value = reader.varint();
+			if ((value & 1) == 1) {
+				int end = Math.min(limit, channel + (value >>> 1));
+				Arrays.fill(target, channel, end, 0f);
+				channel = end;
+			} else {
+				target[channel++] = value >>> 1;
+			}
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,64 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.Spectrum;
+
+/**
+ * A {@link DataSource} whose input can be divided into independent partitions,
+ * such as separate files, or byte ranges of a single large file. Rather than
+ * reading the whole dataset in a single call to {@link DataSource#read(List)},
+ * these DataSources allow Peakaboo to read several partitions at once on a pool
+ * of worker threads using a {@link PartitionedReader}.
+ * <br/><br/>
+ * When reading in this way, Peakaboo will call {@link #preparePartitions(List)}
+ * once, then {@link #readPartition(int)} once for every partition, possibly from
+ * several threads at the same time, and finally {@link #finishRead()}. The scans
+ * from each partition are stored in order, directly after the scans from the
+ * partition before it, so a DataSource does not need to know how many scans each
+ * partition holds ahead of time.
+ */
+public interface PartitionedDataSource extends DataSource {
+
+	/**
+	 * Prepares this DataSource to have the given files read into it one partition at a time.
+	 * @param paths the files which make up this dataset
+	 * @return the {@link SimpleScanData} which scans read by {@link #readPartition(int)}
+	 * will be stored in, and which will later be returned by {@link DataSource#getScanData()}
+	 */
+	SimpleScanData preparePartitions(List<Path> paths) throws Exception;
+
+	/**
+	 * Returns the number of partitions the files given to {@link #preparePartitions(List)}
+	 * have been divided into.
+	 */
+	int partitionCount();
+
+	/**
+	 * Reads all of the scans in the given partition. This method must be safe to
+	 * call from several threads at once. Memory use while reading is proportional
+	 * to the size of the partitions being read, so very large inputs should be
+	 * divided into more partitions rather than larger ones.
+	 * @param partition the index of the partition to read
+	 * @return the scans in this partition, in order. Null entries leave a gap in the dataset.
+	 */
+	List<Spectrum> readPartition(int partition) throws Exception;
+
+	/**
+	 * Called once after reading has stopped, whether all partitions were read
+	 * successfully or not, so that any resources opened by
+	 * {@link #preparePartitions(List)} can be released.
+	 */
+	default void finishRead() throws Exception {}
+
+	/**
+	 * Reads the given files using a {@link PartitionedReader}
+	 */
+	@Override
+	default void read(List<Path> paths) throws Exception {
+		PartitionedReader.read(this, paths);
+	}
+
+}
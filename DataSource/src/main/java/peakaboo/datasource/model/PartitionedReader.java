@@ -0,0 +1,124 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import peakaboo.datasource.model.components.interaction.Interaction;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
+import scitypes.Spectrum;
+
+/**
+ * Reads a {@link PartitionedDataSource} by reading its partitions on a pool of
+ * worker threads. Only a limited number of partitions are read ahead of the one
+ * being stored, so memory use is bounded regardless of the size of the dataset.
+ * Progress is reported, and requests to abort are checked, through the DataSource's
+ * {@link Interaction}.
+ */
+public final class PartitionedReader {
+
+	private PartitionedReader() {}
+
+
+	public static void read(PartitionedDataSource ds, List<Path> paths) throws Exception {
+
+		SimpleScanData scandata = ds.preparePartitions(paths);
+		try {
+			readPartitions(ds, scandata);
+		} finally {
+			//releases whatever preparePartitions opened, however reading ended
+			ds.finishRead();
+		}
+
+	}
+
+	private static void readPartitions(PartitionedDataSource ds, SimpleScanData scandata) throws Exception {
+
+		Interaction interaction = ds.getInteraction();
+		int partitions = ds.partitionCount();
+
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), partitions));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		LoaderQueue queue = null;
+
+		try {
+
+			Deque<Future<List<Spectrum>>> pending = new ArrayDeque<>();
+			int submitted = 0;
+			int stored = 0;
+			int index = 0;
+
+			while (submitted < partitions || !pending.isEmpty()) {
+
+				while (submitted < partitions && pending.size() < threads * 2) {
+					int partition = submitted++;
+					pending.add(pool.submit(() -> {
+						if (interaction.checkReadAborted()) return Collections.<Spectrum>emptyList();
+						return ds.readPartition(partition);
+					}));
+				}
+
+				if (interaction.checkReadAborted()) break;
+
+				List<Spectrum> scans;
+				try {
+					scans = pending.poll().get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+					throw e;
+				}
+
+				//the first partition tells us roughly how big the dataset is, and
+				//whether it's made up of raw counts, so it can be stored compactly
+				if (stored++ == 0) {
+					if (scandata.getExpectedScanCount() < 0) {
+						scandata.setExpectedScanCount((int) Math.min(Integer.MAX_VALUE, (long) scans.size() * partitions));
+					}
+					interaction.notifyScanCount(scandata.getExpectedScanCount());
+					if (!scandata.isIntegral()) {
+						scandata.setIntegral(isIntegral(scans));
+					}
+					queue = scandata.createLoaderQueue(1000);
+				}
+
+				for (Spectrum scan : scans) {
+					if (scan != null) queue.submit(index, scan);
+					index++;
+				}
+
+				interaction.notifyScanRead(scans.size());
+
+			}
+
+			if (queue != null) queue.finish();
+
+		} finally {
+			pool.shutdownNow();
+			//stops the queue's consumer if reading failed before it could be finished
+			if (queue != null) queue.abort();
+		}
+
+	}
+
+	/**
+	 * Determines if the given scans contain only non-negative whole numbers
+	 */
+	private static boolean isIntegral(List<Spectrum> scans) {
+		for (Spectrum scan : scans) {
+			if (scan == null) continue;
+			for (int i = 0; i < scan.size(); i++) {
+				float value = scan.get(i);
+				if (value < 0 || value != Math.rint(value)) return false;
+			}
+		}
+		return !scans.isEmpty();
+	}
+
+}
@@ -0,0 +1,102 @@
+package peakaboo.datasource.model;
+
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * The pieces of the byte layout shared by {@link SpectrumEncoder} and
+ * {@link PackedSpectrumList}. Both store a spectrum as a type tag, followed
+ * by the channel count as a variable-width integer, followed by the channels
+ * themselves, either as variable-width integers or as raw float bits.
+ */
+final class SpectrumCoding {
+
+	static final byte INTEGER = 0;
+	static final byte FLOAT = 1;
+
+	private SpectrumCoding() {}
+
+
+	/**
+	 * Writes a non-negative value 7 bits at a time, low bits first
+	 * @return the position following the written value
+	 */
+	static int writeVarint(byte[] buffer, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Encodes the given spectrum as raw float bits, which is lossless for any values
+	 */
+	static byte[] encodeFloats(ReadOnlySpectrum spectrum) {
+		int size = spectrum.size();
+		byte[] header = new byte[6];
+		int position = writeVarint(header, 1, size);
+
+		byte[] encoded = new byte[position + size * 4];
+		System.arraycopy(header, 0, encoded, 0, position);
+		encoded[0] = FLOAT;
+		for (int i = 0; i < size; i++) {
+			int bits = Float.floatToRawIntBits(spectrum.get(i));
+			encoded[position++] = (byte) bits;
+			encoded[position++] = (byte) (bits >>> 8);
+			encoded[position++] = (byte) (bits >>> 16);
+			encoded[position++] = (byte) (bits >>> 24);
+		}
+		return encoded;
+	}
+
+
+	/**
+	 * Reads an encoded spectrum from front to back
+	 */
+	static final class Reader {
+
+		private final byte[] buffer;
+		private int position;
+
+		/**
+		 * Creates a reader positioned just after the type tag
+		 */
+		Reader(byte[] buffer) {
+			this.buffer = buffer;
+			this.position = 1;
+		}
+
+		byte tag() {
+			return buffer[0];
+		}
+
+		int varint() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		/**
+		 * Reads {@code count} raw floats into the start of the target
+		 */
+		void floats(float[] target, int count) {
+			for (int i = 0; i < count; i++) {
+				int bits = (buffer[position] & 0xff)
+						| (buffer[position+1] & 0xff) << 8
+						| (buffer[position+2] & 0xff) << 16
+						| (buffer[position+3] & 0xff) << 24;
+				target[i] = Float.intBitsToFloat(bits);
+				position += 4;
+			}
+		}
+
+	}
+
+}
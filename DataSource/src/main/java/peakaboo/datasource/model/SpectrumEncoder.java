@@ -0,0 +1,95 @@
+package peakaboo.datasource.model;
+
+import java.util.Arrays;
+
+import net.sciencestudio.scratch.ScratchEncoder;
+import net.sciencestudio.scratch.encoders.CompoundEncoder;
+import net.sciencestudio.scratch.encoders.compressors.Compressors;
+import peakaboo.datasource.model.SpectrumCoding.Reader;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+/**
+ * A {@link ScratchEncoder} written specifically for spectra, for use in place of a
+ * general-purpose serializer. Spectra of raw detector counts are stored as the
+ * zigzag-encoded difference between each channel and the one before it, written
+ * as variable-width integers. Neighbouring channels usually have similar counts,
+ * so most channels take a single byte, and runs of empty channels become runs of
+ * zero bytes which a following compressor can collapse.
+ * <br/><br/>
+ * Spectra containing anything other than whole numbers are stored as raw float
+ * bits instead, so encoding is always lossless.
+ */
+public class SpectrumEncoder implements ScratchEncoder<Spectrum> {
+
+	private static final byte NULL = 2;
+
+	//whole numbers beyond this can't be stored exactly as floats anyway
+	private static final float MAX_COUNT = 1 << 24;
+
+	private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[0]);
+
+
+	/**
+	 * Creates an encoder which applies this encoding followed by fast compression,
+	 * suitable for the compressed and disk-backed spectrum lists
+	 */
+	public static ScratchEncoder<Spectrum> compressed() {
+		return new CompoundEncoder<>(new SpectrumEncoder(), Compressors.lz4fast());
+	}
+
+
+	@Override
+	public byte[] encode(Spectrum spectrum) {
+		if (spectrum == null) return new byte[] {NULL};
+		int size = spectrum.size();
+
+		//worst case is 5 bytes per channel plus the header
+		byte[] buffer = scratch.get();
+		if (buffer.length < size * 5 + 6) {
+			buffer = new byte[size * 5 + 6];
+			scratch.set(buffer);
+		}
+
+		int position = 1;
+		position = SpectrumCoding.writeVarint(buffer, position, size);
+
+		int previous = 0;
+		for (int i = 0; i < size; i++) {
+			float value = spectrum.get(i);
+			if (value < -MAX_COUNT || value > MAX_COUNT || value != (int) value || (value == 0f && Float.floatToRawIntBits(value) != 0)) {
+				return SpectrumCoding.encodeFloats(spectrum);
+			}
+			int count = (int) value;
+			int delta = count - previous;
+			position = SpectrumCoding.writeVarint(buffer, position, (delta << 1) ^ (delta >> 31));
+			previous = count;
+		}
+
+		buffer[0] = SpectrumCoding.INTEGER;
+		return Arrays.copyOf(buffer, position);
+	}
+
+
+	@Override
+	public Spectrum decode(byte[] encoded) {
+		if (encoded[0] == NULL) return null;
+		Reader reader = new Reader(encoded);
+		int size = reader.varint();
+		float[] values = new float[size];
+
+		if (reader.tag() == SpectrumCoding.FLOAT) {
+			reader.floats(values, size);
+			return new ISpectrum(values, false);
+		}
+
+		int previous = 0;
+		for (int i = 0; i < size; i++) {
+			int zigzag = reader.varint();
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			values[i] = previous;
+		}
+		return new ISpectrum(values, false);
+	}
+
+}
@@ -1,11 +1,11 @@
 package peakaboo.datasource.model;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.logging.Level;
 
-import net.sciencestudio.scratch.encoders.CompoundEncoder;
-import net.sciencestudio.scratch.encoders.compressors.Compressors;
-import net.sciencestudio.scratch.encoders.serializers.Serializers;
 import net.sciencestudio.scratch.list.ScratchLists;
+import peakaboo.common.PeakabooLog;
 import scitypes.ISpectrum;
 import scitypes.Spectrum;
 
@@ -22,7 +22,10 @@ import scitypes.Spectrum;
  * modifications made to the first copy.
  * 
  * To create a new SpectrumList, call {@link SpectrumList#create(String)}.
- * If the SpectrumList cannot be created for whatever reason, a memory-based
+ * By default, this will create a {@link MappedSpectrumList}, which stores 
+ * spectra as raw float records in a memory-mapped file. If that cannot be 
+ * created, a compressed scratch list will be used instead, and if the 
+ * SpectrumList cannot be created for whatever reason, a memory-based
  * list will be created instead.
  * <br/><br/>
  * Note that this class depends on the specific implementation of Spectrum
@@ -34,10 +37,32 @@ import scitypes.Spectrum;
 public final class SpectrumList {
 
 	
-	@SuppressWarnings("unchecked")
 	public static List<Spectrum> create(String name)
 	{
-		return ScratchLists.tryDiskBacked(new CompoundEncoder<>(Serializers.fst(ISpectrum.class), Compressors.lz4fast()));
+		return create(name, true);
+	}
+	
+	/**
+	 * Creates a new disk-backed list of {@link Spectrum}s.
+	 * @param name the name of the dataset this list will store
+	 * @param memoryMapped true to store spectra as fixed-width records in a memory-mapped 
+	 * file, false to store them as individually serialized and compressed entries
+	 */
+	public static List<Spectrum> create(String name, boolean memoryMapped)
+	{
+		if (memoryMapped) {
+			try {
+				return new MappedSpectrumList(name);
+			} catch (IOException | RuntimeException e) {
+				PeakabooLog.get().log(Level.WARNING, "Could not create memory-mapped spectrum list, falling back to compressed storage", e);
+			}
+		}
+		return createCompressed();
+	}
+	
+	private static List<Spectrum> createCompressed()
+	{
+		return ScratchLists.tryDiskBacked(SpectrumEncoder.compressed());
 	}
 	
 }
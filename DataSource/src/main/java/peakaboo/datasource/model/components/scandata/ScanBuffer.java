@@ -0,0 +1,35 @@
+package peakaboo.datasource.model.components.scandata;
+
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * A reusable buffer for reading scans out of a {@link ScanData} through
+ * {@link ScanData#read(int, float[])}. Each read overwrites the previous one,
+ * so once the buffer has grown to the size of a scan, reading a dataset one
+ * scan at a time doesn't allocate. A ScanBuffer is not thread-safe; each
+ * thread should use its own.
+ */
+public class ScanBuffer {
+
+	private float[] values = new float[0];
+	private Spectrum view = new ISpectrum(values, false);
+	
+	/**
+	 * Reads the scan at the given index into this buffer.
+	 * @return a view of this buffer's contents, which is only valid until 
+	 * the next read, or null if there is no scan at the given index
+	 */
+	public ReadOnlySpectrum read(ScanData data, int index) {
+		int size = data.read(index, values);
+		if (size == -1) return null;
+		if (size != values.length) {
+			values = new float[size];
+			view = new ISpectrum(values, false);
+			data.read(index, values);
+		}
+		return view;
+	}
+	
+}
@@ -17,6 +17,71 @@ public interface ScanData extends Iterable<ReadOnlySpectrum>
 	 *            the scan number to retrieve
 	 */
 	ReadOnlySpectrum get(int index) throws IndexOutOfBoundsException;
+	
+	/**
+	 * Copies the values from the scan at the given index into the given buffer. 
+	 * Implementations should avoid allocating where their storage allows it.
+	 * If the buffer is shorter than the scan, only the channels which fit are
+	 * copied. 
+	 * <br/><br/>
+	 * The default implementation reads the scan through {@link #get(int)}, so 
+	 * it only avoids allocating when get does. That is the case for storage which 
+	 * keeps its spectra in the heap, but storage which decodes each scan on 
+	 * request, such as compressed or disk-backed storage, will still create a 
+	 * new spectrum for every call.
+	 * 
+	 * @param index the scan number to retrieve
+	 * @param target the buffer to copy the scan's values into
+	 * @return the number of channels in the scan, or -1 if there is no scan at this index
+	 */
+	default int read(int index, float[] target) throws IndexOutOfBoundsException {
+		ReadOnlySpectrum scan = get(index);
+		if (scan == null) return -1;
+		int size = Math.min(scan.size(), target.length);
+		for (int i = 0; i < size; i++) {
+			target[i] = scan.get(i);
+		}
+		return scan.size();
+	}
+	
+	/**
+	 * Copies the values from a range of scans into the given buffers.
+	 * 
+	 * @param start the first scan to read
+	 * @param end the scan after the last scan to read
+	 * @param targets one buffer per scan, where targets[0] receives scan start
+	 * @return the number of channels in each scan, or -1 for missing scans
+	 */
+	default int[] read(int start, int end, float[][] targets) throws IndexOutOfBoundsException {
+		int[] sizes = new int[end - start];
+		for (int i = start; i < end; i++) {
+			sizes[i - start] = read(i, targets[i - start]);
+		}
+		return sizes;
+	}
+	
+	/**
+	 * Passes each scan in the given range to the visitor in order. The scans
+	 * are read into a single reused buffer, so a full pass over a dataset does 
+	 * not need to allocate per scan. See {@link ScanVisitor} for the 
+	 * restrictions this places on visitors.
+	 * 
+	 * @param start the first scan to visit
+	 * @param end the scan after the last scan to visit
+	 */
+	default void visit(int start, int end, ScanVisitor visitor) {
+		ScanBuffer buffer = new ScanBuffer();
+		for (int i = start; i < end; i++) {
+			visitor.visit(i, buffer.read(this, i));
+		}
+	}
+	
+	/**
+	 * Passes every scan to the visitor in order. See {@link #visit(int, int, ScanVisitor)}
+	 */
+	default void visit(ScanVisitor visitor) {
+		visit(0, scanCount(), visitor);
+	}
 
 	
 	default Iterator<ReadOnlySpectrum> iterator() {
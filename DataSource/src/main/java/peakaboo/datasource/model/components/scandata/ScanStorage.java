@@ -0,0 +1,30 @@
+package peakaboo.datasource.model.components.scandata;
+
+/**
+ * Describes how the spectra in a {@link SimpleScanData} are stored, in order 
+ * of increasing tolerance for large datasets and decreasing access speed.
+ */
+public enum ScanStorage {
+
+	/**
+	 * Spectra are stored directly in the Java heap
+	 */
+	HEAP,
+	
+	/**
+	 * Spectra of integer counts are stored in the Java heap as variable-width 
+	 * integers, with runs of zeros collapsed. See {@link SimpleScanData#setIntegral(boolean)}
+	 */
+	PACKED,
+	
+	/**
+	 * Spectra are compressed and stored in the Java heap
+	 */
+	COMPRESSED,
+	
+	/**
+	 * Spectra are stored in a temporary file on disk
+	 */
+	DISK;
+	
+}
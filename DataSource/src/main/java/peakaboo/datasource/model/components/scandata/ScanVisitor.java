@@ -0,0 +1,20 @@
+package peakaboo.datasource.model.components.scandata;
+
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * Receives scans from {@link ScanData#visit(int, int, ScanVisitor)}. The
+ * {@link ReadOnlySpectrum} given to a visitor may be a view of a buffer which
+ * is reused for the next scan, so visitors must not hold on to it after
+ * returning. Visitors wishing to keep a scan should copy it.
+ */
+@FunctionalInterface
+public interface ScanVisitor {
+
+	/**
+	 * @param index the index of the scan in the {@link ScanData}
+	 * @param scan the scan, or null if there is no scan at this index
+	 */
+	void visit(int index, ReadOnlySpectrum scan);
+	
+}
@@ -1,39 +1,115 @@
 package peakaboo.datasource.model.components.scandata;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
 
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.CompressedSpectrumList;
+import peakaboo.datasource.model.MappedSpectrumList;
+import peakaboo.datasource.model.PackedSpectrumList;
 import peakaboo.datasource.model.SpectrumList;
-import peakaboo.datasource.model.components.scandata.loaderqueue.CompressedLoaderQueue;
+import peakaboo.datasource.model.components.scandata.loaderqueue.AdaptiveLoaderQueue;
 import peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
-import peakaboo.datasource.model.components.scandata.loaderqueue.SimpleLoaderQueue;
 import scitypes.ISpectrum;
 import scitypes.ReadOnlySpectrum;
 import scitypes.Spectrum;
 
+/**
+ * A {@link ScanData} which stores spectra in one of several kinds of {@link ScanStorage}.
+ * <br/><br/>
+ * Scans may be read from any thread while they are being written. Writes are 
+ * made while holding this object's lock, and every kind of storage is safe to 
+ * read while it is being written. Readers don't take this object's lock, only
+ * a read lock which is held exclusively while {@link #migrate(ScanStorage)} 
+ * swaps in the new storage.
+ */
 public class SimpleScanData implements ScanData {
 
 	
-	private List<Spectrum> spectra;
+	private volatile List<Spectrum> spectra;
+	private final ReadWriteLock storageLock = new ReentrantReadWriteLock();
+	private final Object migrationLock = new Object();
+	private volatile ScanStorage storage;
+	
+	//while a migration is copying spectra, the indexes written to in the meantime
+	private BitSet written;
 	private float maxEnergy;
 	private float minEnergy = 0;
 	private String name;
+	private int expectedScanCount = -1;
+	private boolean integral = false;
 	
 	public SimpleScanData(String name) {
 		this.name = name;
-		this.spectra = SpectrumList.create(name);		
+		this.spectra = SpectrumList.create(name);
+		this.storage = ScanStorage.DISK;
 	}
 		
 	public SimpleScanData(String name, List<Spectrum> backingList) {
 		this.name = name; 
 		this.spectra = backingList;
+		this.storage = null;
 	}
 
 	@Override
 	public ReadOnlySpectrum get(int index) throws IndexOutOfBoundsException {
-		return spectra.get(index); //return read-only
+		storageLock.readLock().lock();
+		try {
+			return spectra.get(index); //return read-only
+		} finally {
+			storageLock.readLock().unlock();
+		}
 	}
 	
-	public void add(Spectrum spectrum) {
+	@Override
+	public int read(int index, float[] target) throws IndexOutOfBoundsException {
+		storageLock.readLock().lock();
+		try {
+			List<Spectrum> spectra = this.spectra;
+			if (spectra instanceof MappedSpectrumList) {
+				//copies straight out of the mapped file
+				return ((MappedSpectrumList) spectra).read(index, target);
+			}
+			if (spectra instanceof PackedSpectrumList) {
+				//expands straight into the buffer
+				return ((PackedSpectrumList) spectra).read(index, target);
+			}
+			//heap storage returns its own spectra, so this doesn't allocate. Compressed 
+			//and scratch storage can only decode into a new spectrum, so they still do
+			return ScanData.super.read(index, target);
+		} finally {
+			storageLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void visit(int start, int end, ScanVisitor visitor) {
+		storageLock.readLock().lock();
+		try {
+			List<Spectrum> spectra = this.spectra;
+			if (spectra instanceof MappedSpectrumList || spectra instanceof PackedSpectrumList) {
+				ScanData.super.visit(start, end, visitor);
+				return;
+			}
+			//other lists either hold their spectra in the heap, where they can be 
+			//passed along as-is, or must decode a new spectrum for each read anyway
+			for (int i = start; i < end; i++) {
+				visitor.visit(i, spectra.get(i));
+			}
+		} finally {
+			storageLock.readLock().unlock();
+		}
+	}
+	
+	public synchronized void add(Spectrum spectrum) {
+		if (written != null) written.set(spectra.size());
 		spectra.add(spectrum);
 	}
 	
@@ -45,8 +121,35 @@ public class SimpleScanData implements ScanData {
 		add(new ISpectrum(spectrum));
 	}
 	
-	public void set(int index, Spectrum spectrum) {
-		spectra.set(index, spectrum);
+	public synchronized void set(int index, Spectrum spectrum) {
+		if (written != null) written.set(index);
+		store(spectra, index, spectrum);
+	}
+	
+	private static void store(List<Spectrum> spectra, int index, Spectrum spectrum) {
+		//not all backing lists will grow to accommodate an index past their end
+		while (spectra.size() < index) {
+			spectra.add(null);
+		}
+		if (index == spectra.size()) {
+			spectra.add(spectrum);
+		} else {
+			spectra.set(index, spectrum);
+		}
+	}
+	
+	/**
+	 * Adds the given spectra to the end of this dataset in a single write, so 
+	 * that no other spectra can be stored in between them
+	 * @return the index of the first of the new spectra
+	 */
+	public synchronized int append(List<Spectrum> newSpectra) {
+		int start = spectra.size();
+		if (written != null) written.set(start, start + newSpectra.size());
+		for (Spectrum spectrum : newSpectra) {
+			spectra.add(spectrum);
+		}
+		return start;
 	}
 	
 	/**
@@ -60,7 +163,12 @@ public class SimpleScanData implements ScanData {
 	
 	@Override
 	public int scanCount() {
-		return spectra.size();
+		storageLock.readLock().lock();
+		try {
+			return spectra.size();
+		} finally {
+			storageLock.readLock().unlock();
+		}
 	}
 
 	@Override
@@ -91,13 +199,134 @@ public class SimpleScanData implements ScanData {
 		return name;
 	}
 	
-	public LoaderQueue createLoaderQueue(int capacity) {
-		if (Runtime.getRuntime().maxMemory() < 512 << 20) {
-			return new CompressedLoaderQueue(this, capacity);
-		} else {
-			return new SimpleLoaderQueue(this, capacity);
+	/**
+	 * Returns the number of scans this dataset is expected to contain once 
+	 * it has been fully read, or -1 if this is not known.
+	 */
+	public int getExpectedScanCount() {
+		return expectedScanCount;
+	}
+	
+	/**
+	 * Records the number of scans this dataset is expected to contain once it has 
+	 * been fully read, as reported through 
+	 * {@link peakaboo.datasource.model.components.interaction.Interaction#notifyScanCount(int)}. 
+	 * This is used to decide how the scans should be stored.
+	 */
+	public void setExpectedScanCount(int expectedScanCount) {
+		this.expectedScanCount = expectedScanCount;
+	}
+	
+	/**
+	 * Indicates that the scans in this dataset are raw detector counts, made up 
+	 * only of non-negative whole numbers, and so can be held in {@link ScanStorage#PACKED} 
+	 * storage.
+	 */
+	public boolean isIntegral() {
+		return integral;
+	}
+	
+	/**
+	 * Declares whether the scans in this dataset are raw detector counts, made up 
+	 * only of non-negative whole numbers. DataSources which know this should say so, 
+	 * since it allows a dataset to be held in the heap in a more compact form. 
+	 * Scans which turn out not to be integral are still stored correctly, just 
+	 * less compactly.
+	 */
+	public void setIntegral(boolean integral) {
+		this.integral = integral;
+	}
+	
+	/**
+	 * Returns the kind of storage currently holding this dataset's spectra, or 
+	 * null if a custom backing list was provided.
+	 */
+	public ScanStorage getStorage() {
+		return storage;
+	}
+	
+	/**
+	 * Moves all spectra into a new backing list of the given kind. This is 
+	 * typically called by a {@link LoaderQueue} while the dataset is being read. 
+	 * <br/><br/>
+	 * The bulk of the copy is made without holding any lock, so neither readers 
+	 * nor writers wait on it. Spectra written during the copy are recorded, and 
+	 * copied again while writers are briefly held off for the swap.
+	 */
+	public void migrate(ScanStorage newStorage) {
+		synchronized (migrationLock) {
+			if (newStorage == storage) return;
+			
+			List<Spectrum> newSpectra;
+			switch (newStorage) {
+			case HEAP:
+				//the other lists are already safe to read while they are being written
+				newSpectra = Collections.synchronizedList(new ArrayList<>(Math.max(expectedScanCount, spectra.size())));
+				break;
+			case PACKED:
+				newSpectra = new PackedSpectrumList();
+				break;
+			case COMPRESSED:
+				newSpectra = new CompressedSpectrumList();
+				break;
+			case DISK:
+			default:
+				newSpectra = SpectrumList.create(name);
+				break;
+			}
+			
+			List<Spectrum> oldSpectra;
+			int copied;
+			synchronized (this) {
+				oldSpectra = spectra;
+				copied = oldSpectra.size();
+				written = new BitSet();
+			}
+			
+			//every kind of storage can be read while it is written, so the old list 
+			//is copied while readers and writers carry on using it
+			for (int i = 0; i < copied; i++) {
+				newSpectra.add(oldSpectra.get(i));
+			}
+			
+			synchronized (this) {
+				//bring over anything written since the copy began
+				for (int i = written.nextSetBit(0); i >= 0; i = written.nextSetBit(i+1)) {
+					if (i >= copied) break;
+					newSpectra.set(i, oldSpectra.get(i));
+				}
+				for (int i = copied; i < oldSpectra.size(); i++) {
+					store(newSpectra, i, oldSpectra.get(i));
+				}
+				written = null;
+				
+				storageLock.writeLock().lock();
+				try {
+					spectra = newSpectra;
+					storage = newStorage;
+				} finally {
+					storageLock.writeLock().unlock();
+				}
+			}
+			
+			//no reader can still be using the old list once the swap is made, and 
+			//disk-backed storage holds on to a file until it is released
+			release(oldSpectra);
 		}
 	}
+	
+	private static void release(List<Spectrum> list) {
+		if (!(list instanceof Closeable)) return;
+		try {
+			((Closeable) list).close();
+		} catch (IOException e) {
+			PeakabooLog.get().log(Level.WARNING, "Failed to release old scan storage", e);
+		}
+	}
+	
+	public LoaderQueue createLoaderQueue(int capacity) {
+		return new AdaptiveLoaderQueue(this, capacity);
+	}
 
 
 }
@@ -0,0 +1,231 @@
+package peakaboo.datasource.model.components.scandata.loaderqueue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.components.scandata.ScanStorage;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.Spectrum;
+
+/**
+ * A {@link LoaderQueue} which decides how the {@link SimpleScanData} it feeds
+ * should store its spectra. Once the number of channels per scan is known, it 
+ * estimates the size of the dataset from the number of scans (as reported through
+ * {@link peakaboo.datasource.model.components.interaction.Interaction#notifyScanCount(int)})
+ * and picks the fastest {@link ScanStorage} which fits comfortably in the available 
+ * heap. When the number of scans isn't known, the fastest storage which fits the 
+ * scans read so far is used, and the data is moved to a more compact kind of 
+ * storage as it outgrows that share of the heap. While loading, it also keeps 
+ * watching live heap usage and moves the data to a more compact kind of storage 
+ * if memory starts to run low.
+ * <br/><br/>
+ * Storage is only ever moved towards more compact forms while loading, to avoid
+ * repeatedly copying the dataset back and forth.
+ */
+public class AdaptiveLoaderQueue implements LoaderQueue {
+
+	//how many submissions between checks of heap usage
+	private static final int CHECK_INTERVAL = 256;
+
+	//fraction of the free heap a dataset may occupy
+	private static final float HEADROOM_FRACTION = 0.5f;
+
+	//fraction of the maximum heap in live use which triggers moving to more compact storage
+	private static final float PRESSURE_FRACTION = 0.8f;
+
+	//conservative estimate of how well spectra compress
+	private static final int COMPRESSION_RATIO = 3;
+
+	//conservative estimate of how much smaller integer counts are when packed
+	private static final int PACKING_RATIO = 3;
+
+	//approximate per-spectrum object overhead in the heap
+	private static final int SPECTRUM_OVERHEAD = 64;
+
+
+	private SimpleScanData data;
+	private LoaderQueue queue;
+	private AtomicInteger submitted = new AtomicInteger(0);
+	private volatile int channels = -1;
+	private boolean decided = false;
+
+	//the number of bytes of heap the dataset may occupy, fixed when storage is first decided
+	private long budget = -1;
+
+
+	public AdaptiveLoaderQueue(SimpleScanData data) {
+		this(data, 1000);
+	}
+
+	public AdaptiveLoaderQueue(SimpleScanData data, int capacity) {
+		this(data, capacity, -1);
+	}
+
+	/**
+	 * @param budget the number of bytes of heap the dataset may occupy, or -1 to 
+	 * base this on the heap available when storage is first decided
+	 */
+	AdaptiveLoaderQueue(SimpleScanData data, int capacity, long budget) {
+		this.data = data;
+		this.queue = new BatchingLoaderQueue(data, capacity);
+		this.budget = budget;
+	}
+
+
+	@Override
+	public void submit(Spectrum s) throws InterruptedException {
+		observe(s);
+		queue.submit(s);
+	}
+
+	@Override
+	public void submit(int index, Spectrum s) throws InterruptedException {
+		observe(s);
+		queue.submit(index, s);
+	}
+
+	@Override
+	public void abort() {
+		queue.abort();
+	}
+
+	@Override
+	public void finish() throws InterruptedException {
+		queue.finish();
+
+		int scans = data.scanCount();
+		PeakabooLog.get().info("Loaded " + scans + " scans of " + channels + " channels into " + data.getStorage() + " storage, "
+				+ "estimated footprint " + megabytes(footprint(data.getStorage(), scans)) + "MB, "
+				+ "live heap " + megabytes(liveHeapUsed()) + "MB of " + megabytes(Runtime.getRuntime().maxMemory()) + "MB");
+	}
+
+
+
+	private void observe(Spectrum s) {
+		if (channels == -1 && s != null) {
+			channels = s.size();
+		}
+		if (submitted.getAndIncrement() % CHECK_INTERVAL == 0) {
+			evaluate();
+		}
+	}
+
+	private synchronized void evaluate() {
+		ScanStorage current = data.getStorage();
+
+		//a custom backing list was provided, leave it alone
+		if (current == null) return;
+
+		if (channels <= 0) return;
+
+		long max = Runtime.getRuntime().maxMemory();
+		long used = liveHeapUsed();
+		ScanStorage target;
+
+		//without an expected count, size the dataset by the scans read so far
+		int expected = data.getExpectedScanCount();
+		int scans = Math.max(expected, submitted.get());
+
+		if (!decided) {
+
+			if (budget < 0) {
+				budget = (long)((max - used) * HEADROOM_FRACTION);
+			}
+			target = ScanStorage.HEAP;
+			while (target != ScanStorage.DISK && footprint(target, scans) >= budget) {
+				target = moreCompact(target);
+			}
+			decided = true;
+
+			PeakabooLog.get().info("Dataset of " + scans + (expected > 0 ? "" : " or more") + " scans of " + channels 
+					+ " channels estimated at " + megabytes(footprint(ScanStorage.HEAP, scans)) + "MB with " 
+					+ megabytes(budget) + "MB of heap to use, using " + target + " storage");
+
+		} else if (current == ScanStorage.DISK) {
+			
+			return;
+			
+		} else if (footprint(current, scans) >= budget) {
+			
+			//there are more scans than expected, or there was never an expected count
+			target = moreCompact(current);
+			
+			PeakabooLog.get().info("Dataset has grown to " + scans + " scans, estimated at " + megabytes(footprint(current, scans)) 
+					+ "MB of " + megabytes(budget) + "MB of heap to use, moving dataset from " + current + " to " + target + " storage");
+			
+		} else if (used >= max * PRESSURE_FRACTION) {
+
+			target = moreCompact(current);
+
+			PeakabooLog.get().info("Live heap usage at " + megabytes(used) + "MB of " + megabytes(max)
+					+ "MB while loading, moving dataset from " + current + " to " + target + " storage");
+
+		} else {
+			
+			return;
+			
+		}
+
+		data.migrate(target);
+
+	}
+
+	/**
+	 * Returns the next kind of storage to try when the given kind uses too much heap. 
+	 * Integral datasets are packed rather than compressed, since packed spectra are 
+	 * about as small and much faster to read.
+	 */
+	private ScanStorage moreCompact(ScanStorage storage) {
+		switch (storage) {
+		case HEAP: return data.isIntegral() ? ScanStorage.PACKED : ScanStorage.COMPRESSED;
+		case PACKED:
+		case COMPRESSED:
+		case DISK:
+		default: return ScanStorage.DISK;
+		}
+	}
+
+	/**
+	 * Estimates the number of bytes of heap a dataset of the given size will use with the given storage
+	 */
+	private long footprint(ScanStorage storage, int scans) {
+		if (storage == null || channels <= 0) return 0;
+		long raw = (long)scans * ((long)channels * 4 + SPECTRUM_OVERHEAD);
+		switch (storage) {
+		case HEAP: return raw;
+		case PACKED: return raw / PACKING_RATIO;
+		case COMPRESSED: return raw / COMPRESSION_RATIO;
+		case DISK:
+		default: return 0;
+		}
+	}
+
+	/**
+	 * Measures the heap in use as of the most recent garbage collection, so that
+	 * uncollected garbage doesn't look like memory pressure. Before the first
+	 * collection, this falls back to the total in-use heap.
+	 */
+	private static long liveHeapUsed() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP) continue;
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage == null) continue;
+			used += usage.getUsed();
+		}
+		if (used == 0) {
+			Runtime rt = Runtime.getRuntime();
+			used = rt.totalMemory() - rt.freeMemory();
+		}
+		return used;
+	}
+
+	private static long megabytes(long bytes) {
+		return bytes >> 20;
+	}
+
+}
@@ -0,0 +1,261 @@
+package peakaboo.datasource.model.components.scandata.loaderqueue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.Spectrum;
+
+/**
+ * A {@link LoaderQueue} backed by a preallocated ring buffer. Producers claim
+ * slots without locking and without allocating a wrapper per spectrum, and a
+ * single consumer thread drains the buffer in batches, writing each batch into
+ * the {@link SimpleScanData} in ascending index order while holding its lock
+ * only once per batch.
+ * <br/><br/>
+ * Each slot carries a sequence number which tells producers when the slot is
+ * free to be written, and the consumer when it has been published. When the 
+ * consumer finds nothing published, it sleeps until a producer publishes 
+ * something or the queue is finished or aborted, rather than polling.
+ */
+public class BatchingLoaderQueue implements LoaderQueue {
+
+	private static final int BATCH_SIZE = 256;
+	private static final long PARK_NANOS = 50_000;
+
+	private final SimpleScanData data;
+
+	private final int mask;
+	private final Spectrum[] spectra;
+	private final int[] indexes;
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong producerCursor = new AtomicLong(0);
+	//only read and written by the consumer thread
+	private long consumerCursor = 0;
+
+	private final Thread consumer;
+	private volatile boolean finished = false;
+	private volatile boolean aborted = false;
+
+	//true while the consumer is asleep, or about to go to sleep
+	private volatile boolean idle = false;
+
+	//the first exception thrown while writing spectra, reported by finish()
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+
+	public BatchingLoaderQueue(SimpleScanData data) {
+		this(data, 1024);
+	}
+
+	/**
+	 * @param data the {@link SimpleScanData} to store submitted spectra in
+	 * @param capacity the minimum number of spectra which can be waiting in the queue. This will be rounded up to a power of two.
+	 */
+	public BatchingLoaderQueue(SimpleScanData data, int capacity) {
+		this.data = data;
+
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.spectra = new Spectrum[size];
+		this.indexes = new int[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+
+		consumer = new Thread(this::consume, "LoaderQueue Consumer");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	@Override
+	public void submit(Spectrum s) throws InterruptedException {
+		submit(-1, s);
+	}
+
+	@Override
+	public void submit(int index, Spectrum s) throws InterruptedException {
+		if (finished) throw new IllegalStateException("LoaderQueue has already been finished");
+		if (aborted) throw new IllegalStateException("LoaderQueue has been aborted");
+
+		long position = producerCursor.getAndIncrement();
+		int slot = (int)(position & mask);
+
+		//wait for the consumer to free up this slot
+		while (sequences.get(slot) != position) {
+			if (Thread.interrupted()) throw new InterruptedException();
+			if (aborted) throw new IllegalStateException("LoaderQueue has been aborted");
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+
+		spectra[slot] = s;
+		indexes[slot] = index;
+		//a full write rather than a lazy one, so that it can't be reordered 
+		//after the check for a sleeping consumer below
+		sequences.set(slot, position + 1);
+
+		if (idle) {
+			LockSupport.unpark(consumer);
+		}
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws RuntimeException if any of the submitted spectra could not be stored
+	 */
+	@Override
+	public void finish() throws InterruptedException {
+		finished = true;
+		LockSupport.unpark(consumer);
+		consumer.join();
+
+		RuntimeException e = failure.get();
+		if (e != null) {
+			throw new RuntimeException("Failed to store loaded spectra", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Producers waiting for space in the ring give up with an 
+	 * {@link IllegalStateException}.
+	 */
+	@Override
+	public void abort() {
+		aborted = true;
+		LockSupport.unpark(consumer);
+	}
+
+
+	private void consume() {
+
+		Spectrum[] batchSpectra = new Spectrum[BATCH_SIZE];
+		int[] batchIndexes = new int[BATCH_SIZE];
+
+		while (!aborted) {
+
+			int count = drain(batchSpectra, batchIndexes);
+
+			if (count == 0) {
+				//only exit once the producers are done and everything they submitted has been written
+				if (finished && consumerCursor == producerCursor.get()) {
+					return;
+				}
+				idle = true;
+				try {
+					//check again now that producers can see the consumer is idle, 
+					//so that an entry published in between isn't slept through
+					if (!finished && !aborted && !published()) {
+						LockSupport.park(this);
+					}
+				} finally {
+					idle = false;
+				}
+				continue;
+			}
+
+			try {
+				write(batchSpectra, batchIndexes, count);
+			} catch (RuntimeException e) {
+				//keep draining so that producers don't block, and report the failure from finish()
+				failure.compareAndSet(null, e);
+				PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+			}
+
+			for (int i = 0; i < count; i++) {
+				batchSpectra[i] = null;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns true if the next entry in the ring has been published
+	 */
+	private boolean published() {
+		long position = consumerCursor;
+		return sequences.get((int)(position & mask)) == position + 1;
+	}
+
+	/**
+	 * Takes up to one batch of published entries and copies them out of the ring
+	 * @return the number of entries drained
+	 */
+	private int drain(Spectrum[] batchSpectra, int[] batchIndexes) {
+
+		long start = consumerCursor;
+
+		//copy out consecutive entries until one hasn't been published yet
+		int available = 0;
+		while (available < BATCH_SIZE) {
+			long position = start + available;
+			int slot = (int)(position & mask);
+			if (sequences.get(slot) != position + 1) break;
+			batchSpectra[available] = spectra[slot];
+			batchIndexes[available] = indexes[slot];
+			spectra[slot] = null;
+			//hand the slot back to the producers for the next lap around the ring
+			sequences.lazySet(slot, position + mask + 1);
+			available++;
+		}
+
+		consumerCursor = start + available;
+		return available;
+
+	}
+
+	/**
+	 * Stores a drained batch in the {@link SimpleScanData}, holding its lock 
+	 * once for the whole batch
+	 */
+	private void write(Spectrum[] batchSpectra, int[] batchIndexes, int count) {
+
+		//appended spectra must keep their submission order, but indexed ones 
+		//can be sorted so that they are written to the backing list sequentially
+		boolean indexed = true;
+		for (int i = 0; i < count; i++) {
+			if (batchIndexes[i] == -1) { indexed = false; break; }
+		}
+		if (indexed) {
+			sort(batchSpectra, batchIndexes, count);
+		}
+
+		synchronized (data) {
+			for (int i = 0; i < count; i++) {
+				if (batchIndexes[i] == -1) {
+					data.add(batchSpectra[i]);
+				} else {
+					data.set(batchIndexes[i], batchSpectra[i]);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Insertion sort by index. Batches are usually already close to sorted,
+	 * making this close to linear time.
+	 */
+	private static void sort(Spectrum[] batchSpectra, int[] batchIndexes, int count) {
+		for (int i = 1; i < count; i++) {
+			int index = batchIndexes[i];
+			Spectrum spectrum = batchSpectra[i];
+			int j = i - 1;
+			while (j >= 0 && batchIndexes[j] > index) {
+				batchIndexes[j+1] = batchIndexes[j];
+				batchSpectra[j+1] = batchSpectra[j];
+				j--;
+			}
+			batchIndexes[j+1] = index;
+			batchSpectra[j+1] = spectrum;
+		}
+	}
+
+}
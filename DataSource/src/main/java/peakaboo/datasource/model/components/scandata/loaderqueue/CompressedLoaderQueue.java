@@ -4,13 +4,10 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 
 import net.sciencestudio.scratch.ScratchEncoder;
-import net.sciencestudio.scratch.encoders.CompoundEncoder;
-import net.sciencestudio.scratch.encoders.compressors.Compressors;
-import net.sciencestudio.scratch.encoders.serializers.Serializers;
 import net.sciencestudio.scratch.single.Compressed;
 import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.SpectrumEncoder;
 import peakaboo.datasource.model.components.scandata.SimpleScanData;
-import scitypes.ISpectrum;
 import scitypes.Spectrum;
 
 public class CompressedLoaderQueue implements LoaderQueue {
@@ -22,13 +19,14 @@ public class CompressedLoaderQueue implements LoaderQueue {
 	
 	private LinkedBlockingQueue<SpectrumIndex> queue;
 	private Thread thread;
+	private volatile boolean aborted = false;
 	private ScratchEncoder<Spectrum> encoder;
 	
 	public CompressedLoaderQueue(SimpleScanData data) {
 		this(data, 1000);
 	}
 	public CompressedLoaderQueue(SimpleScanData data, int depth) {
-		this.encoder = new CompoundEncoder<>(Serializers.fst(ISpectrum.class), Compressors.lz4fast());
+		this.encoder = SpectrumEncoder.compressed();
 		
 		queue = new LinkedBlockingQueue<>(depth);
 		thread = new Thread(() -> {
@@ -45,7 +43,9 @@ public class CompressedLoaderQueue implements LoaderQueue {
 						return;
 					}
 				} catch (InterruptedException e) {
-					PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+					if (!aborted) {
+						PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+					}
 					Thread.currentThread().interrupt();
 					return;
 				}
@@ -74,6 +74,14 @@ public class CompressedLoaderQueue implements LoaderQueue {
 		thread.join();
 	}
 	
+	@Override
+	public void abort() {
+		aborted = true;
+		thread.interrupt();
+		//let go of anything still waiting to be stored
+		queue.clear();
+	}
+	
 }
 
 
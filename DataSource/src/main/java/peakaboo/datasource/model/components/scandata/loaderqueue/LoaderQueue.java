@@ -21,6 +21,14 @@ public interface LoaderQueue {
 	 * @throws InterruptedException
 	 */
 	void finish() throws InterruptedException;
+	
+	/**
+	 * Stops the processing thread without waiting for the remaining entries to be 
+	 * stored, for when reading has failed or been cancelled. This has no effect 
+	 * once {@link #finish()} has returned, so it can be called from a finally block 
+	 * wrapped around the whole of a read.
+	 */
+	void abort();
 
 }
 
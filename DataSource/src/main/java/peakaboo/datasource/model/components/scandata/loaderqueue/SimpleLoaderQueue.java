@@ -16,6 +16,7 @@ public class SimpleLoaderQueue implements LoaderQueue {
 	
 	private LinkedBlockingQueue<SpectrumIndex> queue;
 	private Thread thread;
+	private volatile boolean aborted = false;
 	public SimpleLoaderQueue(SimpleScanData data) {
 		this(data, 1000);
 	}
@@ -36,7 +37,9 @@ public class SimpleLoaderQueue implements LoaderQueue {
 						return;
 					}
 				} catch (InterruptedException e) {
-					PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+					if (!aborted) {
+						PeakabooLog.get().log(Level.SEVERE, "Exception while processing LoaderQueue Spectrum entries", e);
+					}
 					Thread.currentThread().interrupt();
 					return;
 				}
@@ -68,6 +71,14 @@ public class SimpleLoaderQueue implements LoaderQueue {
 			thread.join();
 		}
 	}
+	
+	@Override
+	public void abort() {
+		aborted = true;
+		thread.interrupt();
+		//let go of anything still waiting to be stored
+		queue.clear();
+	}
 }
 
 
@@ -14,11 +14,9 @@ import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
 import peakaboo.datasource.model.components.scandata.ScanData;
 import scitypes.Bounds;
 import scitypes.Coord;
-import scitypes.GridPerspective;
 import scitypes.Range;
 import scitypes.ReadOnlySpectrum;
 import scitypes.SISize;
-import scitypes.Spectrum;
 
 
 public class CroppedDataSource implements SubsetDataSource, DataSize, PhysicalSize, ScanData
@@ -29,6 +27,9 @@ public class CroppedDataSource implements SubsetDataSource, DataSize, PhysicalSi
 	private int							sizeX, sizeY;
 	private Range						rangeX, rangeY;
 	
+	//index of each point of the crop in the original data source
+	private int[]						originalIndexes;
+	
 	public CroppedDataSource(DataSource ds, int sizeX, int sizeY, Coord<Integer> cstart, Coord<Integer> cend)
 	{
 		
@@ -39,6 +40,14 @@ public class CroppedDataSource implements SubsetDataSource, DataSize, PhysicalSi
 		
 		this.rangeX = new Range(cstart.x, cend.x);
 		this.rangeY = new Range(cstart.y, cend.y);
+		
+		int width = rangeX.size();
+		originalIndexes = new int[scanCount()];
+		for (int index = 0; index < originalIndexes.length; index++) {
+			int x = index % width + rangeX.getStart();
+			int y = index / width + rangeY.getStart();
+			originalIndexes[index] = y * sizeX + x;
+		}
 				
 	}
 	
@@ -64,63 +73,48 @@ public class CroppedDataSource implements SubsetDataSource, DataSize, PhysicalSi
 
 	public ReadOnlySpectrum get(int index)
 	{
-		
-		
-		GridPerspective<Spectrum> grid = new GridPerspective<Spectrum>(rangeX.size(), rangeY.size(), null);
-		GridPerspective<Spectrum> origgrid = new GridPerspective<Spectrum>(sizeX, sizeY, null);
-		
-		int x = grid.getXYFromIndex(index).first;
-		int y = grid.getXYFromIndex(index).second;
-		
-		x += rangeX.getStart();
-		y += rangeY.getStart();
-				
-		int realIndex = origgrid.getIndexFromXY(x, y);
-				
-		return originalDataSource.getScanData().get(realIndex);
+		return originalDataSource.getScanData().get(originalIndexes[index]);
+	}
+	
+	@Override
+	public int read(int index, float[] target)
+	{
+		return originalDataSource.getScanData().read(originalIndexes[index], target);
 	}
 
 
 	@Override
 	public Coord<Integer> getDataCoordinatesAtIndex(int index)
 	{
-		GridPerspective<Spectrum> grid = new GridPerspective<Spectrum>(rangeX.size(), rangeY.size(), null);
-		int x = grid.getXYFromIndex(index).first;
-		int y = grid.getXYFromIndex(index).second;
-		return new Coord<Integer>(x, y);
+		int width = rangeX.size();
+		return new Coord<Integer>(index % width, index / width);
 	}
 	
 	
 
 	@Override
 	public int getOriginalIndex(int index) {
-		
-		
-		GridPerspective<Spectrum> grid = new GridPerspective<Spectrum>(rangeX.size(), rangeY.size(), null);
-		GridPerspective<Spectrum> origgrid = new GridPerspective<Spectrum>(sizeX, sizeY, null);
-		
-		int x = grid.getXYFromIndex(index).first;
-		int y = grid.getXYFromIndex(index).second;
-		
-		x += rangeX.getStart();
-		y += rangeY.getStart();
-		
-		return origgrid.getIndexFromXY(x, y);
+		return originalIndexes[index];
 	}
 	
 	
 	@Override
 	public int getUpdatedIndex(int originalIndex) {
-		GridPerspective<Spectrum> grid = new GridPerspective<Spectrum>(rangeX.size(), rangeY.size(), null);
-		GridPerspective<Spectrum> origgrid = new GridPerspective<Spectrum>(sizeX, sizeY, null);
-		
-		int x = origgrid.getXYFromIndex(originalIndex).first;
-		int y = origgrid.getXYFromIndex(originalIndex).second;
-		
-		x -= rangeX.getStart();
-		y -= rangeY.getStart();
-		
-		return grid.getIndexFromXY(x, y);
+		int x = originalIndex % sizeX - rangeX.getStart();
+		int y = originalIndex / sizeX - rangeY.getStart();
+		if (x < 0 || x >= rangeX.size() || y < 0 || y >= rangeY.size()) return -1;
+		return y * rangeX.size() + x;
+	}
+	
+	
+	@Override
+	public int[] getSequentialOrder() {
+		//rows of the crop are stored in the same order as rows of the original
+		int[] order = new int[originalIndexes.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		return order;
 	}
 	
 	
@@ -151,13 +145,13 @@ public class CroppedDataSource implements SubsetDataSource, DataSize, PhysicalSi
 	public Coord<Bounds<Number>> getPhysicalDimensions()
 	{		
 		
-		GridPerspective<Spectrum> grid = new GridPerspective<Spectrum>(rangeX.size(), rangeY.size(), null);
+		int width = rangeX.size();
 		Coord<Number> bottomLeft, bottomRight, topLeft;
 		
 		bottomLeft 	= getPhysicalCoordinatesAtIndex(0);
-		topLeft 	= getPhysicalCoordinatesAtIndex(grid.getIndexFromXY( 0, 				rangeY.size()-1	));
-		bottomRight = getPhysicalCoordinatesAtIndex(grid.getIndexFromXY( rangeX.size()-1, 	0				));
-		//topRight	= getRealCoordinatesAtIndex(grid.getIndexFromXY( rangeX.size()-1, 	rangeY.size()-1	));
+		topLeft 	= getPhysicalCoordinatesAtIndex((rangeY.size()-1) * width);
+		bottomRight = getPhysicalCoordinatesAtIndex(width-1);
+		//topRight	= getRealCoordinatesAtIndex((rangeY.size()-1) * width + width-1);
 				
 		Bounds<Number> bx = new Bounds<Number>(bottomLeft.x, bottomRight.x);
 		Bounds<Number> by = new Bounds<Number>(bottomLeft.y, topLeft.y);
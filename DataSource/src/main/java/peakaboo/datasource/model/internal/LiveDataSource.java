@@ -0,0 +1,316 @@
+package peakaboo.datasource.model.internal;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import commonenvironment.AlphaNumericComparitor;
+import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.model.MultiFileDataSource;
+import peakaboo.datasource.model.components.fileformat.FileFormatCompatibility;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
+import scitypes.Spectrum;
+
+/**
+ * Follows a directory which is still being written to during an acquisition. The
+ * scans already in the directory are read as usual by the wrapped {@link MultiFileDataSource},
+ * after which {@link #start()} watches the directory for new files. Each new file is
+ * read once its size has stopped changing, and its scan is appended to the end of the
+ * existing {@link SimpleScanData}. {@link Listener}s are then told which scans were added,
+ * so that they only have to process those scans. Listeners are notified through this
+ * LiveDataSource's notifier (see {@link #setNotifier(Executor)}), never while the scan
+ * data is locked.
+ */
+public class LiveDataSource extends DelegatingDataSource implements MultiFileDataSource {
+
+	/**
+	 * Notified through the LiveDataSource's notifier when new scans have been appended
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * @param start the index of the first new scan
+		 * @param end the index after the last new scan
+		 */
+		void scansAdded(int start, int end);
+	}
+
+
+	//how often the directory is checked for files which have finished being written
+	private static final long SETTLE_INTERVAL = 500;
+
+	private MultiFileDataSource format;
+	private Path directory;
+	private SimpleScanData scandata;
+
+	private Set<Path> known = Collections.synchronizedSet(new HashSet<>());
+	private List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private volatile Executor notifier = Runnable::run;
+
+	private WatchService watcher;
+	private Thread thread;
+
+
+	public LiveDataSource(MultiFileDataSource format, Path directory) {
+		super(format);
+		this.format = format;
+		this.directory = directory;
+	}
+
+
+	/**
+	 * Lists the files currently in the watched directory which the wrapped
+	 * format can read, in alphanumeric order
+	 */
+	public List<Path> listScans() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				if (accepts(path)) paths.add(path);
+			}
+		}
+		sort(paths);
+		return paths;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets how {@link Listener}s are notified of new scans. A UI should give an 
+	 * {@link Executor} which runs tasks on its own thread, so that every listener 
+	 * is notified there. By default, listeners are notified on the thread 
+	 * watching the directory.
+	 */
+	public void setNotifier(Executor notifier) {
+		this.notifier = notifier;
+	}
+
+
+
+	//==============================================
+	// READING EXISTING SCANS
+	//==============================================
+
+	@Override
+	public void read(List<Path> files) throws Exception {
+		prepareRead(files);
+		getInteraction().notifyScanCount(files.size());
+		LoaderQueue queue = scandata.createLoaderQueue(100);
+		try {
+			int index = 0;
+			for (Path file : files) {
+				if (getInteraction().checkReadAborted()) break;
+				Spectrum scan = readScan(file);
+				if (scan != null) queue.submit(index++, scan);
+				getInteraction().notifyScanRead(1);
+			}
+			queue.finish();
+		} finally {
+			queue.abort();
+			finishRead();
+		}
+	}
+
+	@Override
+	public boolean isOneScanPerFile(List<Path> paths) throws Exception {
+		return format.isOneScanPerFile(paths);
+	}
+
+	@Override
+	public SimpleScanData prepareRead(List<Path> paths) throws Exception {
+		scandata = format.prepareRead(paths);
+		known.addAll(paths);
+		return scandata;
+	}
+
+	@Override
+	public Spectrum readScan(Path path) throws Exception {
+		return format.readScan(path);
+	}
+
+	@Override
+	public void finishRead() throws Exception {
+		format.finishRead();
+	}
+
+
+
+	//==============================================
+	// FOLLOWING NEW SCANS
+	//==============================================
+
+	/**
+	 * Starts watching the directory for new scans. This should only be called
+	 * after the scans already in the directory have been read.
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) return;
+		watcher = directory.getFileSystem().newWatchService();
+		directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		thread = new Thread(this::follow, "Live Dataset " + directory.getFileName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the directory. Scans which have already been appended are kept.
+	 */
+	public synchronized void stop() {
+		if (thread == null) return;
+		thread.interrupt();
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			PeakabooLog.get().log(Level.WARNING, "Failed to stop watching " + directory, e);
+		}
+		thread = null;
+	}
+
+	public synchronized boolean isRunning() {
+		return thread != null;
+	}
+
+
+	private void follow() {
+
+		//candidate files, and their size when last checked
+		Map<Path, Long> pending = new LinkedHashMap<>();
+
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+
+				WatchKey key = watcher.poll(SETTLE_INTERVAL, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							//events were lost, so look for anything we've missed
+							for (Path path : listScans()) {
+								if (!known.contains(path)) pending.putIfAbsent(path, -1l);
+							}
+							continue;
+						}
+						Path path = directory.resolve((Path) event.context());
+						if (!known.contains(path)) pending.putIfAbsent(path, -1l);
+					}
+					key.reset();
+				}
+
+				List<Path> complete = settled(pending);
+				if (!complete.isEmpty()) {
+					append(complete);
+				}
+
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			//stopped
+		} catch (IOException | RuntimeException e) {
+			PeakabooLog.get().log(Level.WARNING, "Stopped following live dataset in " + directory, e);
+		}
+
+	}
+
+	/**
+	 * Removes and returns the pending files which are readable by this format and
+	 * whose size has not changed since the last check
+	 */
+	private List<Path> settled(Map<Path, Long> pending) {
+		List<Path> complete = new ArrayList<>();
+		Iterator<Map.Entry<Path, Long>> entries = pending.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Path, Long> entry = entries.next();
+			Path path = entry.getKey();
+			long size;
+			try {
+				size = Files.size(path);
+			} catch (IOException e) {
+				//deleted or renamed before we got to it
+				entries.remove();
+				continue;
+			}
+			if (size > 0 && size == entry.getValue()) {
+				entries.remove();
+				if (accepts(path)) complete.add(path);
+			} else {
+				entry.setValue(size);
+			}
+		}
+		sort(complete);
+		return complete;
+	}
+
+	/**
+	 * Reads the given files and appends their scans to the end of the dataset
+	 */
+	private void append(List<Path> files) {
+		List<Spectrum> scans = new ArrayList<>();
+		for (Path file : files) {
+			known.add(file);
+			try {
+				Spectrum scan = readScan(file);
+				if (scan != null) scans.add(scan);
+			} catch (Exception e) {
+				PeakabooLog.get().log(Level.WARNING, "Could not read live scan " + file, e);
+			}
+		}
+		if (scans.isEmpty()) return;
+
+		//stored in one write rather than through a LoaderQueue, so that all of 
+		//the new scans are in place before listeners are told about them
+		int start = scandata.append(scans);
+		int end = start + scans.size();
+
+		//the scan data's lock has been released, so listeners are free to read the new scans
+		notifier.execute(() -> {
+			for (Listener listener : listeners) {
+				listener.scansAdded(start, end);
+			}
+		});
+	}
+
+
+	private boolean accepts(Path path) {
+		if (!Files.isRegularFile(path)) return false;
+		try {
+			return format.getFileFormat().compatibility(Collections.singletonList(path)) != FileFormatCompatibility.NO;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static void sort(List<Path> paths) {
+		Comparator<String> comparitor = new AlphaNumericComparitor();
+		paths.sort((a, b) -> comparitor.compare(a.toString(), b.toString()));
+	}
+
+}
@@ -1,6 +1,7 @@
 package peakaboo.datasource.model.internal;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,11 +23,24 @@ import scitypes.ReadOnlySpectrum;
 public class SelectionDataSource implements SubsetDataSource, ScanData {
 
 	private DataSource source;
-	private List<Integer> selectedIndexes;
+	
+	//index of each selected point in the original data source
+	private int[] selectedIndexes;
+	
+	//(original index, selection index) pairs sorted by original index, packed into 
+	//longs, for reverse lookups and for reading the original sequentially
+	private long[] sortedIndexes;
 	
 	public SelectionDataSource(DataSource source, List<Integer> selectedIndexes) {
 		this.source = source;
-		this.selectedIndexes = selectedIndexes;
+		this.selectedIndexes = new int[selectedIndexes.size()];
+		this.sortedIndexes = new long[selectedIndexes.size()];
+		for (int i = 0; i < this.selectedIndexes.length; i++) {
+			int original = selectedIndexes.get(i);
+			this.selectedIndexes[i] = original;
+			this.sortedIndexes[i] = ((long)original << 32) | i;
+		}
+		Arrays.sort(sortedIndexes);
 	}
 	
 	public boolean isContiguous() {
@@ -37,10 +51,15 @@ public class SelectionDataSource implements SubsetDataSource, ScanData {
 	public ReadOnlySpectrum get(int index) throws IndexOutOfBoundsException {
 		return source.getScanData().get(getOriginalIndex(index));
 	}
+	
+	@Override
+	public int read(int index, float[] target) throws IndexOutOfBoundsException {
+		return source.getScanData().read(getOriginalIndex(index), target);
+	}
 
 	@Override
 	public int scanCount() {
-		return selectedIndexes.size();
+		return selectedIndexes.length;
 	}
 
 	@Override
@@ -108,12 +127,25 @@ public class SelectionDataSource implements SubsetDataSource, ScanData {
 	
 	@Override
 	public int getOriginalIndex(int index) {
-		return selectedIndexes.get(index);
+		return selectedIndexes[index];
 	}
 
 	@Override
 	public int getUpdatedIndex(int originalIndex) {
-		return selectedIndexes.indexOf(originalIndex);
+		//first entry for this original index, if any
+		int position = Arrays.binarySearch(sortedIndexes, (long)originalIndex << 32);
+		if (position < 0) position = -position - 1;
+		if (position == sortedIndexes.length || (int)(sortedIndexes[position] >>> 32) != originalIndex) return -1;
+		return (int) sortedIndexes[position];
+	}
+	
+	@Override
+	public int[] getSequentialOrder() {
+		int[] order = new int[sortedIndexes.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = (int) sortedIndexes[i];
+		}
+		return order;
 	}
 
 	@Override
@@ -22,4 +22,14 @@ public interface SubsetDataSource extends DataSource {
 	 * @return updated index, or -1 if the index does not appear in the subset data source
 	 */
 	int getUpdatedIndex(int originalIndex);
+	
+	
+	/**
+	 * Returns every index in this subset data source, ordered so that the points they refer 
+	 * to are read from the original data source in ascending order. When the order in which 
+	 * points are processed doesn't matter, following this order lets a disk-backed original 
+	 * data source be read in sequential blocks rather than jumping back and forth.
+	 */
+	int[] getSequentialOrder();
+	
 }
@@ -2,43 +2,189 @@ package peakaboo.datasource.plugin;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 import peakaboo.common.PeakabooLog;
 import peakaboo.datasource.model.DataSource;
 import peakaboo.datasource.model.components.fileformat.FileFormatCompatibility;
 
+/**
+ * Determines which {@link DataSourcePlugin}s can open a set of files. Plugins are probed
+ * concurrently, and any plugin which takes longer than {@link #PROBE_BUDGET} to decide is
+ * passed over. When many files are given, only a sample of them is shown to the plugins.
+ * The plugins chosen for a directory and set of file extensions are remembered, so that
+ * re-opening a dataset, or opening another one beside it, skips detection entirely.
+ */
 public class DataSourceLookup
 {
 
+	//how long a plugin may spend examining the files, in milliseconds
+	private static final long PROBE_BUDGET = 2000;
+
+	//how many files are examined when a large set of files is given
+	private static final int SAMPLE_SIZE = 10;
+
+	private static final int CACHE_SIZE = 64;
+
+	private static final ExecutorService pool = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "Data Source Lookup");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//plugin UUIDs chosen for a directory and extension pattern, least recently used first
+	private static final Map<String, List<String>> cache = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+
 	public static List<DataSource> findDataSourcesForFiles(List<Path> paths, List<DataSourcePlugin> dsps)
-	{	
-		
+	{
+
+		String key = key(paths, dsps);
+		List<DataSource> cached = cached(key, dsps);
+		if (cached != null) { return cached; }
+
 		List<DataSource> maybe_by_filename = new ArrayList<DataSource>();
 		List<DataSource> maybe_by_contents = new ArrayList<DataSource>();
 		List<DataSource> yes_by_contents = new ArrayList<DataSource>();
-		
 
+		List<Path> sample = sample(paths);
+		List<Future<FileFormatCompatibility>> probes = new ArrayList<>();
 		for (DataSource datasource : dsps)
 		{
+			probes.add(pool.submit(() -> datasource.getFileFormat().compatibility(new ArrayList<>(sample))));
+		}
+
+		boolean complete = true;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROBE_BUDGET);
+		for (int i = 0; i < dsps.size(); i++)
+		{
+			DataSource datasource = dsps.get(i);
+			Future<FileFormatCompatibility> probe = probes.get(i);
 			try {
-				FileFormatCompatibility compat = datasource.getFileFormat().compatibility(new ArrayList<>(paths));
+				FileFormatCompatibility compat = probe.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
 				if ( compat == FileFormatCompatibility.NO ) continue;
 				if ( compat == FileFormatCompatibility.MAYBE_BY_FILENAME) { maybe_by_filename.add(datasource); }
 				if ( compat == FileFormatCompatibility.MAYBE_BY_CONTENTS) { maybe_by_contents.add(datasource); }
 				if ( compat == FileFormatCompatibility.YES_BY_CONTENTS) { yes_by_contents.add(datasource); }
-			} 
-			catch (Throwable e) {
-				PeakabooLog.get().log(Level.SEVERE, "Error while evaluating data sources", e);
-			} 
-		}
-			
-		
-		if (yes_by_contents.size() > 0) { return yes_by_contents; }
-		if (maybe_by_contents.size() > 0) { return maybe_by_contents; }
-		return maybe_by_filename;
-		
+			}
+			catch (TimeoutException e) {
+				probe.cancel(true);
+				complete = false;
+				PeakabooLog.get().log(Level.WARNING, "Data source " + datasource.getFileFormat().getFormatName() + " took too long to examine the files, skipping it");
+			}
+			catch (InterruptedException e) {
+				probes.forEach(p -> p.cancel(true));
+				Thread.currentThread().interrupt();
+				return new ArrayList<>();
+			}
+			catch (ExecutionException e) {
+				PeakabooLog.get().log(Level.SEVERE, "Error while evaluating data sources", e.getCause());
+			}
+		}
+
+		List<DataSource> found;
+		if (yes_by_contents.size() > 0) { found = yes_by_contents; }
+		else if (maybe_by_contents.size() > 0) { found = maybe_by_contents; }
+		else { found = maybe_by_filename; }
+
+		//a plugin that ran out of time might have been the right one, so don't remember this answer
+		if (complete && !found.isEmpty()) { remember(key, found); }
+		return found;
+
+	}
+
+
+	/**
+	 * Picks an evenly spaced sample of the given paths, always including the first
+	 * and last, so that plugins which read file contents don't read every file.
+	 */
+	private static List<Path> sample(List<Path> paths)
+	{
+		if (paths.size() <= SAMPLE_SIZE) { return paths; }
+		List<Path> sample = new ArrayList<>();
+		for (int i = 0; i < SAMPLE_SIZE; i++)
+		{
+			sample.add(paths.get((int) ((long) i * (paths.size() - 1) / (SAMPLE_SIZE - 1))));
+		}
+		return sample;
+	}
+
+	/**
+	 * Describes a set of paths by their directory, their extensions and whether there
+	 * is more than one of them, along with the plugins being considered. Single-file
+	 * formats reject multiple files, so one file and many files are cached separately.
+	 */
+	private static String key(List<Path> paths, List<DataSourcePlugin> dsps)
+	{
+		if (paths.isEmpty()) { return null; }
+		Path directory = paths.get(0).toAbsolutePath().getParent();
+		TreeSet<String> extensions = new TreeSet<>();
+		for (Path path : paths)
+		{
+			Path parent = path.toAbsolutePath().getParent();
+			if (parent == null ? directory != null : !parent.equals(directory)) { return null; }
+			String name = path.getFileName().toString().toLowerCase();
+			int dot = name.lastIndexOf('.');
+			extensions.add(dot < 0 ? "" : name.substring(dot + 1));
+		}
+
+		TreeSet<String> uuids = new TreeSet<>();
+		for (DataSourcePlugin dsp : dsps)
+		{
+			uuids.add(dsp.pluginUUID());
+		}
+
+		return directory + "|" + (paths.size() > 1 ? "many" : "one") + "|" + extensions + "|" + uuids;
+	}
+
+	private static List<DataSource> cached(String key, List<DataSourcePlugin> dsps)
+	{
+		if (key == null) { return null; }
+		List<String> uuids;
+		synchronized (cache) {
+			uuids = cache.get(key);
+		}
+		if (uuids == null) { return null; }
+
+		List<DataSource> found = new ArrayList<>();
+		for (String uuid : uuids)
+		{
+			for (DataSourcePlugin dsp : dsps)
+			{
+				if (dsp.pluginUUID().equals(uuid)) { found.add(dsp); break; }
+			}
+		}
+		return found.size() == uuids.size() ? found : null;
+	}
+
+	private static void remember(String key, List<DataSource> found)
+	{
+		if (key == null) { return; }
+		List<String> uuids = new ArrayList<>();
+		for (DataSource ds : found)
+		{
+			if (!(ds instanceof DataSourcePlugin)) { return; }
+			uuids.add(((DataSourcePlugin) ds).pluginUUID());
+		}
+		synchronized (cache) {
+			cache.put(key, Collections.unmodifiableList(uuids));
+		}
 	}
 
 }
@@ -13,6 +13,7 @@ import net.sciencestudio.bolt.plugin.java.ClassInstantiationException;
 import net.sciencestudio.bolt.scripting.plugin.IBoltScriptPluginLoader;
 import peakaboo.common.Configuration;
 import peakaboo.common.PeakabooLog;
+import peakaboo.datasource.plugin.plugins.PeakabooBinary;
 import peakaboo.datasource.plugin.plugins.PlainText;
 
 public class DataSourcePluginManager extends BoltPluginManager<DataSourcePlugin>
@@ -34,6 +35,7 @@ public class DataSourcePluginManager extends BoltPluginManager<DataSourcePlugin>
 					
 			//register built-in plugins
 			javaLoader.registerPlugin(PlainText.class);
+			javaLoader.registerPlugin(PeakabooBinary.class);
 
 			//Log info for plugins
 			for (BoltPluginController<? extends DataSourcePlugin> plugin : getPlugins().getAll()) {
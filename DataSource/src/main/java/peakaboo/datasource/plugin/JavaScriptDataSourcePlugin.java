@@ -1,5 +1,6 @@
 package peakaboo.datasource.plugin;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.nio.file.Files;
@@ -22,6 +23,7 @@ import peakaboo.datasource.model.components.metadata.Metadata;
 import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
 import peakaboo.datasource.model.components.scandata.ScanData;
 import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import peakaboo.datasource.model.components.scandata.loaderqueue.LoaderQueue;
 import scitypes.ISpectrum;
 import scitypes.util.StringInput;
 
@@ -72,15 +74,16 @@ public class JavaScriptDataSourcePlugin implements DataSourcePlugin, BoltScriptP
 	@Override
 	public FileFormat getFileFormat() {
 		String ext = lookup("formatExtension", null);
+		boolean singleFile = !lookup("formatMultipleFiles", false);
 		if (ext == null) {
 			return new SimpleFileFormat(
-					true, 
+					singleFile, 
 					lookup("formatName", "Unknown JavaScript Data Source"), 
 					lookup("formatDesc", "Unknown JavaScript Data Source")
 			);
 		} else {
 			return new SimpleFileFormat(
-					true, 
+					singleFile, 
 					lookup("formatName", "Unknown JavaScript Data Source"), 
 					lookup("formatDesc", "Unknown JavaScript Data Source"), 
 					ext
@@ -95,27 +98,124 @@ public class JavaScriptDataSourcePlugin implements DataSourcePlugin, BoltScriptP
 	}
 
 
-	public void read(Path file) throws Exception {
-		scanData = new SimpleScanData(file.getFileName().toString());
+	/**
+	 * Reads the given files in order, appending the scans from each to the
+	 * same dataset. If the script defines a <tt>readStream(reader, sink, filename)</tt>
+	 * function, it is given a {@link BufferedReader} for each file and emits
+	 * scans to a {@link ScanSink} as it goes, so only the script's own working
+	 * state needs to be held in memory. Otherwise the script's <tt>read(contents)</tt>
+	 * function is given the whole of each file as a String, and returns a list of
+	 * scans.
+	 */
+	@Override
+	public void read(List<Path> files) throws Exception {
+		scanData = new SimpleScanData(files.get(0).getFileName().toString());
+		ScanSink sink = new ScanSink(scanData, interaction);
+		boolean streaming = js.get("readStream") != null;
 		
+		try {
+			for (Path file : files) {
+				if (interaction.checkReadAborted()) break;
+				if (streaming) {
+					try (BufferedReader reader = Files.newBufferedReader(file)) {
+						js.call("readStream", reader, sink, file.getFileName().toString());
+					}
+				} else {
+					readContents(file, sink);
+				}
+			}
+			sink.finish();
+		} finally {
+			sink.abort();
+		}
 		
+	}
+
+	private void readContents(Path file, ScanSink sink) throws Exception {
 		String contents = StringInput.contents(Files.newBufferedReader(file));
 		List<List<Double>> result = (List<List<Double>>) js.call("read", contents);
 		
 		for (List<Double> scan : result) {
-			ISpectrum spectrum = new ISpectrum(scan.size());
+			float[] spectrum = new float[scan.size()];
+			int i = 0;
 			for (Double entry : scan) {
-				spectrum.add(entry.floatValue());
+				spectrum[i++] = entry.floatValue();
 			}
-			scanData.add(spectrum);
+			if (!sink.scan(spectrum)) break;
 		}
-		
 	}
-
-	@Override
-	public void read(List<Path> files) throws Exception {
-		read(files.get(0));
+	
+	
+	/**
+	 * Given to a script's <tt>readStream</tt> function to receive scans as they
+	 * are read. Scans are stored through a {@link LoaderQueue}, so the dataset
+	 * can use whatever storage suits its size.
+	 */
+	public static class ScanSink {
+		
+		private SimpleScanData scanData;
+		private Interaction interaction;
+		private LoaderQueue queue;
+		private int index = 0;
+		private int unreported = 0;
+		private int expected = 0;
+		
+		ScanSink(SimpleScanData scanData, Interaction interaction) {
+			this.scanData = scanData;
+			this.interaction = interaction;
+		}
+		
+		/**
+		 * Tells Peakaboo how many scans to expect from the file being read, if the 
+		 * script knows. This should be called before the file's first scan is emitted. 
+		 * When several files are read, the counts given for each are added together.
+		 */
+		public void expectScans(int count) {
+			expected += count;
+			scanData.setExpectedScanCount(expected);
+			interaction.notifyScanCount(expected);
+		}
+		
+		/**
+		 * Adds a scan to the end of the dataset. The given array is kept, 
+		 * so it should not be reused by the script.
+		 * @return false if the user has cancelled loading and the script should stop reading
+		 */
+		public boolean scan(float[] values) throws InterruptedException {
+			if (queue == null) {
+				queue = scanData.createLoaderQueue(1000);
+			}
+			queue.submit(index++, new ISpectrum(values, false));
+			if (++unreported == 100) {
+				interaction.notifyScanRead(unreported);
+				unreported = 0;
+			}
+			return !interaction.checkReadAborted();
+		}
+		
+		void finish() throws InterruptedException {
+			if (unreported > 0) {
+				interaction.notifyScanRead(unreported);
+				unreported = 0;
+			}
+			if (queue != null) {
+				queue.finish();
+				queue = null;
+			}
+		}
+		
+		/**
+		 * Stops storing scans if reading failed before {@link #finish()} was called
+		 */
+		void abort() {
+			if (queue != null) {
+				queue.abort();
+				queue = null;
+			}
+		}
+		
 	}
+	
 
 	@Override
 	public String pluginVersion() {
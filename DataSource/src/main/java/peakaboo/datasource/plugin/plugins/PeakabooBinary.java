@@ -0,0 +1,376 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import net.sciencestudio.autodialog.model.Group;
+import peakaboo.datasource.model.components.datasize.DataSize;
+import peakaboo.datasource.model.components.fileformat.FileFormat;
+import peakaboo.datasource.model.components.fileformat.FileFormatCompatibility;
+import peakaboo.datasource.model.components.fileformat.SimpleFileFormat;
+import peakaboo.datasource.model.components.metadata.Metadata;
+import peakaboo.datasource.model.components.metadata.SimpleMetadata;
+import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
+import peakaboo.datasource.model.components.scandata.ScanData;
+import peakaboo.datasource.plugin.AbstractDataSource;
+import scitypes.Bounds;
+import scitypes.Coord;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.SISize;
+
+/**
+ * Reads datasets written in the {@link PeakabooBinaryFormat}. Opening a dataset
+ * only reads the header and scan index; the scans themselves are memory-mapped
+ * and read directly out of the file on request.
+ */
+public class PeakabooBinary extends AbstractDataSource implements ScanData, DataSize, PhysicalSize
+{
+
+	//Individual mappings are limited to 2GB, so the file is mapped in segments
+	private static final long SEGMENT_SIZE = 1 << 30;
+
+	private List<MappedByteBuffer> segments;
+
+	//per-scan index
+	private int[] segmentIndex;
+	private int[] segmentOffset;
+	private int[] lengths;
+	private int[] channels;
+
+	private boolean compressed;
+	private String name;
+	private float minEnergy, maxEnergy;
+	private int scanCount;
+
+	private Coord<Integer> dataDimensions;
+	private int[] dataCoordinates;
+
+	private SISize physicalUnit;
+	private Coord<Bounds<Number>> physicalDimensions;
+	private double[] physicalCoordinates;
+
+	private SimpleMetadata metadata;
+
+
+	//==============================================
+	// PLUGIN METHODS
+	//==============================================
+
+	@Override
+	public String pluginName() {
+		return "Peakaboo Binary DataSource Plugin";
+	}
+
+	@Override
+	public String pluginDescription() {
+		return "Loads XRF data from Peakaboo's native binary dataset format.";
+	}
+
+	@Override
+	public String pluginVersion() {
+		return "1.0";
+	}
+
+	@Override
+	public String pluginUUID() {
+		return "5c3b0f5e-8d7e-4f43-9a4e-2d1b6f0c9a17";
+	}
+
+
+
+	//==============================================
+	// DATASOURCE METHODS
+	//==============================================
+
+	@Override
+	public void read(List<Path> files) throws Exception
+	{
+		if (files == null) throw new UnsupportedOperationException();
+		if (files.size() != 1) throw new UnsupportedOperationException();
+
+		//mappings remain valid after the channel which created them is closed, 
+		//so the file doesn't need to stay open once everything is mapped
+		try (FileChannel channel = FileChannel.open(files.get(0), StandardOpenOption.READ)) {
+			
+			//preamble
+			ByteBuffer preamble = map(channel, 0, PeakabooBinaryFormat.PREAMBLE_SIZE);
+			if (preamble.getInt() != PeakabooBinaryFormat.MAGIC) {
+				throw new Exception("Not a Peakaboo Binary dataset");
+			}
+			int version = preamble.getInt();
+			if (version > PeakabooBinaryFormat.VERSION) {
+				throw new Exception("Unsupported Peakaboo Binary dataset version " + version);
+			}
+			long indexPosition = preamble.getLong();
+			int headerLength = preamble.getInt();
+	
+			readHeader(map(channel, PeakabooBinaryFormat.PREAMBLE_SIZE, headerLength));
+			getInteraction().notifyScanCount(scanCount);
+	
+			readIndex(channel, map(channel, indexPosition, (long)scanCount * PeakabooBinaryFormat.INDEX_ENTRY_SIZE));
+			getInteraction().notifyScanRead(scanCount);
+			
+		}
+
+	}
+
+	private void readHeader(ByteBuffer buffer) throws Exception {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		compressed = in.readByte() == PeakabooBinaryFormat.COMPRESSION_DEFLATE;
+		name = PeakabooBinaryFormat.readString(in);
+		minEnergy = in.readFloat();
+		maxEnergy = in.readFloat();
+		scanCount = in.readInt();
+
+		if (in.readBoolean()) {
+			dataDimensions = new Coord<>(in.readInt(), in.readInt());
+			dataCoordinates = new int[scanCount * 2];
+			for (int i = 0; i < scanCount * 2; i++) {
+				dataCoordinates[i] = in.readInt();
+			}
+		}
+
+		if (in.readBoolean()) {
+			physicalUnit = SISize.valueOf(in.readUTF());
+			Bounds<Number> x = new Bounds<>(in.readDouble(), in.readDouble());
+			Bounds<Number> y = new Bounds<>(in.readDouble(), in.readDouble());
+			physicalDimensions = new Coord<>(x, y);
+			physicalCoordinates = new double[scanCount * 2];
+			for (int i = 0; i < scanCount * 2; i++) {
+				physicalCoordinates[i] = in.readDouble();
+			}
+		}
+
+		if (in.readBoolean()) {
+			metadata = new SimpleMetadata();
+			metadata.creationTime = PeakabooBinaryFormat.readString(in);
+			metadata.creator = PeakabooBinaryFormat.readString(in);
+			metadata.projectName = PeakabooBinaryFormat.readString(in);
+			metadata.sessionName = PeakabooBinaryFormat.readString(in);
+			metadata.facilityName = PeakabooBinaryFormat.readString(in);
+			metadata.laboratoryName = PeakabooBinaryFormat.readString(in);
+			metadata.experimentName = PeakabooBinaryFormat.readString(in);
+			metadata.instrumentName = PeakabooBinaryFormat.readString(in);
+			metadata.techniqueName = PeakabooBinaryFormat.readString(in);
+			metadata.sampleName = PeakabooBinaryFormat.readString(in);
+			metadata.scanName = PeakabooBinaryFormat.readString(in);
+			metadata.startTime = PeakabooBinaryFormat.readString(in);
+			metadata.endTime = PeakabooBinaryFormat.readString(in);
+		}
+	}
+
+	private void readIndex(FileChannel channel, ByteBuffer index) throws Exception {
+		segments = new ArrayList<>();
+		segmentIndex = new int[scanCount];
+		segmentOffset = new int[scanCount];
+		lengths = new int[scanCount];
+		channels = new int[scanCount];
+
+		//group consecutive scan blocks into mappings of at most SEGMENT_SIZE bytes
+		long segmentStart = -1;
+		long segmentEnd = -1;
+		List<Long> starts = new ArrayList<>();
+		List<Long> ends = new ArrayList<>();
+
+		for (int i = 0; i < scanCount; i++) {
+			long position = index.getLong();
+			lengths[i] = index.getInt();
+			channels[i] = index.getInt();
+			if (lengths[i] < 0) continue;
+
+			if (segmentStart == -1 || position + lengths[i] - segmentStart > SEGMENT_SIZE) {
+				if (segmentStart != -1) {
+					starts.add(segmentStart);
+					ends.add(segmentEnd);
+				}
+				segmentStart = position;
+				segmentEnd = position;
+			}
+			segmentEnd = Math.max(segmentEnd, position + lengths[i]);
+			segmentIndex[i] = starts.size();
+			segmentOffset[i] = (int)(position - segmentStart);
+		}
+		if (segmentStart != -1) {
+			starts.add(segmentStart);
+			ends.add(segmentEnd);
+		}
+
+		for (int i = 0; i < starts.size(); i++) {
+			segments.add(map(channel, starts.get(i), ends.get(i) - starts.get(i)));
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position, long length) throws Exception {
+		MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+
+	@Override
+	public FileFormat getFileFormat() {
+		return new SimpleFileFormat(
+				true,
+				"Peakaboo Binary",
+				"Peakaboo Binary format is Peakaboo's native dataset format, storing scans as indexed blocks of raw values for fast access.",
+				PeakabooBinaryFormat.EXTENSION) {
+
+			@Override
+			public FileFormatCompatibility compatibility(List<Path> paths) {
+				if (paths.size() != 1) return FileFormatCompatibility.NO;
+				if (PeakabooBinaryFormat.isBinaryDataset(paths.get(0))) return FileFormatCompatibility.YES_BY_CONTENTS;
+				return FileFormatCompatibility.NO;
+			}
+		};
+	}
+
+	@Override
+	public ScanData getScanData() {
+		return this;
+	}
+
+	@Override
+	public Optional<DataSize> getDataSize() {
+		if (dataDimensions == null) return Optional.empty();
+		return Optional.of(this);
+	}
+
+	@Override
+	public Optional<PhysicalSize> getPhysicalSize() {
+		if (physicalDimensions == null) return Optional.empty();
+		return Optional.of(this);
+	}
+
+	@Override
+	public Optional<Metadata> getMetadata() {
+		return Optional.ofNullable(metadata);
+	}
+
+	@Override
+	public Optional<Group> getParameters(List<Path> paths) {
+		return Optional.empty();
+	}
+
+
+
+	//==============================================
+	// SCANDATA METHODS
+	//==============================================
+
+	@Override
+	public ReadOnlySpectrum get(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= scanCount) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + scanCount);
+		if (lengths[index] < 0) return null;
+
+		ByteBuffer block = segments.get(segmentIndex[index]).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		block.position(segmentOffset[index]);
+		block.limit(segmentOffset[index] + lengths[index]);
+
+		float[] values = new float[channels[index]];
+		if (compressed && lengths[index] != channels[index] * 4) {
+			block = inflate(block, channels[index] * 4);
+		}
+		block.asFloatBuffer().get(values);
+		return new ISpectrum(values, false);
+	}
+
+	private static ByteBuffer inflate(ByteBuffer block, int size) {
+		byte[] input = new byte[block.remaining()];
+		block.get(input);
+		byte[] output = new byte[size];
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(input);
+			inflater.inflate(output);
+		} catch (DataFormatException e) {
+			throw new RuntimeException("Corrupt scan in Peakaboo Binary dataset", e);
+		} finally {
+			inflater.end();
+		}
+		return ByteBuffer.wrap(output).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public int scanCount() {
+		return scanCount;
+	}
+
+	@Override
+	public String scanName(int index) {
+		return "Scan #" + (index+1);
+	}
+
+	@Override
+	public float maxEnergy() {
+		return maxEnergy;
+	}
+
+	@Override
+	public float minEnergy() {
+		return minEnergy;
+	}
+
+	@Override
+	public String datasetName() {
+		return name;
+	}
+
+
+
+	//==============================================
+	// DATASIZE METHODS
+	//==============================================
+
+	@Override
+	public Coord<Integer> getDataDimensions() {
+		return dataDimensions;
+	}
+
+	@Override
+	public Coord<Integer> getDataCoordinatesAtIndex(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= scanCount) throw new IndexOutOfBoundsException("Index " + index + " has no data");
+		return new Coord<>(dataCoordinates[index*2], dataCoordinates[index*2+1]);
+	}
+
+
+
+	//==============================================
+	// PHYSICALSIZE METHODS
+	//==============================================
+
+	@Override
+	public Coord<Number> getPhysicalCoordinatesAtIndex(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= scanCount) throw new IndexOutOfBoundsException("Index " + index + " has no data");
+		//scans without coordinates were written as NaN
+		if (Double.isNaN(physicalCoordinates[index*2])) return null;
+		return new Coord<>(physicalCoordinates[index*2], physicalCoordinates[index*2+1]);
+	}
+
+	@Override
+	public Coord<Bounds<Number>> getPhysicalDimensions() {
+		return physicalDimensions;
+	}
+
+	@Override
+	public SISize getPhysicalUnit() {
+		return physicalUnit;
+	}
+
+}
@@ -0,0 +1,257 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.Deflater;
+
+import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.model.components.datasize.DataSize;
+import peakaboo.datasource.model.components.metadata.Metadata;
+import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
+import peakaboo.datasource.model.components.scandata.ScanData;
+import scitypes.Bounds;
+import scitypes.Coord;
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * Describes and writes the Peakaboo Binary dataset format. A file consists of
+ * <ul>
+ * <li>a fixed preamble: a magic number, the format version, and the position of the scan index</li>
+ * <li>a header containing the dataset name, energy calibration, scan count, and
+ * the optional {@link DataSize}, {@link PhysicalSize} and {@link Metadata}</li>
+ * <li>one block of channel values per scan, stored as little-endian floats and
+ * optionally deflate-compressed</li>
+ * <li>an index giving the position, stored length and channel count of each scan's block</li>
+ * </ul>
+ * Because each scan's position is known from the index, a reader can memory-map
+ * the file and serve any scan without parsing the rest of it.
+ */
+public final class PeakabooBinaryFormat {
+
+	public static final int MAGIC = 0x504B4244; //PKBD
+	public static final int VERSION = 1;
+	public static final String EXTENSION = "pkbd";
+
+	//magic, version, index position, header length
+	static final int PREAMBLE_SIZE = 4 + 4 + 8 + 4;
+
+	//position, stored length, channel count
+	static final int INDEX_ENTRY_SIZE = 8 + 4 + 4;
+
+	static final byte COMPRESSION_NONE = 0;
+	static final byte COMPRESSION_DEFLATE = 1;
+
+
+	private PeakabooBinaryFormat() {}
+
+
+	/**
+	 * Determines if the given file begins with the Peakaboo Binary magic number
+	 */
+	public static boolean isBinaryDataset(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) return false;
+			}
+			buffer.flip();
+			return buffer.getInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Writes the given {@link DataSource} to the destination file in the Peakaboo Binary format
+	 * @param compress true if each scan should be deflate-compressed, false to store raw floats
+	 */
+	public static void write(DataSource source, Path destination, boolean compress) throws IOException {
+
+		ScanData scandata = source.getScanData();
+		int scanCount = scandata.scanCount();
+
+		byte[] header = header(source, compress);
+		long[] positions = new long[scanCount];
+		int[] lengths = new int[scanCount];
+		int[] channels = new int[scanCount];
+
+		try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			long position = PREAMBLE_SIZE + header.length;
+			writeFully(channel, ByteBuffer.wrap(header), PREAMBLE_SIZE);
+
+			ByteBuffer raw = ByteBuffer.allocate(0);
+			byte[] compressed = new byte[0];
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+			for (int i = 0; i < scanCount; i++) {
+				ReadOnlySpectrum scan = scandata.get(i);
+				positions[i] = position;
+				if (scan == null) {
+					lengths[i] = -1;
+					continue;
+				}
+
+				int size = scan.size();
+				channels[i] = size;
+				if (raw.capacity() < size * 4) {
+					raw = ByteBuffer.allocate(size * 4).order(ByteOrder.LITTLE_ENDIAN);
+				}
+				raw.clear();
+				for (int c = 0; c < size; c++) {
+					raw.putFloat(scan.get(c));
+				}
+				raw.flip();
+
+				//blocks which don't shrink when compressed are stored raw, 
+				//which readers detect by their length matching the channel count
+				ByteBuffer block = raw;
+				if (compress) {
+					if (compressed.length < size * 4) {
+						compressed = new byte[size * 4];
+					}
+					deflater.reset();
+					deflater.setInput(raw.array(), 0, raw.limit());
+					deflater.finish();
+					int length = deflater.deflate(compressed);
+					if (deflater.finished() && length < size * 4) {
+						block = ByteBuffer.wrap(compressed, 0, length);
+					}
+				}
+
+				lengths[i] = block.remaining();
+				writeFully(channel, block, position);
+				position += lengths[i];
+			}
+			deflater.end();
+
+			//scan index
+			long indexPosition = position;
+			ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+			for (int i = 0; i < scanCount; i++) {
+				if (!index.hasRemaining()) {
+					index.flip();
+					position += writeFully(channel, index, position);
+					index.clear();
+				}
+				index.putLong(positions[i]);
+				index.putInt(lengths[i]);
+				index.putInt(channels[i]);
+			}
+			index.flip();
+			writeFully(channel, index, position);
+
+			//preamble, written last so that a partially written file won't be recognised
+			ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			preamble.putInt(MAGIC);
+			preamble.putInt(VERSION);
+			preamble.putLong(indexPosition);
+			preamble.putInt(header.length);
+			preamble.flip();
+			writeFully(channel, preamble, 0);
+
+		}
+
+	}
+
+	private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		int written = 0;
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer, position + written);
+		}
+		return written;
+	}
+
+
+	private static byte[] header(DataSource source, boolean compress) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		ScanData scandata = source.getScanData();
+		int scanCount = scandata.scanCount();
+
+		out.writeByte(compress ? COMPRESSION_DEFLATE : COMPRESSION_NONE);
+		writeString(out, scandata.datasetName());
+		out.writeFloat(scandata.minEnergy());
+		out.writeFloat(scandata.maxEnergy());
+		out.writeInt(scanCount);
+
+		Optional<DataSize> datasize = source.getDataSize();
+		out.writeBoolean(datasize.isPresent());
+		if (datasize.isPresent()) {
+			Coord<Integer> dimensions = datasize.get().getDataDimensions();
+			out.writeInt(dimensions.x);
+			out.writeInt(dimensions.y);
+			for (int i = 0; i < scanCount; i++) {
+				Coord<Integer> coord = datasize.get().getDataCoordinatesAtIndex(i);
+				out.writeInt(coord.x);
+				out.writeInt(coord.y);
+			}
+		}
+
+		Optional<PhysicalSize> physicalsize = source.getPhysicalSize();
+		out.writeBoolean(physicalsize.isPresent());
+		if (physicalsize.isPresent()) {
+			PhysicalSize physical = physicalsize.get();
+			out.writeUTF(physical.getPhysicalUnit().name());
+			Coord<Bounds<Number>> dimensions = physical.getPhysicalDimensions();
+			out.writeDouble(dimensions.x.start.doubleValue());
+			out.writeDouble(dimensions.x.end.doubleValue());
+			out.writeDouble(dimensions.y.start.doubleValue());
+			out.writeDouble(dimensions.y.end.doubleValue());
+			for (int i = 0; i < scanCount; i++) {
+				Coord<Number> coord;
+				try {
+					coord = physical.getPhysicalCoordinatesAtIndex(i);
+				} catch (IndexOutOfBoundsException e) {
+					coord = null;
+				}
+				out.writeDouble(coord == null ? Double.NaN : coord.x.doubleValue());
+				out.writeDouble(coord == null ? Double.NaN : coord.y.doubleValue());
+			}
+		}
+
+		Optional<Metadata> metadata = source.getMetadata();
+		out.writeBoolean(metadata.isPresent());
+		if (metadata.isPresent()) {
+			Metadata m = metadata.get();
+			writeString(out, m.getCreationTime());
+			writeString(out, m.getCreator());
+			writeString(out, m.getProjectName());
+			writeString(out, m.getSessionName());
+			writeString(out, m.getFacilityName());
+			writeString(out, m.getLaboratoryName());
+			writeString(out, m.getExperimentName());
+			writeString(out, m.getInstrumentName());
+			writeString(out, m.getTechniqueName());
+			writeString(out, m.getSampleName());
+			writeString(out, m.getScanName());
+			writeString(out, m.getStartTime());
+			writeString(out, m.getEndTime());
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) out.writeUTF(value);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		if (!in.readBoolean()) return null;
+		return in.readUTF();
+	}
+
+}
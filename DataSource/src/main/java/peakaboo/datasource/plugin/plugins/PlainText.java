@@ -1,15 +1,17 @@
 package peakaboo.datasource.plugin.plugins;
 
-import static java.util.stream.Collectors.toList;
-
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sciencestudio.autodialog.model.Group;
+import peakaboo.datasource.model.MultiFileDataSource;
+import peakaboo.datasource.model.PartitionedDataSource;
 import peakaboo.datasource.model.components.datasize.DataSize;
 import peakaboo.datasource.model.components.fileformat.FileFormat;
 import peakaboo.datasource.model.components.fileformat.SimpleFileFormat;
@@ -22,13 +24,36 @@ import scitypes.ISpectrum;
 import scitypes.Spectrum;
 
 
-public class PlainText extends AbstractDataSource
+/**
+ * Reads one or more files holding one scan per line. Files which hold a single 
+ * scan each, such as a directory being written to during an acquisition, can 
+ * also be read one file at a time.
+ */
+public class PlainText extends AbstractDataSource implements PartitionedDataSource, MultiFileDataSource
 {
 
-	int 	size = 0;
-	int		scanSize = -1;
+	//size of the sections of the file which are parsed independently
+	private static final long CHUNK_SIZE = 4 << 20;
+	
+	private AtomicInteger scanSize = new AtomicInteger(-1);
 
 	private SimpleScanData scandata;
+	private List<FileChannel> channels = new ArrayList<>();
+	private List<Partition> partitions;
+	
+	/**
+	 * A line-aligned section of one of the files being read
+	 */
+	private static class Partition {
+		FileChannel channel;
+		long start, end;
+		
+		Partition(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+	}
 	
 	public PlainText()
 	{
@@ -48,7 +73,7 @@ public class PlainText extends AbstractDataSource
 
 	@Override
 	public String pluginDescription() {
-		return "Loads XRF data from plain text files; one scan per line, with human readable numbers separated by a space, comma, or tab.";
+		return "Loads XRF data from plain text files; one scan per line, with human readable numbers separated by a space, comma, or tab. Several files can be loaded together, one after another.";
 	}
 
 
@@ -70,59 +95,127 @@ public class PlainText extends AbstractDataSource
 	//==============================================
 
 	@Override
-	public void read(List<Path> files) throws Exception
+	public SimpleScanData preparePartitions(List<Path> files) throws Exception
 	{
 		
 		if (files == null) throw new UnsupportedOperationException();
 		if (files.size() == 0) throw new UnsupportedOperationException();
-		if (files.size() > 1) throw new UnsupportedOperationException();
 		
-		Path file = files.get(0);
+		scandata = new SimpleScanData(datasetName(files));
+		scanSize.set(-1);
 		
-		scandata = new SimpleScanData(file.getFileName().toString());
-		
-		Iterator<String> lines = Files.lines(file).iterator();
-
-		while (lines.hasNext())
-		{
-			String line = lines.next();
-			
-			if (line == null || getInteraction().checkReadAborted()) break;
-			
-			if (line.trim().equals("") || line.trim().startsWith("#")) continue;
-						
-			//split on all non-digit characters
-			Spectrum scan = new ISpectrum(Arrays.asList(line.trim().split("[, \\t]+")).stream().map(s -> {
-				try { return Float.parseFloat(s); } 
-				catch (Exception e) { return 0f; }
-			}).collect(toList()));
-			
-			
-			if (size > 0 && scan.size() != scanSize) 
-			{
-				throw new Exception("Spectra sizes are not equal");
-			}
-			else if (size == 0)
-			{
-				scanSize = scan.size();
+		//split each file into line-aligned chunks which can be parsed independently, 
+		//keeping the chunks in file order so that the scans are stored in that order too
+		partitions = new ArrayList<>();
+		for (Path file : files) {
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+			channels.add(channel);
+			List<Long> bounds = PlainTextParser.chunk(channel, CHUNK_SIZE);
+			for (int i = 0; i < bounds.size() - 1; i++) {
+				partitions.add(new Partition(channel, bounds.get(i), bounds.get(i+1)));
 			}
-			
-			
-			scandata.add(scan);
-			size++;
-			
-			getInteraction().notifyScanRead(1);
-			
 		}
 		
-
+		return scandata;
 	}
-
+	
+	@Override
+	public int partitionCount()
+	{
+		return partitions.size();
+	}
+	
+	@Override
+	public List<Spectrum> readPartition(int index) throws Exception
+	{
+		Partition partition = partitions.get(index);
+		List<float[]> parsed = PlainTextParser.parse(partition.channel, partition.start, partition.end);
+		List<Spectrum> scans = new ArrayList<>(parsed.size());
+		for (float[] scan : parsed) {
+			scans.add(toSpectrum(scan));
+		}
+		return scans;
+	}
+	
+	@Override
+	public boolean isOneScanPerFile(List<Path> files) throws Exception
+	{
+		//the files of a dataset are all written the same way, so the first one 
+		//tells us which kind we have. A file larger than one chunk can't be a single scan.
+		try (FileChannel channel = FileChannel.open(files.get(0), StandardOpenOption.READ)) {
+			if (channel.size() > CHUNK_SIZE) return false;
+			return PlainTextParser.parse(channel, 0, channel.size()).size() <= 1;
+		}
+	}
+	
+	@Override
+	public SimpleScanData prepareRead(List<Path> files) throws Exception
+	{
+		if (files == null) throw new UnsupportedOperationException();
+		if (files.size() == 0) throw new UnsupportedOperationException();
+		
+		scandata = new SimpleScanData(datasetName(files));
+		scanSize.set(-1);
+		
+		return scandata;
+	}
+	
+	@Override
+	public Spectrum readScan(Path file) throws Exception
+	{
+		List<float[]> parsed;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			parsed = PlainTextParser.parse(channel, 0, channel.size());
+		}
+		if (parsed.isEmpty()) return null;
+		if (parsed.size() > 1) throw new Exception("Expected one scan in " + file.getFileName() + ", found " + parsed.size());
+		return toSpectrum(parsed.get(0));
+	}
+	
+	@Override
+	public void finishRead() throws Exception
+	{
+		Exception failure = null;
+		for (FileChannel channel : channels) {
+			try {
+				channel.close();
+			} catch (Exception e) {
+				failure = e;
+			}
+		}
+		channels.clear();
+		partitions = null;
+		if (failure != null) throw failure;
+	}
+	
+	private Spectrum toSpectrum(float[] scan) throws Exception
+	{
+		//the first scan read, from whichever chunk or file, sets the size all others must match
+		if (!scanSize.compareAndSet(-1, scan.length) && scan.length != scanSize.get()) 
+		{
+			throw new Exception("Spectra sizes are not equal");
+		}
+		return new ISpectrum(scan, false);
+	}
+	
+	/**
+	 * A single file names the dataset, while several are named after the directory holding them
+	 */
+	private static String datasetName(List<Path> files)
+	{
+		Path first = files.get(0);
+		Path parent = first.toAbsolutePath().getParent();
+		if (files.size() == 1 || parent == null || parent.getFileName() == null) {
+			return first.getFileName().toString();
+		}
+		return parent.getFileName().toString();
+	}
+	
 
 	@Override
 	public FileFormat getFileFormat() {
 		return new SimpleFileFormat(
-				true, 
+				false, 
 				"Peakaboo Plain Text", 
 				"Peakaboo Plain Text format is a simple XRF format comprised of rows of space-separated numbers.", 
 				Arrays.asList("txt", "dat", "csv", "tsv"));
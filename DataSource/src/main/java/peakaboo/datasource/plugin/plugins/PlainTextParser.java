@@ -0,0 +1,247 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte-level parser for the Peakaboo Plain Text format. Files are divided into
+ * line-aligned chunks which can be parsed independently (and concurrently),
+ * and each line is parsed directly from a memory-mapped region into a float[]
+ * without creating intermediate Strings, regular expressions or boxed values.
+ * <br/><br/>
+ * Lines are treated the same way the original String-based reader treated them:
+ * leading and trailing whitespace is ignored, blank lines and lines starting with
+ * '#' are skipped, and values are separated by any run of spaces, commas and tabs.
+ * Values which cannot be parsed as numbers are read as 0.
+ */
+final class PlainTextParser {
+
+	//mantissas below this, and these powers of ten, are all exactly representable as floats
+	private static final long MAX_EXACT_MANTISSA = 1 << 24;
+	private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+	private PlainTextParser() {}
+
+
+	/**
+	 * Divides the file into chunks of roughly the given size, each of which ends
+	 * just after a line break (or at the end of the file).
+	 * @return a list of chunk boundaries, starting with 0 and ending with the file size
+	 */
+	static List<Long> chunk(FileChannel channel, long targetSize) throws IOException {
+		long size = channel.size();
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0l);
+
+		long position = 0;
+		while (position < size) {
+			long end = Math.min(size, position + targetSize);
+			if (end < size) {
+				end = nextLine(channel, end, size);
+			}
+			bounds.add(end);
+			position = end;
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Returns the position just after the first line break at or after the given position.
+	 * Both '\n' and '\r' count as line breaks, so files with any line endings can be split.
+	 */
+	private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+		while (position < size) {
+			int length = (int) Math.min(64 << 10, size - position);
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+			for (int i = 0; i < length; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r') {
+					return position + i + 1;
+				}
+			}
+			position += length;
+		}
+		return size;
+	}
+
+
+	/**
+	 * Parses all lines in the given line-aligned region of the file.
+	 * @return one float[] per (non-blank, non-comment) line, in order
+	 */
+	static List<float[]> parse(FileChannel channel, long start, long end) throws IOException {
+		List<float[]> spectra = new ArrayList<>();
+		if (end <= start) return spectra;
+
+		MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+		int length = (int) (end - start);
+
+		float[] row = new float[256];
+		int position = 0;
+
+		while (position < length) {
+
+			//find the end of this line
+			int lineEnd = position;
+			while (lineEnd < length) {
+				byte b = buffer.get(lineEnd);
+				if (b == '\n' || b == '\r') break;
+				lineEnd++;
+			}
+
+			//trim leading and trailing whitespace
+			int first = position;
+			int last = lineEnd;
+			while (first < last && (buffer.get(first) & 0xff) <= ' ') first++;
+			while (last > first && (buffer.get(last-1) & 0xff) <= ' ') last--;
+
+			position = lineEnd + 1;
+
+			//skip blank lines and comments
+			if (first == last || buffer.get(first) == '#') continue;
+
+			int count = 0;
+			int cursor = first;
+
+			//a separator at the very start of a line produces an empty (zero) value
+			if (buffer.get(cursor) == ',') {
+				row[count++] = 0f;
+			}
+
+			while (cursor < last) {
+
+				//skip separators
+				while (cursor < last && isSeparator(buffer.get(cursor))) cursor++;
+				if (cursor == last) break;
+
+				int tokenEnd = cursor;
+				while (tokenEnd < last && !isSeparator(buffer.get(tokenEnd))) tokenEnd++;
+
+				if (count == row.length) {
+					row = Arrays.copyOf(row, row.length * 2);
+				}
+				row[count++] = parseFloat(buffer, cursor, tokenEnd);
+				cursor = tokenEnd;
+
+			}
+
+			spectra.add(Arrays.copyOf(row, count));
+
+		}
+
+		return spectra;
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == ',' || b == '\t';
+	}
+
+
+	/**
+	 * Parses a decimal number of the form [+-]digits[.digits][(e|E)[+-]digits].
+	 * When both the digits and the power of ten are exactly representable as floats,
+	 * a single float multiplication or division gives the correctly rounded result.
+	 * Anything else is handed to {@link Float#parseFloat(String)}, and read as 0
+	 * if that also fails.
+	 */
+	static float parseFloat(MappedByteBuffer buffer, int start, int end) {
+		int i = start;
+		boolean negative = false;
+
+		byte b = buffer.get(i);
+		if (b == '-' || b == '+') {
+			negative = b == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean seenDigit = false;
+
+		//integer part
+		while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+			seenDigit = true;
+			if (digits < 18) {
+				mantissa = mantissa * 10 + (b - '0');
+				if (mantissa != 0) digits++;
+			} else {
+				exponent++;
+			}
+			i++;
+		}
+
+		//fractional part
+		if (i < end && buffer.get(i) == '.') {
+			i++;
+			while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+				seenDigit = true;
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (b - '0');
+					if (mantissa != 0) digits++;
+					exponent--;
+				}
+				i++;
+			}
+		}
+
+		if (!seenDigit) return parseSlow(buffer, start, end);
+
+		//exponent
+		if (i < end && ((b = buffer.get(i)) == 'e' || b == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && ((b = buffer.get(i)) == '-' || b == '+')) {
+				negativeExponent = b == '-';
+				i++;
+			}
+			if (i == end) return parseSlow(buffer, start, end);
+			int value = 0;
+			while (i < end && (b = buffer.get(i)) >= '0' && b <= '9') {
+				if (value < 10000) value = value * 10 + (b - '0');
+				i++;
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+
+		if (i != end) return parseSlow(buffer, start, end);
+
+		if (mantissa == 0) {
+			return negative ? -0f : 0f;
+		}
+
+		//rounding twice (once to a double, then again to a float) can be off by one
+		//in the last place, so only calculate the value directly when it is exact
+		if (mantissa >= MAX_EXACT_MANTISSA || exponent > 10 || exponent < -10) {
+			return parseSlow(buffer, start, end);
+		}
+
+		float result = mantissa;
+		if (exponent > 0) {
+			result *= POWERS_OF_TEN[exponent];
+		} else if (exponent < 0) {
+			result /= POWERS_OF_TEN[-exponent];
+		}
+		return negative ? -result : result;
+	}
+
+	private static float parseSlow(MappedByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		try {
+			return Float.parseFloat(new String(bytes, StandardCharsets.UTF_8));
+		} catch (NumberFormatException e) {
+			return 0f;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package peakaboo.datasource.model;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+public class MappedSpectrumListTest extends TestCase {
+
+	private MappedSpectrumList list;
+
+	@Override
+	protected void setUp() throws Exception {
+		list = new MappedSpectrumList("Test/Dataset: 1");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		list.close();
+	}
+
+	private static Spectrum spectrum(float... values) {
+		return new ISpectrum(values);
+	}
+
+	private static void assertSpectrum(float[] expected, Spectrum actual) {
+		assertNotNull(actual);
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual.get(i), 0f);
+		}
+	}
+
+	public void testAddAndGet() {
+		list.add(spectrum(1, 2, 3));
+		list.add(null);
+		list.add(spectrum(4, 5, 6));
+
+		assertEquals(3, list.size());
+		assertEquals(3, list.getWidth());
+		assertSpectrum(new float[] {1, 2, 3}, list.get(0));
+		assertNull(list.get(1));
+		assertSpectrum(new float[] {4, 5, 6}, list.get(2));
+	}
+
+	public void testSetOutOfOrderPads() {
+		list.set(4, spectrum(7, 8));
+		list.set(1, spectrum(3, 4));
+
+		assertEquals(5, list.size());
+		assertNull(list.get(0));
+		assertSpectrum(new float[] {3, 4}, list.get(1));
+		assertNull(list.get(3));
+		assertSpectrum(new float[] {7, 8}, list.get(4));
+	}
+
+	public void testReplaceOverwrites() {
+		list.add(spectrum(1, 1));
+		list.set(0, spectrum(2, 2));
+		assertSpectrum(new float[] {2, 2}, list.get(0));
+		list.set(0, null);
+		assertNull(list.get(0));
+	}
+
+	public void testSetReturnsPrevious() {
+		assertNull(list.set(2, spectrum(1, 2)));
+		assertNull(list.set(0, spectrum(3, 4)));
+		assertSpectrum(new float[] {1, 2}, list.set(2, spectrum(5, 6)));
+		assertSpectrum(new float[] {5, 6}, list.set(2, null));
+		assertNull(list.set(2, spectrum(7, 8)));
+
+		//entries held in the overflow list are returned too
+		list.set(1, spectrum(1, 2, 3));
+		assertSpectrum(new float[] {1, 2, 3}, list.set(1, spectrum(9, 9)));
+	}
+
+	public void testMismatchedWidthsAreKept() {
+		list.add(spectrum(1, 2, 3));
+		list.add(spectrum(4, 5));
+		list.add(spectrum(6, 7, 8, 9));
+		list.set(0, spectrum(10));
+
+		assertSpectrum(new float[] {10}, list.get(0));
+		assertSpectrum(new float[] {4, 5}, list.get(1));
+		assertSpectrum(new float[] {6, 7, 8, 9}, list.get(2));
+
+		float[] buffer = new float[3];
+		assertEquals(4, list.read(2, buffer));
+		assertEquals(8f, buffer[2], 0f);
+	}
+
+	public void testReadIntoBuffer() {
+		list.add(spectrum(1, 2, 3));
+		list.add(null);
+
+		float[] buffer = new float[3];
+		assertEquals(3, list.read(0, buffer));
+		assertEquals(3f, buffer[2], 0f);
+		assertEquals(-1, list.read(1, buffer));
+	}
+
+	public void testReturnsCopies() {
+		list.add(spectrum(1, 2));
+		list.get(0).set(0, 100);
+		assertEquals(1f, list.get(0).get(0), 0f);
+	}
+
+	public void testClearReleasesStorage() {
+		list.add(spectrum(1, 2, 3));
+		list.clear();
+		assertEquals(0, list.size());
+		assertEquals(-1, list.getWidth());
+
+		//a new record width can be chosen after clearing
+		list.add(spectrum(4, 5));
+		assertEquals(2, list.getWidth());
+		assertSpectrum(new float[] {4, 5}, list.get(0));
+	}
+
+	public void testClose() {
+		list.add(spectrum(1, 2, 3));
+		list.close();
+		try {
+			list.add(spectrum(1, 2, 3));
+			fail("Closed list accepted a spectrum");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+}
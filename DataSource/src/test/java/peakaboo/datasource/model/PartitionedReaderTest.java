@@ -0,0 +1,85 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.components.interaction.SimpleInteraction;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+public class PartitionedReaderTest extends TestCase {
+
+	private static final int PARTITIONS = 8;
+	private static final int SCANS = 10;
+
+	/**
+	 * Partitions of ten scans each, each of which records its index. One
+	 * partition can be made to fail.
+	 */
+	private static class Partitions extends TestDataSource implements PartitionedDataSource {
+
+		private int failing;
+		private boolean finished = false;
+
+		Partitions(int failing) {
+			super("partitions", new ArrayList<>());
+			this.failing = failing;
+			setInteraction(new SimpleInteraction());
+		}
+
+		@Override
+		public SimpleScanData preparePartitions(List<Path> paths) {
+			return getScanData();
+		}
+
+		@Override
+		public int partitionCount() {
+			return PARTITIONS;
+		}
+
+		@Override
+		public List<Spectrum> readPartition(int partition) throws Exception {
+			if (partition == failing) throw new Exception("Can't read partition " + partition);
+			List<Spectrum> scans = new ArrayList<>();
+			for (int i = 0; i < SCANS; i++) {
+				scans.add(new ISpectrum(new float[] {partition * SCANS + i}));
+			}
+			return scans;
+		}
+
+		@Override
+		public void finishRead() {
+			finished = true;
+		}
+
+	}
+
+
+	public void testRead() throws Exception {
+		Partitions ds = new Partitions(-1);
+		PartitionedReader.read(ds, Collections.emptyList());
+
+		assertTrue(ds.finished);
+		assertEquals(PARTITIONS * SCANS, ((SimpleInteraction) ds.getInteraction()).scanCount);
+		assertEquals(PARTITIONS * SCANS, ds.getScanData().scanCount());
+		for (int i = 0; i < PARTITIONS * SCANS; i++) {
+			assertEquals((float) i, ds.getScanData().get(i).get(0), 0f);
+		}
+	}
+
+	public void testFailedPartition() {
+		Partitions ds = new Partitions(3);
+		try {
+			PartitionedReader.read(ds, Collections.emptyList());
+			fail("A partition which couldn't be read was not reported");
+		} catch (Exception e) {
+			//expected
+		}
+		assertTrue("finishRead was not called after a failure", ds.finished);
+	}
+
+}
@@ -0,0 +1,158 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.sciencestudio.scratch.ScratchEncoder;
+import net.sciencestudio.scratch.encoders.CompoundEncoder;
+import net.sciencestudio.scratch.encoders.compressors.Compressors;
+import net.sciencestudio.scratch.encoders.serializers.Serializers;
+import peakaboo.datasource.model.components.scandata.ScanData;
+import peakaboo.datasource.plugin.plugins.PeakabooBinary;
+import peakaboo.datasource.plugin.plugins.PeakabooBinaryFormat;
+import peakaboo.datasource.plugin.plugins.PlainText;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Compares the encode and decode throughput and compression ratio of {@link SpectrumEncoder}
+ * against the general-purpose FST + LZ4 encoder it replaces. Run with the paths of one or more
+ * Plain Text or Peakaboo Binary datasets as arguments, or with no arguments to use synthetic
+ * Poisson-distributed spectra.
+ */
+public class SpectrumEncoderBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	//keeps decoded values live so the decode loop isn't optimized away
+	private static volatile float sink;
+
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) throws Exception {
+
+		List<ScratchEncoder<Spectrum>> encoders = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+
+		encoders.add((ScratchEncoder<Spectrum>)(ScratchEncoder<?>) new CompoundEncoder<>(Serializers.fst(ISpectrum.class), Compressors.lz4fast()));
+		names.add("FST + LZ4");
+		encoders.add(new SpectrumEncoder());
+		names.add("Spectrum");
+		encoders.add(SpectrumEncoder.compressed());
+		names.add("Spectrum + LZ4");
+
+		if (args.length == 0) {
+			report("synthetic", synthetic(2000, 2048), encoders, names);
+		}
+		for (String arg : args) {
+			Path path = Paths.get(arg);
+			report(path.getFileName().toString(), load(path), encoders, names);
+		}
+
+	}
+
+	private static void report(String dataset, List<Spectrum> spectra, List<ScratchEncoder<Spectrum>> encoders, List<String> names) {
+		long rawBytes = 0;
+		for (Spectrum spectrum : spectra) {
+			rawBytes += spectrum.size() * 4l;
+		}
+		System.out.println(dataset + ": " + spectra.size() + " spectra, " + (rawBytes >> 10) + "KB as floats");
+
+		for (int e = 0; e < encoders.size(); e++) {
+			ScratchEncoder<Spectrum> encoder = encoders.get(e);
+			byte[][] encoded = new byte[spectra.size()][];
+			long encodeTime = Long.MAX_VALUE, decodeTime = Long.MAX_VALUE;
+			long encodedBytes = 0;
+
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < spectra.size(); i++) {
+					encoded[i] = encoder.encode(spectra.get(i));
+				}
+				encodeTime = Math.min(encodeTime, System.nanoTime() - start);
+
+				float checksum = 0;
+				start = System.nanoTime();
+				for (int i = 0; i < spectra.size(); i++) {
+					checksum += encoder.decode(encoded[i]).get(0);
+				}
+				decodeTime = Math.min(decodeTime, System.nanoTime() - start);
+				sink = checksum;
+			}
+
+			for (byte[] entry : encoded) {
+				encodedBytes += entry.length;
+			}
+			for (int i = 0; i < spectra.size(); i++) {
+				ReadOnlySpectrum decoded = encoder.decode(encoded[i]);
+				for (int c = 0; c < decoded.size(); c++) {
+					if (Float.floatToRawIntBits(decoded.get(c)) != Float.floatToRawIntBits(spectra.get(i).get(c))) {
+						throw new IllegalStateException(names.get(e) + " did not reproduce spectrum " + i);
+					}
+				}
+			}
+
+			System.out.println(String.format("  %-16s ratio %5.2f   encode %7.1f MB/s   decode %7.1f MB/s",
+					names.get(e),
+					rawBytes / (double) encodedBytes,
+					megabytesPerSecond(rawBytes, encodeTime),
+					megabytesPerSecond(rawBytes, decodeTime)));
+		}
+	}
+
+	private static double megabytesPerSecond(long bytes, long nanos) {
+		return (bytes / (double)(1 << 20)) / (nanos / 1e9);
+	}
+
+	private static List<Spectrum> load(Path path) throws Exception {
+		DataSource source = PeakabooBinaryFormat.isBinaryDataset(path) ? new PeakabooBinary() : new PlainText();
+		source.read(Collections.singletonList(path));
+		ScanData scandata = source.getScanData();
+		List<Spectrum> spectra = new ArrayList<>();
+		for (int i = 0; i < scandata.scanCount(); i++) {
+			ReadOnlySpectrum scan = scandata.get(i);
+			if (scan != null) spectra.add(new ISpectrum(scan));
+		}
+		return spectra;
+	}
+
+	/**
+	 * Generates spectra of Poisson-distributed counts around a few peaks on a
+	 * falling background, with an empty high-energy tail
+	 */
+	private static List<Spectrum> synthetic(int count, int channels) {
+		Random random = new Random(1);
+		List<Spectrum> spectra = new ArrayList<>();
+		for (int s = 0; s < count; s++) {
+			Spectrum spectrum = new ISpectrum(channels, 0f);
+			for (int c = 0; c < channels * 3 / 5; c++) {
+				double mean = 20 * Math.exp(-c / 300.0);
+				for (int peak : new int[] {250, 410, 640, 800}) {
+					mean += 200 * Math.exp(-Math.pow(c - peak, 2) / 50.0);
+				}
+				spectrum.set(c, poisson(random, mean));
+			}
+			spectra.add(spectrum);
+		}
+		return spectra;
+	}
+
+	private static int poisson(Random random, double mean) {
+		if (mean > 30) {
+			return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+		}
+		double limit = Math.exp(-mean);
+		double product = random.nextDouble();
+		int count = 0;
+		while (product > limit) {
+			product *= random.nextDouble();
+			count++;
+		}
+		return count;
+	}
+
+}
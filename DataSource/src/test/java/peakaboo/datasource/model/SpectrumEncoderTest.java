@@ -0,0 +1,88 @@
+package peakaboo.datasource.model;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+public class SpectrumEncoderTest extends TestCase {
+
+	private SpectrumEncoder encoder = new SpectrumEncoder();
+
+	private static void assertBitsEqual(float[] expected, Spectrum actual) {
+		assertNotNull(actual);
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("channel " + i, Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual.get(i)));
+		}
+	}
+
+	private void assertRoundTrip(float... values) {
+		Spectrum decoded = encoder.decode(encoder.encode(new ISpectrum(values)));
+		assertBitsEqual(values, decoded);
+
+		PackedSpectrumList packed = new PackedSpectrumList();
+		packed.add(new ISpectrum(values));
+		assertBitsEqual(values, packed.get(0));
+	}
+
+	public void testCounts() {
+		assertRoundTrip(0, 0, 5, 3, 3, 0, 0, 0, 1000000, 0);
+	}
+
+	public void testNegativeCounts() {
+		//the encoder stores deltas, so negative whole numbers are still integral to it
+		assertRoundTrip(-4, 2, -16777216, 16777216, 0);
+	}
+
+	public void testFractionalValues() {
+		assertRoundTrip(1.5f, 0, 2, 1e-30f, Float.MAX_VALUE, Float.MIN_VALUE);
+	}
+
+	public void testNegativeZero() {
+		assertRoundTrip(0, -0.0f, 3);
+		assertRoundTrip(-0.0f);
+	}
+
+	public void testNonFiniteValues() {
+		assertRoundTrip(Float.NaN, 1, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		assertRoundTrip(Float.intBitsToFloat(0x7fc00001), 2);
+	}
+
+	public void testLargeWholeNumbers() {
+		assertRoundTrip(16777217f, 3e9f, 0);
+	}
+
+	public void testEmpty() {
+		assertRoundTrip();
+	}
+
+	public void testNull() {
+		assertNull(encoder.decode(encoder.encode(null)));
+
+		PackedSpectrumList packed = new PackedSpectrumList();
+		packed.add(null);
+		assertNull(packed.get(0));
+		assertEquals(-1, packed.read(0, new float[1]));
+	}
+
+	public void testLongSpectrum() {
+		float[] values = new float[4096];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (i * 7919) % 300;
+		}
+		assertRoundTrip(values);
+	}
+
+	public void testPackedReadIntoShortBuffer() {
+		PackedSpectrumList packed = new PackedSpectrumList();
+		packed.add(new ISpectrum(new float[] {0, 0, 0, 4, 5}));
+		packed.add(new ISpectrum(new float[] {0.5f, 1, 2}));
+
+		float[] buffer = new float[4];
+		assertEquals(5, packed.read(0, buffer));
+		assertEquals(4f, buffer[3], 0f);
+		assertEquals(3, packed.read(1, buffer));
+		assertEquals(0.5f, buffer[0], 0f);
+	}
+
+}
@@ -0,0 +1,86 @@
+package peakaboo.datasource.model;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import net.sciencestudio.autodialog.model.Group;
+import peakaboo.datasource.model.components.datasize.DataSize;
+import peakaboo.datasource.model.components.fileformat.FileFormat;
+import peakaboo.datasource.model.components.interaction.Interaction;
+import peakaboo.datasource.model.components.interaction.SimpleInteraction;
+import peakaboo.datasource.model.components.metadata.Metadata;
+import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.Spectrum;
+
+/**
+ * A {@link DataSource} held in memory, for tests which need one to read from or
+ * write out. It has no file format, and can't read anything itself.
+ */
+public class TestDataSource implements DataSource {
+
+	private SimpleScanData scandata;
+	private DataSize datasize;
+	private PhysicalSize physicalsize;
+	private Interaction interaction = new SimpleInteraction();
+
+	public TestDataSource(String name, List<Spectrum> scans) {
+		scandata = new SimpleScanData(name, new ArrayList<>(scans));
+	}
+
+	public void setDataSize(DataSize datasize) {
+		this.datasize = datasize;
+	}
+
+	public void setPhysicalSize(PhysicalSize physicalsize) {
+		this.physicalsize = physicalsize;
+	}
+
+	@Override
+	public SimpleScanData getScanData() {
+		return scandata;
+	}
+
+	@Override
+	public Optional<DataSize> getDataSize() {
+		return Optional.ofNullable(datasize);
+	}
+
+	@Override
+	public Optional<PhysicalSize> getPhysicalSize() {
+		return Optional.ofNullable(physicalsize);
+	}
+
+	@Override
+	public Optional<Group> getParameters(List<Path> paths) {
+		return Optional.empty();
+	}
+
+	@Override
+	public Optional<Metadata> getMetadata() {
+		return Optional.empty();
+	}
+
+	@Override
+	public FileFormat getFileFormat() {
+		return null;
+	}
+
+	@Override
+	public Interaction getInteraction() {
+		return interaction;
+	}
+
+	@Override
+	public void setInteraction(Interaction interaction) {
+		this.interaction = interaction;
+	}
+
+	@Override
+	public void read(List<Path> paths) {
+		throw new UnsupportedOperationException();
+	}
+
+}
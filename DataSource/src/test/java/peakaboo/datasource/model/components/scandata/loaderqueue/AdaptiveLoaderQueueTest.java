@@ -0,0 +1,58 @@
+package peakaboo.datasource.model.components.scandata.loaderqueue;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.components.scandata.ScanStorage;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Checks the storage an {@link AdaptiveLoaderQueue} picks for a dataset, given a
+ * fixed amount of heap to use rather than whatever happens to be free.
+ */
+public class AdaptiveLoaderQueueTest extends TestCase {
+
+	private static final int CHANNELS = 1024;
+	private static final int COUNT = 2000;
+
+	//each scan holds its index, and isn't integral so that it can't be packed
+	private static Spectrum scan(int index) {
+		Spectrum scan = new ISpectrum(CHANNELS);
+		scan.set(0, index);
+		scan.set(1, 0.5f);
+		return scan;
+	}
+
+	private static SimpleScanData load(long budget, int expected) throws InterruptedException {
+		SimpleScanData data = new SimpleScanData("test");
+		data.setExpectedScanCount(expected);
+		LoaderQueue queue = new AdaptiveLoaderQueue(data, 64, budget);
+		for (int i = 0; i < COUNT; i++) {
+			queue.submit(i, scan(i));
+		}
+		queue.finish();
+
+		assertEquals(COUNT, data.scanCount());
+		for (int i = 0; i < COUNT; i++) {
+			assertEquals("scan " + i, (float) i, data.get(i).get(0), 0f);
+		}
+		return data;
+	}
+
+
+	public void testUnknownCountFits() throws InterruptedException {
+		assertEquals(ScanStorage.HEAP, load(1l << 40, -1).getStorage());
+	}
+
+	public void testUnknownCountOutgrowsHeap() throws InterruptedException {
+		//room for a few hundred scans, which are kept in the heap until more arrive
+		SimpleScanData data = load(1 << 20, -1);
+		assertFalse(data.getStorage() == ScanStorage.HEAP);
+	}
+
+	public void testKnownCount() throws InterruptedException {
+		assertEquals(ScanStorage.HEAP, load(1l << 40, COUNT).getStorage());
+		assertEquals(ScanStorage.DISK, load(1 << 10, COUNT).getStorage());
+	}
+
+}
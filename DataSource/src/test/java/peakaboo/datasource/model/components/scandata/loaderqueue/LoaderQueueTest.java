@@ -0,0 +1,222 @@
+package peakaboo.datasource.model.components.scandata.loaderqueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.components.scandata.SimpleScanData;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Checks that each kind of {@link LoaderQueue} stores every spectrum, and
+ * stores it in the right place, however it was submitted.
+ */
+public class LoaderQueueTest extends TestCase {
+
+	private static final int COUNT = 5000;
+
+	private static SimpleScanData data() {
+		return new SimpleScanData("test", new ArrayList<>());
+	}
+
+	//each spectrum records the index it belongs at
+	private static Spectrum scan(int index) {
+		return new ISpectrum(new float[] {index, 1});
+	}
+
+	private static void assertInOrder(SimpleScanData data, int count) {
+		assertEquals(count, data.scanCount());
+		for (int i = 0; i < count; i++) {
+			ReadOnlySpectrum scan = data.get(i);
+			assertNotNull("scan " + i, scan);
+			assertEquals("scan " + i, (float) i, scan.get(0), 0f);
+		}
+	}
+
+	private static void appended(Function<SimpleScanData, LoaderQueue> factory) throws InterruptedException {
+		SimpleScanData data = data();
+		LoaderQueue queue = factory.apply(data);
+		for (int i = 0; i < COUNT; i++) {
+			queue.submit(scan(i));
+		}
+		queue.finish();
+		assertInOrder(data, COUNT);
+	}
+
+	/**
+	 * Submits indexed spectra in a shuffled order from several threads at once
+	 */
+	private static void indexed(Function<SimpleScanData, LoaderQueue> factory) throws InterruptedException {
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, new Random(1));
+
+		SimpleScanData data = data();
+		LoaderQueue queue = factory.apply(data);
+		AtomicInteger next = new AtomicInteger(0);
+		AtomicInteger failures = new AtomicInteger(0);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread producer = new Thread(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < COUNT) {
+					try {
+						queue.submit(order.get(i), scan(order.get(i)));
+					} catch (InterruptedException e) {
+						failures.incrementAndGet();
+						return;
+					}
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		queue.finish();
+
+		assertEquals(0, failures.get());
+		assertInOrder(data, COUNT);
+	}
+
+
+	public void testSimpleQueue() throws InterruptedException {
+		appended(SimpleLoaderQueue::new);
+		indexed(SimpleLoaderQueue::new);
+	}
+
+	public void testBatchingQueue() throws InterruptedException {
+		//a small ring, so that producers have to wait for consumers to catch up
+		appended(data -> new BatchingLoaderQueue(data, 16));
+		indexed(data -> new BatchingLoaderQueue(data, 16));
+	}
+
+	public void testAdaptiveQueue() throws InterruptedException {
+		appended(AdaptiveLoaderQueue::new);
+		indexed(AdaptiveLoaderQueue::new);
+	}
+
+	public void testAppendAfterExisting() throws InterruptedException {
+		SimpleScanData data = data();
+		data.add(scan(0));
+		data.add(scan(1));
+		LoaderQueue queue = new BatchingLoaderQueue(data, 16);
+		for (int i = 2; i < 100; i++) {
+			queue.submit(scan(i));
+		}
+		queue.finish();
+		assertInOrder(data, 100);
+	}
+
+	public void testNullSpectra() throws InterruptedException {
+		SimpleScanData data = data();
+		LoaderQueue queue = new BatchingLoaderQueue(data, 16);
+		queue.submit(3, scan(3));
+		queue.submit(1, (Spectrum) null);
+		queue.finish();
+		assertEquals(4, data.scanCount());
+		assertNull(data.get(0));
+		assertNull(data.get(1));
+		assertEquals(3f, data.get(3).get(0), 0f);
+	}
+
+	public void testSubmitAfterFinish() throws InterruptedException {
+		LoaderQueue queue = new BatchingLoaderQueue(data());
+		queue.finish();
+		try {
+			queue.submit(scan(0));
+			fail("Accepted a spectrum after being finished");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+	public void testFailureReportedByFinish() throws InterruptedException {
+		SimpleScanData data = new SimpleScanData("test", new ArrayList<>()) {
+			@Override
+			public synchronized void set(int index, Spectrum spectrum) {
+				if (index == 10) throw new IllegalArgumentException("Can't store scan " + index);
+				super.set(index, spectrum);
+			}
+		};
+		LoaderQueue queue = new BatchingLoaderQueue(data, 16);
+		for (int i = 0; i < 100; i++) {
+			queue.submit(i, scan(i));
+		}
+		try {
+			queue.finish();
+			fail("A failure to store a spectrum was not reported");
+		} catch (RuntimeException e) {
+			//expected
+		}
+	}
+
+	public void testAbortAfterFinish() throws InterruptedException {
+		for (Function<SimpleScanData, LoaderQueue> factory : Arrays.<Function<SimpleScanData, LoaderQueue>>asList(
+				SimpleLoaderQueue::new, CompressedLoaderQueue::new, BatchingLoaderQueue::new, AdaptiveLoaderQueue::new)) {
+			SimpleScanData data = data();
+			LoaderQueue queue = factory.apply(data);
+			for (int i = 0; i < 100; i++) {
+				queue.submit(scan(i));
+			}
+			queue.finish();
+			queue.abort();
+			assertInOrder(data, 100);
+		}
+	}
+
+	public void testAbortReleasesProducer() throws InterruptedException {
+		//a consumer stuck storing a spectrum, so that the ring fills up
+		CountDownLatch stored = new CountDownLatch(1);
+		SimpleScanData data = new SimpleScanData("test", new ArrayList<>()) {
+			@Override
+			public synchronized void set(int index, Spectrum spectrum) {
+				try {
+					stored.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.set(index, spectrum);
+			}
+		};
+		LoaderQueue queue = new BatchingLoaderQueue(data, 2);
+
+		AtomicReference<Exception> thrown = new AtomicReference<>();
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 100; i++) {
+					queue.submit(i, scan(i));
+				}
+			} catch (Exception e) {
+				thrown.set(e);
+			}
+		});
+		producer.start();
+
+		queue.abort();
+		stored.countDown();
+		producer.join(10000);
+
+		assertFalse("A producer was left waiting on an aborted queue", producer.isAlive());
+		assertTrue(thrown.get() instanceof IllegalStateException);
+		try {
+			queue.submit(scan(0));
+			fail("Accepted a spectrum after being aborted");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package peakaboo.datasource.model.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.TestDataSource;
+import scitypes.Coord;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Checks the index tables which {@link CroppedDataSource} and {@link SelectionDataSource}
+ * use to translate between their own scans and those of the original data source.
+ */
+public class SubsetDataSourceTest extends TestCase {
+
+	private static final int WIDTH = 7;
+	private static final int HEIGHT = 5;
+
+	/**
+	 * A grid of scans, each of which records its own index
+	 */
+	private static TestDataSource grid() {
+		List<Spectrum> scans = new ArrayList<>();
+		for (int i = 0; i < WIDTH * HEIGHT; i++) {
+			scans.add(new ISpectrum(new float[] {i}));
+		}
+		return new TestDataSource("grid", scans);
+	}
+
+	private static void assertSequential(SubsetDataSource subset) {
+		int[] order = subset.getSequentialOrder();
+		assertEquals(subset.getScanData().scanCount(), order.length);
+
+		//every index appears exactly once
+		int[] sorted = order.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < sorted.length; i++) {
+			assertEquals(i, sorted[i]);
+		}
+
+		//and the original data source is read front to back
+		for (int i = 1; i < order.length; i++) {
+			assertTrue(subset.getOriginalIndex(order[i-1]) <= subset.getOriginalIndex(order[i]));
+		}
+	}
+
+
+	public void testCrop() {
+		TestDataSource original = grid();
+		CroppedDataSource crop = new CroppedDataSource(original, WIDTH, HEIGHT, new Coord<>(2, 1), new Coord<>(4, 3));
+
+		assertEquals(9, crop.scanCount());
+		assertEquals(3, crop.getDataDimensions().x.intValue());
+		assertEquals(3, crop.getDataDimensions().y.intValue());
+
+		for (int i = 0; i < crop.scanCount(); i++) {
+			int x = i % 3 + 2;
+			int y = i / 3 + 1;
+			int originalIndex = y * WIDTH + x;
+			assertEquals(originalIndex, crop.getOriginalIndex(i));
+			assertEquals(i, crop.getUpdatedIndex(originalIndex));
+			assertEquals((float) originalIndex, crop.get(i).get(0), 0f);
+		}
+
+		//points outside of the crop, including ones which only match on one axis
+		for (int originalIndex : new int[] {0, 1, 8, 5 + WIDTH, 2, 2 + 4 * WIDTH, WIDTH * HEIGHT - 1}) {
+			assertEquals("original index " + originalIndex, -1, crop.getUpdatedIndex(originalIndex));
+		}
+
+		assertSequential(crop);
+	}
+
+	public void testFullCrop() {
+		TestDataSource original = grid();
+		CroppedDataSource crop = new CroppedDataSource(original, WIDTH, HEIGHT, new Coord<>(0, 0), new Coord<>(WIDTH - 1, HEIGHT - 1));
+		assertEquals(WIDTH * HEIGHT, crop.scanCount());
+		for (int i = 0; i < crop.scanCount(); i++) {
+			assertEquals(i, crop.getOriginalIndex(i));
+			assertEquals(i, crop.getUpdatedIndex(i));
+		}
+	}
+
+	public void testSelection() {
+		TestDataSource original = grid();
+		List<Integer> selected = new ArrayList<>();
+		for (int i = 0; i < WIDTH * HEIGHT; i += 3) {
+			selected.add(i);
+		}
+		Collections.shuffle(selected, new Random(1));
+		SelectionDataSource selection = new SelectionDataSource(original, selected);
+
+		assertEquals(selected.size(), selection.scanCount());
+		for (int i = 0; i < selected.size(); i++) {
+			int originalIndex = selected.get(i);
+			assertEquals(originalIndex, selection.getOriginalIndex(i));
+			assertEquals(i, selection.getUpdatedIndex(originalIndex));
+			assertEquals((float) originalIndex, selection.get(i).get(0), 0f);
+		}
+
+		for (int originalIndex = 0; originalIndex < WIDTH * HEIGHT; originalIndex++) {
+			if (selected.contains(originalIndex)) continue;
+			assertEquals(-1, selection.getUpdatedIndex(originalIndex));
+		}
+		assertEquals(-1, selection.getUpdatedIndex(WIDTH * HEIGHT + 10));
+
+		assertSequential(selection);
+	}
+
+	public void testSelectionDuplicates() {
+		TestDataSource original = grid();
+		SelectionDataSource selection = new SelectionDataSource(original, Arrays.asList(9, 4, 9, 0));
+		assertEquals(4, selection.scanCount());
+
+		//the first selection of a point is the one found
+		assertEquals(0, selection.getUpdatedIndex(9));
+		assertEquals(1, selection.getUpdatedIndex(4));
+		assertEquals(3, selection.getUpdatedIndex(0));
+		assertEquals(-1, selection.getUpdatedIndex(5));
+
+		assertSequential(selection);
+	}
+
+	public void testEmptySelection() {
+		SelectionDataSource selection = new SelectionDataSource(grid(), new ArrayList<>());
+		assertEquals(0, selection.scanCount());
+		assertEquals(-1, selection.getUpdatedIndex(0));
+		assertEquals(0, selection.getSequentialOrder().length);
+	}
+
+}
@@ -0,0 +1,195 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.model.TestDataSource;
+import peakaboo.datasource.model.components.datasize.DataSize;
+import peakaboo.datasource.model.components.datasize.SimpleDataSize;
+import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
+import peakaboo.datasource.model.components.physicalsize.SimplePhysicalSize;
+import peakaboo.datasource.model.components.scandata.ScanData;
+import scitypes.Coord;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.SISize;
+import scitypes.Spectrum;
+
+public class PeakabooBinaryFormatTest extends TestCase {
+
+	private Path file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = Files.createTempFile("PeakabooBinaryFormatTest", "." + PeakabooBinaryFormat.EXTENSION);
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+
+	private static TestDataSource source(List<Spectrum> scans) {
+		TestDataSource source = new TestDataSource("Memory Dataset", scans);
+		source.getScanData().setMinEnergy(0.5f);
+		source.getScanData().setMaxEnergy(20.48f);
+		return source;
+	}
+
+	private static List<Spectrum> scans() {
+		Random random = new Random(1);
+		List<Spectrum> scans = new ArrayList<>();
+
+		//sparse counts, which compress well
+		for (int s = 0; s < 5; s++) {
+			Spectrum scan = new ISpectrum(2048);
+			for (int i = 0; i < 2048; i += 50) {
+				scan.set(i, random.nextInt(1000));
+			}
+			scans.add(scan);
+		}
+
+		//noise, which doesn't, and is stored uncompressed even when compression is on
+		float[] noise = new float[2048];
+		for (int i = 0; i < noise.length; i++) {
+			noise[i] = random.nextFloat() * 1e6f - 5e5f;
+		}
+		scans.add(new ISpectrum(noise));
+
+		scans.add(null);
+		scans.add(new ISpectrum(new float[] {Float.NaN, -0.0f, Float.MAX_VALUE}));
+		return scans;
+	}
+
+	private PeakabooBinary roundTrip(DataSource source, boolean compress) throws Exception {
+		PeakabooBinaryFormat.write(source, file, compress);
+		assertTrue(PeakabooBinaryFormat.isBinaryDataset(file));
+
+		PeakabooBinary binary = new PeakabooBinary();
+		binary.read(Collections.singletonList(file));
+		return binary;
+	}
+
+	private static void assertScansEqual(ScanData expected, ScanData actual) {
+		assertEquals(expected.scanCount(), actual.scanCount());
+		for (int i = 0; i < expected.scanCount(); i++) {
+			ReadOnlySpectrum e = expected.get(i);
+			ReadOnlySpectrum a = actual.get(i);
+			if (e == null) {
+				assertNull("scan " + i, a);
+				continue;
+			}
+			assertNotNull("scan " + i, a);
+			assertEquals(e.size(), a.size());
+			for (int c = 0; c < e.size(); c++) {
+				assertEquals("scan " + i + " channel " + c, Float.floatToRawIntBits(e.get(c)), Float.floatToRawIntBits(a.get(c)));
+			}
+		}
+	}
+
+
+	public void testRoundTrip() throws Exception {
+		TestDataSource source = source(scans());
+		PeakabooBinary binary = roundTrip(source, false);
+
+		assertScansEqual(source.getScanData(), binary.getScanData());
+		assertEquals("Memory Dataset", binary.getScanData().datasetName());
+		assertEquals(0.5f, binary.getScanData().minEnergy(), 0f);
+		assertEquals(20.48f, binary.getScanData().maxEnergy(), 0f);
+		assertFalse(binary.getDataSize().isPresent());
+		assertFalse(binary.getPhysicalSize().isPresent());
+		assertFalse(binary.getMetadata().isPresent());
+	}
+
+	public void testCompressedRoundTrip() throws Exception {
+		TestDataSource source = source(scans());
+		PeakabooBinary binary = roundTrip(source, true);
+		assertScansEqual(source.getScanData(), binary.getScanData());
+
+		//the sparse scans should have been stored compressed
+		PeakabooBinaryFormat.write(source, file, false);
+		long uncompressed = Files.size(file);
+		PeakabooBinaryFormat.write(source, file, true);
+		assertTrue(Files.size(file) < uncompressed);
+	}
+
+	public void testDataSize() throws Exception {
+		SimpleDataSize datasize = new SimpleDataSize();
+		datasize.setDataWidth(4);
+		datasize.setDataHeight(2);
+		TestDataSource source = source(scans());
+		source.setDataSize(datasize);
+		PeakabooBinary binary = roundTrip(source, true);
+
+		assertTrue(binary.getDataSize().isPresent());
+		DataSize read = binary.getDataSize().get();
+		assertEquals(datasize.getDataDimensions().x, read.getDataDimensions().x);
+		assertEquals(datasize.getDataDimensions().y, read.getDataDimensions().y);
+		for (int i = 0; i < source.getScanData().scanCount(); i++) {
+			Coord<Integer> expected = datasize.getDataCoordinatesAtIndex(i);
+			Coord<Integer> actual = read.getDataCoordinatesAtIndex(i);
+			assertEquals(expected.x, actual.x);
+			assertEquals(expected.y, actual.y);
+		}
+	}
+
+	public void testPhysicalSize() throws Exception {
+		TestDataSource source = source(scans());
+		SimplePhysicalSize physical = new SimplePhysicalSize(SISize.mm);
+		for (int i = 0; i < source.getScanData().scanCount(); i++) {
+			//some scans have no position recorded
+			if (i % 3 == 1) continue;
+			physical.putPoint(i, new Coord<>(i * 0.25, -i * 1.5));
+		}
+		source.setPhysicalSize(physical);
+		PeakabooBinary binary = roundTrip(source, true);
+
+		assertTrue(binary.getPhysicalSize().isPresent());
+		PhysicalSize read = binary.getPhysicalSize().get();
+		assertEquals(SISize.mm, read.getPhysicalUnit());
+		assertEquals(physical.getPhysicalDimensions().x.start.doubleValue(), read.getPhysicalDimensions().x.start.doubleValue(), 1e-6);
+		assertEquals(physical.getPhysicalDimensions().y.end.doubleValue(), read.getPhysicalDimensions().y.end.doubleValue(), 1e-6);
+		for (int i = 0; i < source.getScanData().scanCount(); i++) {
+			Coord<Number> coord = read.getPhysicalCoordinatesAtIndex(i);
+			if (i % 3 == 1) {
+				assertNull("scan " + i, coord);
+				continue;
+			}
+			assertEquals(i * 0.25, coord.x.doubleValue(), 0);
+			assertEquals(-i * 1.5, coord.y.doubleValue(), 0);
+		}
+
+		try {
+			read.getPhysicalCoordinatesAtIndex(source.getScanData().scanCount());
+			fail("Found coordinates for a scan past the end of the dataset");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+	}
+
+	public void testEmpty() throws Exception {
+		TestDataSource source = source(new ArrayList<>());
+		PeakabooBinary binary = roundTrip(source, false);
+		assertEquals(0, binary.getScanData().scanCount());
+	}
+
+	public void testNotBinary() throws Exception {
+		Files.write(file, "1 2 3\n".getBytes("UTF-8"));
+		assertFalse(PeakabooBinaryFormat.isBinaryDataset(file));
+		try {
+			new PeakabooBinary().read(Collections.singletonList(file));
+			fail("Read a file which isn't a Peakaboo Binary dataset");
+		} catch (Exception e) {
+			//expected
+		}
+	}
+
+}
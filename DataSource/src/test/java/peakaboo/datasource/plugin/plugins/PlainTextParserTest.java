@@ -0,0 +1,140 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PlainTextParserTest extends TestCase {
+
+	private File file;
+	private RandomAccessFile raf;
+
+	@Override
+	protected void tearDown() throws IOException {
+		close();
+	}
+
+	private void close() throws IOException {
+		if (raf != null) raf.close();
+		if (file != null) file.delete();
+		raf = null;
+		file = null;
+	}
+
+	private FileChannel write(String contents) throws IOException {
+		file = File.createTempFile("PlainTextParserTest", ".txt");
+		raf = new RandomAccessFile(file, "rw");
+		raf.write(contents.getBytes(StandardCharsets.UTF_8));
+		return raf.getChannel();
+	}
+
+	private List<float[]> parseAll(String contents, long chunkSize) throws IOException {
+		FileChannel channel = write(contents);
+		List<Long> bounds = PlainTextParser.chunk(channel, chunkSize);
+		assertEquals(Long.valueOf(0), bounds.get(0));
+		assertEquals(Long.valueOf(channel.size()), bounds.get(bounds.size() - 1));
+
+		List<float[]> rows = new ArrayList<>();
+		for (int i = 0; i < bounds.size() - 1; i++) {
+			rows.addAll(PlainTextParser.parse(channel, bounds.get(i), bounds.get(i + 1)));
+		}
+		return rows;
+	}
+
+	private static void assertRow(float[] expected, float[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("value " + i, Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+		}
+	}
+
+
+	public void testLines() throws IOException {
+		List<float[]> rows = parseAll("# a comment\n1 2 3\n\n  4,5\t6  \n,7\n", 1 << 20);
+		assertEquals(3, rows.size());
+		assertRow(new float[] {1, 2, 3}, rows.get(0));
+		assertRow(new float[] {4, 5, 6}, rows.get(1));
+		assertRow(new float[] {0, 7}, rows.get(2));
+	}
+
+	public void testUnparseableValues() throws IOException {
+		List<float[]> rows = parseAll("1 abc 2e 3\n", 1 << 20);
+		assertRow(new float[] {1, 0, 0, 3}, rows.get(0));
+	}
+
+	public void testLineEndings() throws IOException {
+		StringBuilder unix = new StringBuilder();
+		StringBuilder windows = new StringBuilder();
+		StringBuilder mac = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			String line = i + " " + (i * 2) + " " + (i * 3);
+			unix.append(line).append("\n");
+			windows.append(line).append("\r\n");
+			mac.append(line).append("\r");
+		}
+
+		//small chunks, so that every kind of line ending falls on a chunk boundary somewhere
+		for (String contents : new String[] {unix.toString(), windows.toString(), mac.toString()}) {
+			for (long chunkSize : new long[] {1, 7, 64, 1 << 20}) {
+				List<float[]> rows = parseAll(contents, chunkSize);
+				assertEquals(200, rows.size());
+				for (int i = 0; i < 200; i++) {
+					assertRow(new float[] {i, i * 2, i * 3}, rows.get(i));
+				}
+				close();
+			}
+		}
+	}
+
+	public void testMacLineEndingsAreChunked() throws IOException {
+		StringBuilder contents = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			contents.append("1 2 3 4 5 6 7 8\r");
+		}
+		FileChannel channel = write(contents.toString());
+		assertTrue(PlainTextParser.chunk(channel, 64).size() > 2);
+	}
+
+	public void testNumbersMatchParseFloat() throws IOException {
+		List<String> values = new ArrayList<>();
+		String[] fixed = {"0", "-0", "+0", "0.0", "-0.0", "1", "-1", "16777216", "16777217", "16777215",
+				"0.1", "0.3", "1.1", "3.4028235e38", "3.5e38", "1.4e-45", "1e-46", "123456789",
+				"1e10", "1e11", "1e-10", "1e-11", "9.999999e-5", "5e-324", "000123.4500", "7.", ".5",
+				"1234567.8", "0.000001", "2.5E+3", "1e+0", "99999999999999999999999", "0.1e-9",
+				//just above the midpoint between 1 and the next float, but rounding to it as a double
+				"1.0000000596046448", "1.00000005960464477539062500000001"};
+		for (String value : fixed) {
+			values.add(value);
+		}
+
+		Random random = new Random(1);
+		for (int i = 0; i < 20000; i++) {
+			long digits = Math.abs(random.nextLong()) % (1l << (1 + random.nextInt(30)));
+			StringBuilder value = new StringBuilder(Long.toString(digits));
+			int point = random.nextInt(value.length() + 1);
+			value.insert(point, '.');
+			if (random.nextBoolean()) value.append('e').append(random.nextInt(25) - 12);
+			if (random.nextBoolean()) value.insert(0, '-');
+			values.add(value.toString());
+		}
+
+		StringBuilder contents = new StringBuilder();
+		for (String value : values) {
+			contents.append(value).append("\n");
+		}
+		List<float[]> rows = parseAll(contents.toString(), 1 << 20);
+		assertEquals(values.size(), rows.size());
+		for (int i = 0; i < values.size(); i++) {
+			float expected = Float.parseFloat(values.get(i));
+			assertEquals(values.get(i), Float.floatToIntBits(expected), Float.floatToIntBits(rows.get(i)[0]));
+		}
+	}
+
+}
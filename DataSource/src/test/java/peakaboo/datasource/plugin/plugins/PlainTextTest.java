@@ -0,0 +1,111 @@
+package peakaboo.datasource.plugin.plugins;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import peakaboo.datasource.model.MultiFileReader;
+import peakaboo.datasource.model.components.scandata.ScanData;
+
+public class PlainTextTest extends TestCase {
+
+	private Path directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("PlainTextTest");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		for (Path file : Files.newDirectoryStream(directory)) {
+			Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+
+
+	/**
+	 * Writes the given number of files of the given number of scans each. Every
+	 * scan holds its index in the dataset as a whole, followed by two constants.
+	 */
+	private List<Path> write(int files, int scansPerFile) throws IOException {
+		List<Path> paths = new ArrayList<>();
+		int index = 0;
+		for (int f = 0; f < files; f++) {
+			StringBuilder contents = new StringBuilder();
+			for (int s = 0; s < scansPerFile; s++) {
+				contents.append(index++).append(" 1 2\n");
+			}
+			Path path = directory.resolve("scan" + f + ".txt");
+			Files.write(path, contents.toString().getBytes(StandardCharsets.UTF_8));
+			paths.add(path);
+		}
+		return paths;
+	}
+
+	private static void assertInOrder(ScanData scandata, int count) {
+		assertEquals(count, scandata.scanCount());
+		for (int i = 0; i < count; i++) {
+			assertEquals("scan " + i, (float) i, scandata.get(i).get(0), 0f);
+			assertEquals(3, scandata.get(i).size());
+		}
+	}
+
+
+	public void testSingleFile() throws Exception {
+		List<Path> paths = write(1, 10);
+		PlainText plaintext = new PlainText();
+		plaintext.read(paths);
+		assertInOrder(plaintext.getScanData(), 10);
+		assertEquals("scan0.txt", plaintext.getScanData().datasetName());
+	}
+
+	public void testSeveralFilesOfManyScans() throws Exception {
+		List<Path> paths = write(4, 25);
+		PlainText plaintext = new PlainText();
+		assertFalse(plaintext.isOneScanPerFile(paths));
+
+		//every file's scans are stored after those of the file before it
+		plaintext.read(paths);
+		assertInOrder(plaintext.getScanData(), 100);
+		assertEquals(directory.getFileName().toString(), plaintext.getScanData().datasetName());
+	}
+
+	public void testSeveralFilesOfOneScan() throws Exception {
+		List<Path> paths = write(20, 1);
+		PlainText plaintext = new PlainText();
+		assertTrue(plaintext.isOneScanPerFile(paths));
+
+		MultiFileReader.read(plaintext, paths);
+		assertInOrder(plaintext.getScanData(), 20);
+	}
+
+	public void testReadScanRejectsSeveralScans() throws Exception {
+		List<Path> paths = write(1, 2);
+		PlainText plaintext = new PlainText();
+		plaintext.prepareRead(paths);
+		try {
+			plaintext.readScan(paths.get(0));
+			fail("Read a file holding two scans as a single scan");
+		} catch (Exception e) {
+			//expected
+		}
+	}
+
+	public void testMismatchedFiles() throws Exception {
+		List<Path> paths = write(2, 3);
+		Files.write(paths.get(1), "1 2\n".getBytes(StandardCharsets.UTF_8));
+		try {
+			new PlainText().read(paths);
+			fail("Read files whose spectra are different sizes");
+		} catch (Exception e) {
+			//expected
+		}
+	}
+
+}
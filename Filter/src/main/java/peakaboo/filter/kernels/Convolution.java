@@ -0,0 +1,86 @@
+package peakaboo.filter.kernels;
+
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * A centred convolution kernel whose weights and normalization are calculated once,
+ * rather than every time it is applied to a channel. Near the ends of the data, where
+ * part of the kernel falls outside of the spectrum, the result is normalized by the
+ * sum of only those weights which were used.
+ */
+public class Convolution {
+
+	private final float[] weights;
+	private final int reach;
+	private final float total;
+
+	/**
+	 * @param weights the kernel's weights, of odd length, centred on the middle entry
+	 */
+	public Convolution(float[] weights) {
+		if (weights.length % 2 != 1) throw new IllegalArgumentException("Convolution kernels must have an odd number of weights");
+		this.weights = weights.clone();
+		this.reach = weights.length / 2;
+
+		float total = 0;
+		for (float weight : this.weights) {
+			total += weight;
+		}
+		this.total = total;
+	}
+
+	/**
+	 * Creates a kernel which is symmetric about its centre
+	 * @param half the weights from the centre outwards, so that {@code half[k]} is
+	 * the weight of the channels {@code k} away from the centre
+	 */
+	public static Convolution symmetric(float[] half) {
+		int reach = half.length - 1;
+		float[] weights = new float[reach * 2 + 1];
+		for (int j = -reach; j <= reach; j++) {
+			weights[j + reach] = half[Math.abs(j)];
+		}
+		return new Convolution(weights);
+	}
+
+	public int getReach() {
+		return reach;
+	}
+
+	/**
+	 * Applies this kernel to every channel of the source, storing the results in the target
+	 */
+	public void apply(ReadOnlySpectrum source, Spectrum target) {
+		for (int i = 0; i < source.size(); i++) {
+			target.set(i, apply(source, i));
+		}
+	}
+
+	/**
+	 * Applies this kernel to a single channel of the data
+	 */
+	public float apply(ReadOnlySpectrum data, int channel) {
+		int size = data.size();
+		float sum = 0;
+
+		if (channel >= reach && channel + reach < size) {
+			int start = channel - reach;
+			for (int j = 0; j < weights.length; j++) {
+				sum += weights[j] * data.get(start + j);
+			}
+			return sum / total;
+		}
+
+		float normalize = 0;
+		for (int j = -reach; j <= reach; j++) {
+			int di = channel + j;
+			if (di < 0 || di >= size) continue;
+			float weight = weights[j + reach];
+			sum += weight * data.get(di);
+			normalize += weight;
+		}
+		return sum / normalize;
+	}
+
+}
@@ -0,0 +1,71 @@
+package peakaboo.filter.kernels;
+
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Prefix sums over a spectrum, so that the sum of any window of channels can be
+ * found in constant time rather than by adding up every channel in the window.
+ * Sums are accumulated in double precision, so the difference of two prefix sums
+ * is as accurate as adding the window's values directly.
+ * <br/><br/>
+ * A RunningSum can be reloaded with new data, reusing its storage, but is not
+ * safe to share between threads.
+ */
+public class RunningSum {
+
+	private double[] prefix = new double[1];
+	private int size = 0;
+
+	public RunningSum() {}
+
+	public RunningSum(ReadOnlySpectrum data) {
+		load(data);
+	}
+
+	/**
+	 * Replaces the data this RunningSum covers
+	 * @return this RunningSum, for chaining
+	 */
+	public RunningSum load(ReadOnlySpectrum data) {
+		size = data.size();
+		if (prefix.length < size + 1) {
+			prefix = new double[size + 1];
+		}
+
+		double sum = 0;
+		prefix[0] = 0;
+		for (int i = 0; i < size; i++) {
+			sum += data.get(i);
+			prefix[i+1] = sum;
+		}
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the sum of the channels from start (inclusive) to stop (exclusive).
+	 * Channels outside of the data are treated as zero.
+	 */
+	public float sum(int start, int stop) {
+		start = Math.max(0, start);
+		stop = Math.min(size, stop);
+		if (stop <= start) return 0;
+		return (float) (prefix[stop] - prefix[start]);
+	}
+
+	/**
+	 * Calculates a moving sum, storing in each channel of the target the sum of the
+	 * source channels from {@code before} channels below it to {@code after} channels
+	 * above it, inclusive. Channels outside of the data are treated as zero.
+	 */
+	public void movingSum(Spectrum target, int before, int after) {
+		for (int i = 0; i < size; i++) {
+			target.set(i, sum(i - before, i + after + 1));
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package peakaboo.filter.kernels;
+
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Sliding window minimums and maximums in linear time, regardless of the width of
+ * the window. Each channel is pushed onto a monotonic deque once and removed at most
+ * once, instead of every window being searched in full.
+ */
+public final class SlidingExtremes {
+
+	private SlidingExtremes() {}
+
+
+	/**
+	 * Stores in each channel of the target the smallest source value within
+	 * {@code reach} channels of it. Windows are clipped to the bounds of the data.
+	 */
+	public static void min(ReadOnlySpectrum source, Spectrum target, int reach) {
+		centred(source, target, reach, false);
+	}
+
+	/**
+	 * Stores in each channel of the target the largest source value within
+	 * {@code reach} channels of it. Windows are clipped to the bounds of the data.
+	 */
+	public static void max(ReadOnlySpectrum source, Spectrum target, int reach) {
+		centred(source, target, reach, true);
+	}
+
+	/**
+	 * Finds the minimum of every window of the given width which overlaps the data
+	 * by at least one channel, clipping each window to the bounds of the data.
+	 * @return an array of length {@code values.length + width - 1}, in which entry
+	 * {@code q} is the minimum of {@code values[q-width+1]} to {@code values[q]}
+	 */
+	public static float[] windowMin(float[] values, int width) {
+		float[] out = new float[values.length + width - 1];
+		slide(values, width, false, out);
+		return out;
+	}
+
+	/**
+	 * Finds the maximum of every window of the given width which overlaps the data
+	 * by at least one channel, clipping each window to the bounds of the data.
+	 * @return an array of length {@code values.length + width - 1}, in which entry
+	 * {@code q} is the maximum of {@code values[q-width+1]} to {@code values[q]}
+	 */
+	public static float[] windowMax(float[] values, int width) {
+		float[] out = new float[values.length + width - 1];
+		slide(values, width, true, out);
+		return out;
+	}
+
+
+	private static void centred(ReadOnlySpectrum source, Spectrum target, int reach, boolean max) {
+		int size = source.size();
+		int width = reach * 2 + 1;
+		float[] values = new float[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = source.get(i);
+		}
+		float[] windows = new float[size + width - 1];
+		slide(values, width, max, windows);
+		for (int i = 0; i < size; i++) {
+			target.set(i, windows[i + reach]);
+		}
+	}
+
+	/**
+	 * Slides a window of the given width across the values, starting with only its
+	 * last position over the first value and ending with only its first position over
+	 * the last value.
+	 */
+	private static void slide(float[] values, int width, boolean max, float[] out) {
+		if (width < 1) throw new IllegalArgumentException("Window width must be at least 1");
+		if (values.length == 0) return;
+
+		//indices of candidate extremes, with their values strictly improving from tail to head
+		int[] deque = new int[values.length];
+		int head = 0, tail = 0;
+
+		for (int q = 0; q < values.length + width - 1; q++) {
+			if (q < values.length) {
+				float value = values[q];
+				while (tail > head && (max ? values[deque[tail-1]] <= value : values[deque[tail-1]] >= value)) {
+					tail--;
+				}
+				deque[tail++] = q;
+			}
+			if (deque[head] <= q - width) {
+				head++;
+			}
+			out[q] = values[deque[head]];
+		}
+	}
+
+}
@@ -13,7 +13,7 @@ import scitypes.Spectrum;
 import scitypes.SpectrumCalculations;
 
 
-public abstract class AbstractBackgroundFilter extends AbstractFilter
+public abstract class AbstractBackgroundFilter extends AbstractFilter implements BufferedFilter
 {
 
 	private Parameter<Integer> percent;
@@ -118,6 +118,28 @@ public abstract class AbstractBackgroundFilter extends AbstractFilter
 		return data;
 	}
 	
+	@Override
+	public final void filterInto(ReadOnlySpectrum source, Spectrum target)
+	{
+		if (!preview.getValue() == true) {
+			ReadOnlySpectrum background = getBackground(source);
+			for (int i = 0; i < source.size(); i++) {
+				target.set(i, source.get(i) - background.get(i));
+			}
+			return;
+		}
+		
+		for (int i = 0; i < source.size(); i++) {
+			target.set(i, source.get(i));
+		}
+	}
+	
+	@Override
+	public final boolean hasPainter()
+	{
+		return preview.getValue() == true;
+	}
+	
 	@Override
 	public final PlotPainter getPainter()
 	{
@@ -0,0 +1,24 @@
+package peakaboo.filter.model;
+
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * A {@link Filter} which can write its output into a buffer provided by the
+ * caller instead of allocating a new {@link Spectrum} for every call. A
+ * {@link FilterPipeline} uses this to run a chain of filters over a pair of
+ * reusable buffers. Filters which don't implement this interface still work in
+ * a FilterPipeline, their output is just copied into its buffers.
+ */
+public interface BufferedFilter extends Filter {
+
+	/**
+	 * Applies this filter to the source data, storing the result in the target.
+	 * The source and target are always the same size, and are never the same
+	 * object, but they are reused between calls, so neither should be kept after
+	 * this method returns. As with {@link Filter#filter(ReadOnlySpectrum, boolean)},
+	 * this may be called from several threads at once.
+	 */
+	void filterInto(ReadOnlySpectrum source, Spectrum target);
+
+}
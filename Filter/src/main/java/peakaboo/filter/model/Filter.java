@@ -49,6 +49,14 @@ public interface Filter {
 	void initialize();
 
 	PlotPainter getPainter();
+	
+	/**
+	 * Returns true if {@link #getPainter()} would return a painter. Filters which 
+	 * do work to create their painter should override this with a cheaper check.
+	 */
+	default boolean hasPainter() {
+		return getPainter() != null;
+	}
 
 //	/**
 //	 * Forces a check to ensure the Fitler's Parameters are valid.
@@ -0,0 +1,173 @@
+package peakaboo.filter.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+
+import peakaboo.common.PeakabooLog;
+import peakaboo.filter.plugins.FilterPlugin;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * A compiled form of a {@link FilterSet} for applying the same filters to a large
+ * number of spectra, as when mapping. Each thread runs the chain of filters over
+ * its own pair of work buffers, with each filter reading from one buffer and writing
+ * into the other. {@link BufferedFilter}s write directly into the buffers, so a
+ * chain of them doesn't allocate at all once the buffers have been created. Other
+ * filters are applied as usual, and their results copied into the buffers.
+ * <br/><br/>
+ * The filters and their settings are captured when the pipeline is created,
+ * using the same serialized form as {@link SerializedFilter}, and each thread
+ * builds its own filter instances from them. The pipeline is therefore unaffected
+ * by later changes to the FilterSet's filters, and threads never share a filter's
+ * internal state. Filters which can't be rebuilt from their settings, such as
+ * scripted filters, are shared between threads instead.
+ */
+public class FilterPipeline {
+
+	private final List<Snapshot> snapshots;
+	private final ThreadLocal<List<Filter>> instances = ThreadLocal.withInitial(this::instantiate);
+	private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+	/**
+	 * @param filters the filters to apply, in order. Disabled filters are skipped.
+	 */
+	public FilterPipeline(List<Filter> filters) {
+		List<Snapshot> snapshots = new ArrayList<>();
+		for (Filter f : filters) {
+			if (f != null && f.isEnabled()) snapshots.add(new Snapshot(f));
+		}
+		this.snapshots = Collections.unmodifiableList(snapshots);
+	}
+
+	/**
+	 * Returns the filters as they were when this pipeline was created.
+	 */
+	public List<Filter> getFilters() {
+		List<Filter> originals = new ArrayList<>();
+		for (Snapshot snapshot : snapshots) {
+			originals.add(snapshot.original);
+		}
+		return originals;
+	}
+
+	public boolean isEmpty() {
+		return snapshots.isEmpty();
+	}
+
+	/**
+	 * Applies the filters to the given data.
+	 * @return the filtered data. This is a view of the calling thread's buffers,
+	 * and is only valid until the next call to this method from the same thread.
+	 */
+	public ReadOnlySpectrum apply(ReadOnlySpectrum data) {
+		if (snapshots.isEmpty()) return data;
+		List<Filter> filters = instances.get();
+
+		int size = data.size();
+		Buffers work = buffers.get();
+		work.resize(size);
+		for (int i = 0; i < size; i++) {
+			work.current.set(i, data.get(i));
+		}
+
+		for (int i = 0; i < filters.size(); i++) {
+			Filter filter = filters.get(i);
+
+			if (filter instanceof BufferedFilter) {
+				try {
+					((BufferedFilter) filter).filterInto(work.current, work.other);
+					work.swap();
+				} catch (Throwable e) {
+					//skip this filter, as Filter.filter would
+					PeakabooLog.get().log(Level.SEVERE, "Error applying filter " + filter.getClass().getSimpleName(), e);
+				}
+				continue;
+			}
+
+			ReadOnlySpectrum result = filter.filter(work.current, false);
+			if (result == work.current) continue;
+			if (result.size() != size) {
+				//the result doesn't fit in the buffers, so finish filtering the slow way
+				for (int j = i + 1; j < filters.size(); j++) {
+					result = filters.get(j).filter(result, false);
+				}
+				return result;
+			}
+			for (int c = 0; c < size; c++) {
+				work.other.set(c, result.get(c));
+			}
+			work.swap();
+		}
+
+		return work.current;
+	}
+
+
+	/**
+	 * Creates the calling thread's copies of the filters
+	 */
+	private List<Filter> instantiate() {
+		List<Filter> filters = new ArrayList<>();
+		for (Snapshot snapshot : snapshots) {
+			filters.add(snapshot.instantiate());
+		}
+		return filters;
+	}
+
+
+	private static class Snapshot {
+		final Filter original;
+		final String clazz;
+		final List<Object> settings;
+
+		Snapshot(Filter filter) {
+			SerializedFilter serialized = new SerializedFilter(filter);
+			original = filter;
+			clazz = serialized.getClazz();
+			settings = serialized.getSettings();
+		}
+
+		Filter instantiate() {
+			try {
+				SerializedFilter serialized = new SerializedFilter();
+				serialized.setClazz(clazz);
+				serialized.setSettings(settings);
+				Filter copy = serialized.getFilter();
+
+				//several plugins (eg scripts) can share one implementation class
+				if (copy instanceof FilterPlugin && original instanceof FilterPlugin) {
+					if (!((FilterPlugin) copy).pluginUUID().equals(((FilterPlugin) original).pluginUUID())) {
+						return original;
+					}
+				}
+				return copy;
+			} catch (RuntimeException e) {
+				PeakabooLog.get().log(Level.WARNING, "Could not copy filter " + original.getFilterName() + ", sharing it between threads", e);
+				return original;
+			}
+		}
+	}
+
+
+	private static class Buffers {
+		Spectrum current = new ISpectrum(new float[0], false);
+		Spectrum other = new ISpectrum(new float[0], false);
+
+		void resize(int size) {
+			if (current.size() == size) return;
+			current = new ISpectrum(new float[size], false);
+			other = new ISpectrum(new float[size], false);
+		}
+
+		void swap() {
+			Spectrum temp = current;
+			current = other;
+			other = temp;
+		}
+	}
+
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import scitypes.ISpectrum;
 import scitypes.ReadOnlySpectrum;
 
 /**
@@ -20,6 +21,11 @@ public class FilterSet implements Iterable<Filter>
 {
 
 	private List<Filter>	filters;
+	
+	//the input and the output of each enabled filter from the last call to applyFilters
+	private ReadOnlySpectrum	memoInput;
+	private boolean				memoCached;
+	private List<Stage>			stages = new ArrayList<>();
 
 
 	public FilterSet()
@@ -64,6 +70,7 @@ public class FilterSet implements Iterable<Filter>
 	public synchronized void clear()
 	{
 		filters.clear();
+		stages.clear();
 	}
 
 
@@ -116,10 +123,84 @@ public class FilterSet implements Iterable<Filter>
 		return applyFilters(data, false);
 	}
 	
+	/**
+	 * Applies the filters to the given data. The output of each filter is remembered, 
+	 * so that when this is called again with the same data, only the filters from the 
+	 * first one which has been changed (or added, removed, or moved) onwards need to 
+	 * be re-run. The remembered outputs are copies, and are copied again before being 
+	 * handed out, so that neither the filters nor the caller can modify them.
+	 */
 	public synchronized ReadOnlySpectrum applyFilters(ReadOnlySpectrum data, boolean filtersShouldCache)
 	{
 
-		return applyFiltersUnsynchronized(data, filtersShouldCache);
+		if (!memoMatches(data, filtersShouldCache)) {
+			stages.clear();
+			memoInput = new ISpectrum(data);
+			memoCached = filtersShouldCache;
+		}
+		
+		int stage = 0;
+		boolean remembered = false;
+		for (Filter f : filters) {
+			if (f == null || !f.isEnabled()) continue;
+			
+			List<Object> settings = settings(f);
+			if (stage < stages.size()) {
+				Stage memo = stages.get(stage);
+				if (memo.filter == f && settings != null && settings.equals(memo.settings)) {
+					data = memo.output;
+					remembered = true;
+					stage++;
+					continue;
+				}
+				//this filter has changed, so nothing after it can be reused either
+				stages.subList(stage, stages.size()).clear();
+			}
+			
+			data = f.filter(remembered ? new ISpectrum(data) : data, filtersShouldCache);
+			stages.add(new Stage(f, settings, new ISpectrum(data)));
+			remembered = false;
+			stage++;
+		}
+		stages.subList(stage, stages.size()).clear();
+		
+		return remembered ? new ISpectrum(data) : data;
+	}
+	
+	/**
+	 * Describes the enabled filters and their current settings. Two signatures are 
+	 * equal only if applying the filters they describe would give the same results.
+	 * @return the signature, or null if one of the filters' settings can't be described
+	 */
+	public synchronized List<Object> signature()
+	{
+		List<Object> signature = new ArrayList<>();
+		for (Filter f : filters) {
+			if (f == null || !f.isEnabled()) continue;
+			List<Object> settings = settings(f);
+			if (settings == null) return null;
+			signature.add(f);
+			signature.add(settings);
+		}
+		return signature;
+	}
+	
+	private boolean memoMatches(ReadOnlySpectrum data, boolean filtersShouldCache) {
+		if (memoInput == null || memoCached != filtersShouldCache) return false;
+		if (memoInput.size() != data.size()) return false;
+		for (int i = 0; i < data.size(); i++) {
+			if (Float.floatToIntBits(memoInput.get(i)) != Float.floatToIntBits(data.get(i))) return false;
+		}
+		return true;
+	}
+	
+	private static List<Object> settings(Filter f) {
+		try {
+			return f.getParameterGroup().serialize();
+		} catch (RuntimeException e) {
+			//a filter we can't describe is never reused
+			return null;
+		}
 	}
 
 
@@ -139,6 +220,15 @@ public class FilterSet implements Iterable<Filter>
 		return data;
 	}
 	
+	/**
+	 * Creates a {@link FilterPipeline} for applying the currently enabled filters
+	 * to a large number of spectra without allocating new spectra for each one.
+	 */
+	public synchronized FilterPipeline compile()
+	{
+		return new FilterPipeline(filters);
+	}
+	
 
 	public Iterator<Filter> iterator()
 	{
@@ -152,5 +242,20 @@ public class FilterSet implements Iterable<Filter>
 		return new ArrayList<>(filters);
 	}
 
+	
+	private static class Stage
+	{
+		Filter filter;
+		List<Object> settings;
+		ReadOnlySpectrum output;
+		
+		Stage(Filter filter, List<Object> settings, ReadOnlySpectrum output)
+		{
+			this.filter = filter;
+			this.settings = settings;
+			this.output = output;
+		}
+	}
+
 
 }
@@ -103,11 +103,17 @@ public class SubFilter extends AbstractFilter
 		return FilterType.ADVANCED;
 	}
 
+	@Override
+	public boolean hasPainter()
+	{
+		return filter.getValue().hasPainter();
+	}
+	
 	@Override
 	public PlotPainter getPainter()
 	{
 		
-		if (filter.getValue().getPainter() == null) return null;
+		if (!filter.getValue().hasPainter()) return null;
 		
 		return new PlotPainter() {
 
@@ -4,6 +4,7 @@ package peakaboo.filter.plugins.background;
 
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.IntegerStyle;
+import peakaboo.filter.kernels.RunningSum;
 import peakaboo.filter.model.AbstractBackgroundFilter;
 import scitypes.ISpectrum;
 import scitypes.ReadOnlySpectrum;
@@ -124,11 +125,12 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 		}
 		
 		Spectrum result2 = new ISpectrum(result.size());
+		RunningSum sums = new RunningSum();
 
 		int i = 0;
 		while (repetitions > 0)
 		{
-			removeBackgroundBruknerIteration(result, result2, windowSize);
+			removeBackgroundBruknerIteration(result, result2, sums, windowSize);
 			
 			i++;
 			if (i > repetitions)
@@ -137,7 +139,7 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 				break;
 			}
 
-			removeBackgroundBruknerIteration(result2, result, windowSize);
+			removeBackgroundBruknerIteration(result2, result, sums, windowSize);
 			
 			i++;
 			if (i > repetitions) break;
@@ -152,17 +154,19 @@ public final class BruknerBackgroundFilter extends AbstractBackgroundFilter
 	 * Performs a single iteration of the brukner min(data, moving average) process
 	 * @param source the data to look at
 	 * @param target the {@link Spectrum} to write the new values out to
+	 * @param sums a {@link RunningSum} to reuse for calculating the moving average
 	 * @param windowSize the window size for the moving average
 	 */
-	private static void removeBackgroundBruknerIteration(final Spectrum source, final Spectrum target, final int windowSize)
+	private static void removeBackgroundBruknerIteration(final Spectrum source, final Spectrum target, final RunningSum sums, final int windowSize)
 	{
 
+		sums.load(source);
 		for (int i = 0; i < source.size(); i++)
 		{
 			int start, stop;
 			start = Math.max(i - windowSize, 0);
 			stop = Math.min(i + windowSize+1, source.size() - 1);
-			float average = SpectrumCalculations.sumValuesInList(source, start, stop) / (windowSize * 2 + 1);
+			float average = sums.sum(start, stop) / (windowSize * 2 + 1);
 			target.set(i, Math.min(average, source.get(i)));
 			
 		}
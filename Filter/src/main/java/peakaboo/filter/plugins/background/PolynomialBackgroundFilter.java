@@ -3,6 +3,7 @@ package peakaboo.filter.plugins.background;
 
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.IntegerStyle;
+import peakaboo.filter.kernels.SlidingExtremes;
 import peakaboo.filter.model.AbstractBackgroundFilter;
 import scitypes.ISpectrum;
 import scitypes.ReadOnlySpectrum;
@@ -153,6 +154,11 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter
 	public static Spectrum calcBackgroundFunctionFit(ReadOnlySpectrum data, Spectrum function, float percentToRemove)
 	{
 
+		if (isFlat(function)) 
+		{
+			return calcBackgroundFlatFit(data, function.get(0), function.size(), percentToRemove);
+		}
+		
 		float value, minRatio, ratio;
 
 		Spectrum result = new ISpectrum(data.size(), 0.0f);
@@ -161,25 +167,24 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter
 		for (int i = -(function.size() - 1); i < data.size(); i++)
 		{
 
+			// only the points of the function which currently lie over the data
+			int first = Math.max(0, 1 - i);
+			int last = Math.min(function.size(), data.size() - i);
+			
 			minRatio = Float.MAX_VALUE;
 			// go over every point in this function for its current position
-			for (int j = 0; j < function.size(); j++)
+			for (int j = first; j < last; j++)
 			{
-
-				if (i + j > 0 && i + j < data.size())
-				{ // bounds check
-					ratio = (data.get(i + j) * percentToRemove) / function.get(j);
-					if (minRatio > ratio) minRatio = ratio;
-				}
-
+				ratio = (data.get(i + j) * percentToRemove) / function.get(j);
+				if (minRatio > ratio) minRatio = ratio;
 			}
 
-			for (int j = 0; j < function.size(); j++)
+			for (int j = first; j < last; j++)
 			{
 
 				value = function.get(j) * minRatio;
 
-				if (i + j > 0 && i + j < data.size() && result.get(i + j) < value)
+				if (result.get(i + j) < value)
 				{
 					result.set(i + j, value);
 				}
@@ -192,6 +197,51 @@ public final class PolynomialBackgroundFilter extends AbstractBackgroundFilter
 
 	}
 	
+	/**
+	 * Fits a function with the same value at every point to the underside of the data. 
+	 * This gives the same result as {@link #calcBackgroundFunctionFit(ReadOnlySpectrum, Spectrum, float)},
+	 * but since each fit is just the minimum of the data under it, and their union is just 
+	 * the maximum of the fits over each channel, both can be found with sliding windows
+	 * in time independent of the function's width.
+	 */
+	private static Spectrum calcBackgroundFlatFit(ReadOnlySpectrum data, float height, int width, float percentToRemove)
+	{
+		Spectrum result = new ISpectrum(data.size(), 0.0f);
+		if (data.size() < 2) return result;
+		
+		// the first channel is never fitted to, so we skip it here as well
+		float[] values = new float[data.size() - 1];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = data.get(i + 1);
+		}
+		
+		// the lowest point under each position of the function, and then the 
+		// highest of those for each channel the function passes over
+		float[] fits = SlidingExtremes.windowMin(values, width);
+		float[] union = SlidingExtremes.windowMax(fits, width);
+		
+		for (int i = 0; i < values.length; i++)
+		{
+			float value = height * ((union[i + width - 1] * percentToRemove) / height);
+			if (value > 0) result.set(i + 1, value);
+		}
+		
+		return result;
+	}
+	
+	private static boolean isFlat(ReadOnlySpectrum function)
+	{
+		if (function.size() == 0) return false;
+		float height = function.get(0);
+		if (!(height > 0)) return false;
+		for (int i = 1; i < function.size(); i++)
+		{
+			if (function.get(i) != height) return false;
+		}
+		return true;
+	}
+	
 	@Override
 	public String pluginUUID() {
 		return "e9bfddb8-a8f0-490c-b01f-e2202581e809";
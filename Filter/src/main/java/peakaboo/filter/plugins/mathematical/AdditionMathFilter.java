@@ -3,13 +3,15 @@ package peakaboo.filter.plugins.mathematical;
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.RealStyle;
 import peakaboo.filter.model.AbstractSimpleFilter;
+import peakaboo.filter.model.BufferedFilter;
 import peakaboo.filter.model.FilterType;
 import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
 import scitypes.SpectrumCalculations;
 
 
 
-public class AdditionMathFilter extends AbstractSimpleFilter
+public class AdditionMathFilter extends AbstractSimpleFilter implements BufferedFilter
 {
 
 	private Parameter<Float> amount;
@@ -31,6 +33,16 @@ public class AdditionMathFilter extends AbstractSimpleFilter
 	{
 		return SpectrumCalculations.subtractFromList(data, 0.0f-amount.getValue().floatValue());
 	}
+	
+	@Override
+	public void filterInto(ReadOnlySpectrum source, Spectrum target)
+	{
+		float value = 0.0f-amount.getValue().floatValue();
+		for (int i = 0; i < source.size(); i++)
+		{
+			target.set(i, source.get(i) - value);
+		}
+	}
 
 
 	@Override
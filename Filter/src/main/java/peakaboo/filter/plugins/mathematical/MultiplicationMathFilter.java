@@ -5,12 +5,14 @@ package peakaboo.filter.plugins.mathematical;
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.RealStyle;
 import peakaboo.filter.model.AbstractSimpleFilter;
+import peakaboo.filter.model.BufferedFilter;
 import peakaboo.filter.model.FilterType;
 import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
 import scitypes.SpectrumCalculations;
 
 
-public class MultiplicationMathFilter extends AbstractSimpleFilter
+public class MultiplicationMathFilter extends AbstractSimpleFilter implements BufferedFilter
 {
 
 	private Parameter<Float> amount;
@@ -33,6 +35,12 @@ public class MultiplicationMathFilter extends AbstractSimpleFilter
 	{
 		return SpectrumCalculations.multiplyBy(data, amount.getValue().floatValue());
 	}
+	
+	@Override
+	public void filterInto(ReadOnlySpectrum source, Spectrum target)
+	{
+		SpectrumCalculations.multiplyBy_target(source, target, amount.getValue().floatValue());
+	}
 
 
 	@Override
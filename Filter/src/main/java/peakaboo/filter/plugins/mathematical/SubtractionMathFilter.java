@@ -4,12 +4,14 @@ package peakaboo.filter.plugins.mathematical;
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.RealStyle;
 import peakaboo.filter.model.AbstractSimpleFilter;
+import peakaboo.filter.model.BufferedFilter;
 import peakaboo.filter.model.FilterType;
 import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
 import scitypes.SpectrumCalculations;
 
 
-public class SubtractionMathFilter extends AbstractSimpleFilter
+public class SubtractionMathFilter extends AbstractSimpleFilter implements BufferedFilter
 {
 
 	private Parameter<Float> amount;
@@ -31,6 +33,16 @@ public class SubtractionMathFilter extends AbstractSimpleFilter
 	{
 		return SpectrumCalculations.subtractFromList(data, amount.getValue().floatValue());
 	}
+	
+	@Override
+	public void filterInto(ReadOnlySpectrum source, Spectrum target)
+	{
+		float value = amount.getValue().floatValue();
+		for (int i = 0; i < source.size(); i++)
+		{
+			target.set(i, source.get(i) - value);
+		}
+	}
 
 
 	@Override
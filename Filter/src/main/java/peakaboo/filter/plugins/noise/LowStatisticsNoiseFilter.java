@@ -3,17 +3,22 @@ package peakaboo.filter.plugins.noise;
 import net.sciencestudio.autodialog.model.Parameter;
 import net.sciencestudio.autodialog.model.style.editors.IntegerStyle;
 import net.sciencestudio.autodialog.model.style.editors.RealStyle;
+import peakaboo.filter.kernels.RunningSum;
 import peakaboo.filter.model.AbstractSimpleFilter;
+import peakaboo.filter.model.BufferedFilter;
 import peakaboo.filter.model.FilterType;
 import scitypes.ISpectrum;
 import scitypes.ReadOnlySpectrum;
 import scitypes.Spectrum;
 
-public class LowStatisticsNoiseFilter extends AbstractSimpleFilter {
+public class LowStatisticsNoiseFilter extends AbstractSimpleFilter implements BufferedFilter {
 
 	Parameter<Integer> pWindowSize;
 	Parameter<Float> pMaxSignal, pCentrepointFactor, pMaxSlope;
 	
+	//window sums are looked up rather than added up for every channel and window size
+	private final ThreadLocal<RunningSum> sums = ThreadLocal.withInitial(RunningSum::new);
+	
 	@Override
 	public boolean pluginEnabled() {
 		return true;
@@ -33,18 +38,25 @@ public class LowStatisticsNoiseFilter extends AbstractSimpleFilter {
 	//TODO: Technically, the window size should be a multiple of the FWHM here, but we don't have access to that information. Maybe..?
 	protected ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data) {
 		Spectrum out = new ISpectrum(data.size());
-		for (int i = 0; i < data.size(); i++) {
-			out.set(i, filterChannel(i, data));
-		}
+		filterInto(data, out);
 		return out;
 	}
 	
-	private float filterChannel(int i, ReadOnlySpectrum data) {
+	@Override
+	public void filterInto(ReadOnlySpectrum source, Spectrum target) {
 		int window = pWindowSize.getValue();
 		float maxSignal = pMaxSignal.getValue();
 		float centrepointFactor = pCentrepointFactor.getValue();
 		float maxSlope = pMaxSlope.getValue();
 		
+		RunningSum sums = this.sums.get().load(source);
+		for (int i = 0; i < source.size(); i++) {
+			target.set(i, filterChannel(i, source, sums, window, maxSignal, centrepointFactor, maxSlope));
+		}
+	}
+	
+	private float filterChannel(int i, ReadOnlySpectrum data, RunningSum sums, int window, float maxSignal, float centrepointFactor, float maxSlope) {
+		
 		while (true) {
 			if (window == 0) {
 				return data.get(i);
@@ -53,8 +65,8 @@ public class LowStatisticsNoiseFilter extends AbstractSimpleFilter {
 			int lWindow = leftWindowSize(window, i);
 			int rWindow = rightWindowSize(window, i, data.size());
 			
-			float lsum = sumWindow(i-lWindow, i-1, data);
-			float rsum = sumWindow(i+1, i+rWindow, data);
+			float lsum = sums.sum(i-lWindow, i);
+			float rsum = sums.sum(i+1, i+rWindow+1);
 			float sum = lsum + data.get(i) + rsum;
 			
 			boolean belowMax = sum < maxSignal;
@@ -71,15 +83,6 @@ public class LowStatisticsNoiseFilter extends AbstractSimpleFilter {
 		
 	}
 	
-	
-	private float sumWindow(int start, int stop, ReadOnlySpectrum data) {
-		float sum = 0;
-		for (int i = start; i <= stop; i++) {
-			sum += data.get(i);
-		}
-		return sum;
-	}
-	
 	private int leftWindowSize(int requestedSize, int channel) {
 		if (channel < requestedSize) {
 			return channel;
@@ -1,5 +1,6 @@
 package peakaboo.filter.plugins.noise;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -8,6 +9,7 @@ import net.sciencestudio.autodialog.model.style.editors.BooleanStyle;
 import net.sciencestudio.autodialog.model.style.editors.IntegerStyle;
 import net.sciencestudio.autodialog.model.style.editors.RealStyle;
 import net.sciencestudio.autodialog.model.style.editors.SeparatorStyle;
+import peakaboo.filter.kernels.Convolution;
 import peakaboo.filter.model.AbstractSimpleFilter;
 import peakaboo.filter.model.FilterType;
 import scitypes.ISpectrum;
@@ -148,7 +150,7 @@ public class SavitskyGolayNoiseFilter extends AbstractSimpleFilter {
 
 	public Spectrum FastSavitskyGolayFilter(ReadOnlySpectrum data, int order, int reach, float min, float max) {
 
-		float[] coefs = getCoeffs();
+		Convolution kernel = Convolution.symmetric(Arrays.copyOf(getCoeffs(), reach + 1));
 		
 		Spectrum out = new ISpectrum(data.size());
 		
@@ -161,17 +163,7 @@ public class SavitskyGolayNoiseFilter extends AbstractSimpleFilter {
 			}
 			else
 			{
-				float sum = 0;
-				float normalize = 0;
-				for (int j = -reach; j <= reach; j++) {
-					float coef = coefs[Math.abs(j)];
-					int di = i+j;
-					if (di < 0 || di >= data.size()) continue;
-					sum += coef * data.get(di);
-					normalize += coef;
-				}
-				
-				out.set(i, sum / normalize);
+				out.set(i, kernel.apply(data, i));
 			}
 		}
 		
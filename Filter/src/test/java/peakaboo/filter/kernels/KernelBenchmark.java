@@ -0,0 +1,145 @@
+package peakaboo.filter.kernels;
+
+import java.util.Random;
+
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Compares the sliding window kernels against the direct calculations they replace
+ * over a range of window widths, checking that both give the same results. The time
+ * taken by the direct calculations grows with the width of the window, while the
+ * time taken by the running sum and sliding extremes should not. Run with the number
+ * of channels as an optional argument.
+ */
+public class KernelBenchmark {
+
+	private static final int ROUNDS = 20;
+	private static final int[] WIDTHS = {10, 25, 50, 100, 200, 400};
+
+	//keeps results live so the loops aren't optimized away
+	private static volatile float sink;
+
+	public static void main(String[] args) {
+		int channels = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+		Spectrum data = synthetic(channels);
+		Spectrum direct = new ISpectrum(channels);
+		Spectrum kernel = new ISpectrum(channels);
+
+		System.out.println(channels + " channels, best of " + ROUNDS + " rounds, microseconds per spectrum");
+		System.out.println(String.format("  %-16s %6s %10s %10s %12s", "kernel", "width", "direct", "kernel", "difference"));
+
+		for (int width : WIDTHS) {
+			RunningSum sums = new RunningSum();
+			long directTime = time(() -> movingSum(data, direct, width));
+			long kernelTime = time(() -> sums.load(data).movingSum(kernel, width, width));
+			report("moving sum", width, directTime, kernelTime, difference(direct, kernel, true));
+		}
+
+		for (int width : WIDTHS) {
+			long directTime = time(() -> slidingMin(data, direct, width));
+			long kernelTime = time(() -> SlidingExtremes.min(data, kernel, width));
+			report("sliding min", width, directTime, kernelTime, difference(direct, kernel, false));
+		}
+
+		for (int width : WIDTHS) {
+			float[] half = new float[width + 1];
+			for (int j = 0; j <= width; j++) {
+				half[j] = width + 1 - j;
+			}
+			Convolution convolution = Convolution.symmetric(half);
+			long directTime = time(() -> convolve(data, direct, half));
+			long kernelTime = time(() -> convolution.apply(data, kernel));
+			report("convolution", width, directTime, kernelTime, difference(direct, kernel, false));
+		}
+
+	}
+
+	private static void report(String name, int width, long directTime, long kernelTime, float difference) {
+		System.out.println(String.format("  %-16s %6d %10.1f %10.1f %12.3g", name, width, directTime / 1e3, kernelTime / 1e3, difference));
+	}
+
+	private static long time(Runnable task) {
+		//warm up first, so the first widths aren't penalized
+		for (int round = 0; round < ROUNDS; round++) {
+			task.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			task.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the largest difference between the two spectra, relative to the
+	 * larger value if requested
+	 */
+	private static float difference(ReadOnlySpectrum a, ReadOnlySpectrum b, boolean relative) {
+		float worst = 0;
+		for (int i = 0; i < a.size(); i++) {
+			float difference = Math.abs(a.get(i) - b.get(i));
+			if (relative) difference /= Math.max(1f, Math.max(Math.abs(a.get(i)), Math.abs(b.get(i))));
+			worst = Math.max(worst, difference);
+		}
+		sink = worst;
+		return worst;
+	}
+
+
+	private static void movingSum(ReadOnlySpectrum source, Spectrum target, int reach) {
+		for (int i = 0; i < source.size(); i++) {
+			float sum = 0;
+			for (int j = Math.max(0, i - reach); j <= Math.min(source.size() - 1, i + reach); j++) {
+				sum += source.get(j);
+			}
+			target.set(i, sum);
+		}
+	}
+
+	private static void slidingMin(ReadOnlySpectrum source, Spectrum target, int reach) {
+		for (int i = 0; i < source.size(); i++) {
+			float min = Float.MAX_VALUE;
+			for (int j = Math.max(0, i - reach); j <= Math.min(source.size() - 1, i + reach); j++) {
+				min = Math.min(min, source.get(j));
+			}
+			target.set(i, min);
+		}
+	}
+
+	private static void convolve(ReadOnlySpectrum source, Spectrum target, float[] half) {
+		int reach = half.length - 1;
+		for (int i = 0; i < source.size(); i++) {
+			float sum = 0;
+			float normalize = 0;
+			for (int j = -reach; j <= reach; j++) {
+				int di = i + j;
+				if (di < 0 || di >= source.size()) continue;
+				sum += half[Math.abs(j)] * source.get(di);
+				normalize += half[Math.abs(j)];
+			}
+			target.set(i, sum / normalize);
+		}
+	}
+
+
+	/**
+	 * Generates a spectrum of Poisson-like counts around a few peaks on a falling background
+	 */
+	private static Spectrum synthetic(int channels) {
+		Random random = new Random(1);
+		Spectrum spectrum = new ISpectrum(channels, 0f);
+		for (int c = 0; c < channels; c++) {
+			double mean = 20 * Math.exp(-c / 300.0);
+			for (int peak : new int[] {250, 410, 640, 800}) {
+				mean += 200 * Math.exp(-Math.pow(c - peak, 2) / 50.0);
+			}
+			spectrum.set(c, (float) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian())));
+		}
+		return spectrum;
+	}
+
+}
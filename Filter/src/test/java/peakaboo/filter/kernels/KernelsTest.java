@@ -0,0 +1,185 @@
+package peakaboo.filter.kernels;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Checks each kernel against the direct calculation it replaces, paying
+ * particular attention to the ends of the data and to windows wider than it.
+ */
+public class KernelsTest extends TestCase {
+
+	private static final int[] SIZES = {1, 2, 7, 64};
+	private static final int[] REACHES = {0, 1, 3, 10, 100};
+
+	private static Spectrum random(int size, long seed) {
+		Random random = new Random(seed);
+		Spectrum spectrum = new ISpectrum(size);
+		for (int i = 0; i < size; i++) {
+			spectrum.set(i, random.nextInt(50) - (random.nextInt(4) == 0 ? 10 : 0));
+		}
+		return spectrum;
+	}
+
+
+	public void testRunningSum() {
+		for (int size : SIZES) {
+			Spectrum data = random(size, size);
+			RunningSum sums = new RunningSum(data);
+			assertEquals(size, sums.size());
+			for (int start = -3; start <= size + 3; start++) {
+				for (int stop = start - 1; stop <= size + 3; stop++) {
+					float expected = 0;
+					for (int i = Math.max(0, start); i < Math.min(size, stop); i++) {
+						expected += data.get(i);
+					}
+					assertEquals("sum(" + start + ", " + stop + ") of " + size, expected, sums.sum(start, stop), 1e-3f);
+				}
+			}
+		}
+	}
+
+	public void testRunningSumReload() {
+		RunningSum sums = new RunningSum(random(64, 1));
+		Spectrum smaller = random(5, 2);
+		sums.load(smaller);
+		assertEquals(5, sums.size());
+		//channels from the earlier, longer data must not leak into the sums
+		assertEquals(sums.sum(0, 5), sums.sum(0, 64), 0f);
+	}
+
+	public void testMovingSum() {
+		for (int size : SIZES) {
+			Spectrum data = random(size, size);
+			RunningSum sums = new RunningSum(data);
+			for (int before : REACHES) {
+				for (int after : REACHES) {
+					Spectrum target = new ISpectrum(size);
+					sums.movingSum(target, before, after);
+					for (int i = 0; i < size; i++) {
+						float expected = 0;
+						for (int j = Math.max(0, i - before); j <= Math.min(size - 1, i + after); j++) {
+							expected += data.get(j);
+						}
+						assertEquals(expected, target.get(i), 1e-3f);
+					}
+				}
+			}
+		}
+	}
+
+	public void testSlidingExtremes() {
+		for (int size : SIZES) {
+			Spectrum data = random(size, size);
+			for (int reach : REACHES) {
+				Spectrum min = new ISpectrum(size);
+				Spectrum max = new ISpectrum(size);
+				SlidingExtremes.min(data, min, reach);
+				SlidingExtremes.max(data, max, reach);
+				for (int i = 0; i < size; i++) {
+					float expectedMin = Float.MAX_VALUE;
+					float expectedMax = -Float.MAX_VALUE;
+					for (int j = Math.max(0, i - reach); j <= Math.min(size - 1, i + reach); j++) {
+						expectedMin = Math.min(expectedMin, data.get(j));
+						expectedMax = Math.max(expectedMax, data.get(j));
+					}
+					assertEquals(expectedMin, min.get(i), 0f);
+					assertEquals(expectedMax, max.get(i), 0f);
+				}
+			}
+		}
+	}
+
+	public void testWindowExtremes() {
+		for (int size : SIZES) {
+			float[] values = random(size, size).backingArrayCopy();
+			for (int width : new int[] {1, 2, 5, 100}) {
+				float[] min = SlidingExtremes.windowMin(values, width);
+				float[] max = SlidingExtremes.windowMax(values, width);
+				assertEquals(size + width - 1, min.length);
+				assertEquals(size + width - 1, max.length);
+				for (int q = 0; q < min.length; q++) {
+					float expectedMin = Float.MAX_VALUE;
+					float expectedMax = -Float.MAX_VALUE;
+					for (int j = Math.max(0, q - width + 1); j <= Math.min(size - 1, q); j++) {
+						expectedMin = Math.min(expectedMin, values[j]);
+						expectedMax = Math.max(expectedMax, values[j]);
+					}
+					assertEquals(expectedMin, min[q], 0f);
+					assertEquals(expectedMax, max[q], 0f);
+				}
+			}
+		}
+	}
+
+	public void testWindowExtremesEmpty() {
+		assertEquals(2, SlidingExtremes.windowMin(new float[0], 3).length);
+		try {
+			SlidingExtremes.windowMax(new float[] {1}, 0);
+			fail("Accepted a window of width 0");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	public void testConvolution() {
+		for (int size : SIZES) {
+			Spectrum data = random(size, size);
+			for (int reach : REACHES) {
+				float[] half = new float[reach + 1];
+				for (int j = 0; j <= reach; j++) {
+					half[j] = reach + 1 - j;
+				}
+				Convolution kernel = Convolution.symmetric(half);
+				assertEquals(reach, kernel.getReach());
+
+				Spectrum target = new ISpectrum(size);
+				kernel.apply(data, target);
+				for (int i = 0; i < size; i++) {
+					assertEquals(direct(data, half, i), target.get(i), 1e-4f);
+				}
+			}
+		}
+	}
+
+	public void testAsymmetricConvolution() {
+		Spectrum data = random(16, 3);
+		float[] weights = {1, 2, 5};
+		Convolution kernel = new Convolution(weights);
+		for (int i = 0; i < data.size(); i++) {
+			float sum = 0;
+			float normalize = 0;
+			for (int j = -1; j <= 1; j++) {
+				if (i + j < 0 || i + j >= data.size()) continue;
+				sum += weights[j + 1] * data.get(i + j);
+				normalize += weights[j + 1];
+			}
+			assertEquals(sum / normalize, kernel.apply(data, i), 1e-4f);
+		}
+
+		try {
+			new Convolution(new float[] {1, 1});
+			fail("Accepted a kernel with an even number of weights");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	private static float direct(ReadOnlySpectrum data, float[] half, int i) {
+		int reach = half.length - 1;
+		float sum = 0;
+		float normalize = 0;
+		for (int j = -reach; j <= reach; j++) {
+			int di = i + j;
+			if (di < 0 || di >= data.size()) continue;
+			sum += half[Math.abs(j)] * data.get(di);
+			normalize += half[Math.abs(j)];
+		}
+		return sum / normalize;
+	}
+
+}
@@ -0,0 +1,119 @@
+package peakaboo.filter.model;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Checks that the filter outputs a {@link FilterSet} remembers between calls to
+ * applyFilters can't be changed by the caller or by the filters themselves.
+ */
+public class FilterSetTest extends TestCase {
+
+	/**
+	 * Adds one to every channel, counting how many times it has been run. It can
+	 * be made to modify its input rather than returning a new spectrum.
+	 */
+	private static class Increment extends AbstractSimpleFilter {
+
+		private boolean inPlace;
+		int runs = 0;
+
+		Increment(boolean inPlace) {
+			this.inPlace = inPlace;
+		}
+
+		@Override
+		public boolean pluginEnabled() {
+			return true;
+		}
+
+		@Override
+		public String pluginVersion() {
+			return "1.0";
+		}
+
+		@Override
+		public String getFilterName() {
+			return "Increment";
+		}
+
+		@Override
+		public String getFilterDescription() {
+			return "Adds one to every channel";
+		}
+
+		@Override
+		public FilterType getFilterType() {
+			return FilterType.MATHEMATICAL;
+		}
+
+		@Override
+		public void initialize() {}
+
+		@Override
+		public boolean canFilterSubset() {
+			return true;
+		}
+
+		@Override
+		protected ReadOnlySpectrum filterApplyTo(ReadOnlySpectrum data) {
+			runs++;
+			Spectrum result = inPlace ? (Spectrum) data : new ISpectrum(data);
+			for (int i = 0; i < result.size(); i++) {
+				result.set(i, result.get(i) + 1);
+			}
+			return result;
+		}
+
+	}
+
+	private static Spectrum zeros() {
+		return new ISpectrum(16);
+	}
+
+	private static void assertAll(float expected, ReadOnlySpectrum data) {
+		for (int i = 0; i < data.size(); i++) {
+			assertEquals("channel " + i, expected, data.get(i), 0f);
+		}
+	}
+
+
+	public void testMutatedResultIsNotRemembered() {
+		Increment first = new Increment(false);
+		Increment second = new Increment(false);
+		FilterSet filters = new FilterSet();
+		filters.add(first);
+		filters.add(second);
+
+		Spectrum result = (Spectrum) filters.applyFilters(zeros());
+		assertAll(2, result);
+		result.set(0, 100);
+
+		//both filters are reused, and the result is as it was before it was modified
+		ReadOnlySpectrum again = filters.applyFilters(zeros());
+		assertEquals(1, first.runs);
+		assertEquals(1, second.runs);
+		assertAll(2, again);
+	}
+
+	public void testInPlaceFilterAfterRememberedStage() {
+		Increment first = new Increment(false);
+		Increment second = new Increment(true);
+		FilterSet filters = new FilterSet();
+		filters.add(first);
+		filters.add(second);
+		assertAll(2, filters.applyFilters(zeros()));
+
+		//re-running only the second filter must not modify the first one's output
+		second.setEnabled(false);
+		assertAll(1, filters.applyFilters(zeros()));
+		second.setEnabled(true);
+		assertAll(2, filters.applyFilters(zeros()));
+		second.setEnabled(false);
+		assertAll(1, filters.applyFilters(zeros()));
+		assertEquals(1, first.runs);
+	}
+
+}
@@ -0,0 +1,86 @@
+package peakaboo.filter.plugins.background;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Compares the Brukner background against the direct moving average it was
+ * ported from. The running sums are kept in double precision, so results may
+ * differ from the direct float sums by rounding, but by no more.
+ */
+public class BruknerBackgroundFilterTest extends TestCase {
+
+	private static Spectrum counts(int size, long seed) {
+		Random random = new Random(seed);
+		Spectrum spectrum = new ISpectrum(size);
+		for (int i = 0; i < size; i++) {
+			double mean = 30 * Math.exp(-i / 40.0) + 150 * Math.exp(-Math.pow(i - size / 2, 2) / 20.0);
+			spectrum.set(i, (float) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian())));
+		}
+		return spectrum;
+	}
+
+	public void testMatchesDirectAverage() {
+		for (int size : new int[] {3, 50, 300}) {
+			Spectrum data = counts(size, size);
+			for (int window : new int[] {1, 4, 25, 100}) {
+				for (int repetitions : new int[] {1, 2, 10}) {
+					ReadOnlySpectrum expected = direct(data, window, repetitions);
+					ReadOnlySpectrum actual = BruknerBackgroundFilter.calcBackgroundBrukner(data, window, repetitions);
+					assertEquals(expected.size(), actual.size());
+					for (int i = 0; i < size; i++) {
+						float tolerance = 1e-5f * Math.max(1f, Math.abs(expected.get(i)));
+						assertEquals("channel " + i, expected.get(i), actual.get(i), tolerance);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The background as it was calculated before being ported
+	 */
+	private static Spectrum direct(ReadOnlySpectrum data, int windowSize, int repetitions) {
+		float Iavg = data.sum() / data.size();
+		float Imin = data.min();
+		float cutoff = Iavg + 2 * (Iavg - Imin);
+
+		Spectrum result = new ISpectrum(data);
+		for (int i = 0; i < result.size(); i++) {
+			if (result.get(i) > cutoff) result.set(i, cutoff);
+		}
+
+		Spectrum result2 = new ISpectrum(result.size());
+		int i = 0;
+		while (repetitions > 0) {
+			iterate(result, result2, windowSize);
+			i++;
+			if (i > repetitions) {
+				result = result2;
+				break;
+			}
+			iterate(result2, result, windowSize);
+			i++;
+			if (i > repetitions) break;
+		}
+		return result;
+	}
+
+	private static void iterate(Spectrum source, Spectrum target, int windowSize) {
+		for (int i = 0; i < source.size(); i++) {
+			int start = Math.max(i - windowSize, 0);
+			int stop = Math.min(i + windowSize + 1, source.size() - 1);
+			float sum = 0;
+			for (int j = start; j < stop; j++) {
+				sum += source.get(j);
+			}
+			target.set(i, Math.min(sum / (windowSize * 2 + 1), source.get(i)));
+		}
+	}
+
+}
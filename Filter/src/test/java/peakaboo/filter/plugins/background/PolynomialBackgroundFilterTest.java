@@ -0,0 +1,90 @@
+package peakaboo.filter.plugins.background;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Compares the polynomial background fit against the direct fit it was
+ * ported from, which tries every position of the function over the data.
+ */
+public class PolynomialBackgroundFilterTest extends TestCase {
+
+	private static Spectrum counts(int size, long seed) {
+		Random random = new Random(seed);
+		Spectrum spectrum = new ISpectrum(size);
+		for (int i = 0; i < size; i++) {
+			double mean = 30 * Math.exp(-i / 40.0) + 150 * Math.exp(-Math.pow(i - size / 2, 2) / 20.0);
+			spectrum.set(i, (float) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian())));
+		}
+		return spectrum;
+	}
+
+	private static void assertBitsEqual(ReadOnlySpectrum expected, ReadOnlySpectrum actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("channel " + i, Float.floatToIntBits(expected.get(i)), Float.floatToIntBits(actual.get(i)));
+		}
+	}
+
+	public void testFlatFit() {
+		for (int size : new int[] {1, 2, 5, 200}) {
+			Spectrum data = counts(size, size);
+			for (int width : new int[] {1, 2, 7, 50, 400}) {
+				for (float height : new float[] {1f, 0.37f}) {
+					Spectrum function = new ISpectrum(width, height);
+					assertBitsEqual(direct(data, function, 0.9f), PolynomialBackgroundFilter.calcBackgroundFunctionFit(data, function, 0.9f));
+				}
+			}
+		}
+	}
+
+	public void testFlatFitWithZeros() {
+		Spectrum data = counts(100, 3);
+		for (int i = 20; i < 30; i++) {
+			data.set(i, 0);
+		}
+		Spectrum function = new ISpectrum(9, 1f);
+		assertBitsEqual(direct(data, function, 1f), PolynomialBackgroundFilter.calcBackgroundFunctionFit(data, function, 1f));
+	}
+
+	public void testCurvedFit() {
+		Spectrum data = counts(200, 7);
+		for (int width : new int[] {3, 20, 101}) {
+			Spectrum function = new ISpectrum(width);
+			for (int i = 0; i < width; i++) {
+				double x = (i - width / 2.0) / (width / 2.0);
+				function.set(i, (float) (1 - x * x) + 0.01f);
+			}
+			assertBitsEqual(direct(data, function, 0.9f), PolynomialBackgroundFilter.calcBackgroundFunctionFit(data, function, 0.9f));
+		}
+	}
+
+
+	/**
+	 * The fit as it was calculated before being ported
+	 */
+	private static Spectrum direct(ReadOnlySpectrum data, ReadOnlySpectrum function, float percentToRemove) {
+		Spectrum result = new ISpectrum(data.size(), 0.0f);
+		for (int i = -(function.size() - 1); i < data.size(); i++) {
+			float minRatio = Float.MAX_VALUE;
+			for (int j = 0; j < function.size(); j++) {
+				if (i + j > 0 && i + j < data.size()) {
+					float ratio = (data.get(i + j) * percentToRemove) / function.get(j);
+					if (minRatio > ratio) minRatio = ratio;
+				}
+			}
+			for (int j = 0; j < function.size(); j++) {
+				float value = function.get(j) * minRatio;
+				if (i + j > 0 && i + j < data.size() && result.get(i + j) < value) {
+					result.set(i + j, value);
+				}
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,105 @@
+package peakaboo.filter.plugins.noise;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+import scitypes.Spectrum;
+
+/**
+ * Compares the low-statistics filter against the direct window sums it was
+ * ported from. Sums of whole-number counts are exact either way, so the 
+ * results should match exactly.
+ */
+public class LowStatisticsNoiseFilterTest extends TestCase {
+
+	private LowStatisticsNoiseFilter filter;
+
+	@Override
+	protected void setUp() {
+		filter = new LowStatisticsNoiseFilter();
+		filter.initialize();
+	}
+
+	private static Spectrum counts(int size, long seed) {
+		Random random = new Random(seed);
+		Spectrum spectrum = new ISpectrum(size);
+		for (int i = 0; i < size; i++) {
+			double mean = 3 + 80 * Math.exp(-Math.pow(i - size / 3, 2) / 30.0);
+			spectrum.set(i, (float) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian())));
+		}
+		return spectrum;
+	}
+
+	private void assertMatchesDirect(ReadOnlySpectrum data) {
+		Spectrum actual = new ISpectrum(data.size());
+		filter.filterInto(data, actual);
+		for (int i = 0; i < data.size(); i++) {
+			assertEquals("channel " + i, direct(data, i), actual.get(i), 0f);
+		}
+	}
+
+	public void testDefaults() {
+		for (int size : new int[] {1, 2, 6, 500}) {
+			assertMatchesDirect(counts(size, size));
+		}
+	}
+
+	public void testWindowSizes() {
+		Spectrum data = counts(300, 11);
+		for (int window : new int[] {0, 1, 5, 10}) {
+			assertTrue(filter.pWindowSize.setValue(window));
+			assertMatchesDirect(data);
+		}
+	}
+
+	public void testThresholds() {
+		Spectrum data = counts(300, 12);
+		assertTrue(filter.pMaxSignal.setValue(200f));
+		assertTrue(filter.pCentrepointFactor.setValue(20f));
+		assertTrue(filter.pMaxSlope.setValue(2.5f));
+		assertMatchesDirect(data);
+	}
+
+
+	/**
+	 * A channel as it was calculated before being ported
+	 */
+	private float direct(ReadOnlySpectrum data, int i) {
+		int window = filter.pWindowSize.getValue();
+		float maxSignal = filter.pMaxSignal.getValue();
+		float centrepointFactor = filter.pCentrepointFactor.getValue();
+		float maxSlope = filter.pMaxSlope.getValue();
+
+		while (true) {
+			if (window == 0) {
+				return data.get(i);
+			}
+
+			int lWindow = Math.min(window, i);
+			int rWindow = i + window >= data.size() ? data.size() - i - 1 : window;
+
+			float lsum = 0;
+			for (int j = i - lWindow; j <= i - 1; j++) {
+				lsum += data.get(j);
+			}
+			float rsum = 0;
+			for (int j = i + 1; j <= i + rWindow; j++) {
+				rsum += data.get(j);
+			}
+			float sum = lsum + data.get(i) + rsum;
+
+			boolean belowMax = sum < maxSignal;
+			boolean othersNotDominating = sum < centrepointFactor * Math.sqrt(data.get(i));
+			boolean goodSlope = (1f/maxSlope) <= ((rsum+1f)/(lsum+1f)) && ((rsum+1f)/(lsum+1f)) <= maxSlope;
+
+			if (belowMax || (othersNotDominating && goodSlope)) {
+				return sum / (lWindow + 1 + rWindow);
+			}
+
+			window--;
+		}
+	}
+
+}
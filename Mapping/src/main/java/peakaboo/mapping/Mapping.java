@@ -1,7 +1,12 @@
 package peakaboo.mapping;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import peakaboo.curvefit.curve.fitting.Curve;
+import peakaboo.curvefit.curve.fitting.EnergyCalibration;
 import peakaboo.curvefit.curve.fitting.FittingResult;
 import peakaboo.curvefit.curve.fitting.FittingResultSet;
 import peakaboo.curvefit.curve.fitting.FittingSet;
@@ -9,10 +14,15 @@ import peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
 import peakaboo.curvefit.curve.fitting.solver.FittingSolver;
 import peakaboo.curvefit.peak.transition.TransitionSeries;
 import peakaboo.dataset.DataSet;
+import peakaboo.dataset.index.ChannelIndex;
+import peakaboo.datasource.model.components.scandata.ScanBuffer;
+import peakaboo.filter.model.FilterPipeline;
 import peakaboo.filter.model.FilterSet;
+import peakaboo.mapping.results.MapResult;
 import peakaboo.mapping.results.MapResultSet;
 import plural.streams.StreamExecutor;
 import scitypes.Range;
+import scitypes.RangeSet;
 import scitypes.ReadOnlySpectrum;
 
 /**
@@ -42,30 +52,218 @@ public class Mapping
 		
 		List<TransitionSeries> transitionSeries = fittings.getVisibleTransitionSeries();
 		MapResultSet maps = new MapResultSet(transitionSeries, dataset.getScanData().scanCount());
+		FilterPipeline pipeline = filters.compile();
 		
-		//Math.max(1, dataset.getScanData().scanCount())
-		StreamExecutor<MapResultSet> streamer = new StreamExecutor<>("Applying Filters & Fittings", 1);
+		//each worker thread applies its own copies of the filters, so scans can be
+		//handed out in larger blocks without workers contending for shared filters
+		StreamExecutor<MapResultSet> streamer = new StreamExecutor<>("Applying Filters & Fittings", 100);
 		streamer.setTask(new Range(0, dataset.getScanData().scanCount()-1), stream -> {
-			stream.forEach(index -> {
-				
-				ReadOnlySpectrum data = dataset.getScanData().get(index);
-				if (data == null) return;
+			ThreadLocal<ScanBuffer> buffers = ThreadLocal.withInitial(ScanBuffer::new);
+			stream.forEach(index -> mapScan(dataset, pipeline, fittings, fitter, solver, maps, buffers.get(), index));
+			System.gc();
+			return maps;
+		}); 
+		
+		return streamer;
+		
+	}
+	
+	/**
+	 * Adds newly acquired scans to maps generated by {@link #mapTask(DataSet, FilterSet, FittingSet, CurveFitter, FittingSolver)}, 
+	 * as when following a live acquisition. Only the given scans are filtered and fitted, and 
+	 * the maps are only enlarged if the new scans fall outside of them.
+	 * @param filters the filters as they were when the maps were generated, see {@link FilterSet#compile()}
+	 * @param maps the maps to add the new scans to
+	 * @param start the index of the first new scan
+	 * @param end the index after the last new scan
+	 */
+	public static void mapScans(
+			DataSet dataset, 
+			FilterPipeline filters, 
+			FittingSet fittings, 
+			CurveFitter fitter, 
+			FittingSolver solver,
+			MapResultSet maps,
+			int start,
+			int end
+		) {
+		
+		if (end > maps.size()) {
+			maps.resize(end);
+		}
+		
+		ScanBuffer buffer = new ScanBuffer();
+		for (int index = start; index < end; index++) {
+			mapScan(dataset, filters, fittings, fitter, solver, maps, buffer, index);
+		}
+		
+	}
+	
+	private static void mapScan(DataSet dataset, FilterPipeline filters, FittingSet fittings, CurveFitter fitter, FittingSolver solver, MapResultSet maps, ScanBuffer buffer, int index) {
+		
+		ReadOnlySpectrum data = buffer.read(dataset.getScanData(), index);
+		if (data == null) return;
+		
+		data = filters.apply(data);
+		
+		FittingResultSet frs = solver.solve(data, fittings, fitter);
+		
+		for (FittingResult result : frs.getFits()) {
+			maps.putIntensityInMapAtPoint(result.getFit().sum(), result.getTransitionSeries(), index);
+		}
+		
+	}
+	
+	
+	
+	/**
+	 * Generates quick-look maps of the integrated counts in the energy windows around each 
+	 * visible fitting's {@link TransitionSeries}, as given by {@link Curve#getIntenseRanges()}. 
+	 * See {@link #roiMapTask(DataSet, Map)}
+	 * @param dataset the {@link DataSet} providing access to data
+	 * @param fittings the {@link FittingSet} containing all fittings needing to be turned into maps
+	 * @return a {@link StreamExecutor} which will return a {@link MapResultSet}
+	 */
+	public static StreamExecutor<MapResultSet> roiMapTask(DataSet dataset, FittingSet fittings) {
+		Map<TransitionSeries, RangeSet> windows = new LinkedHashMap<>();
+		for (Curve curve : fittings.getVisibleCurves()) {
+			windows.put(curve.getTransitionSeries(), curve.getIntenseRanges());
+		}
+		return roiMapTask(dataset, windows);
+	}
+	
+	/**
+	 * Creates a channel window for {@link #roiMapTask(DataSet, Map)} covering the given range of energies
+	 */
+	public static RangeSet energyWindow(EnergyCalibration calibration, float minEnergy, float maxEnergy) {
+		int last = calibration.getDataWidth() - 1;
+		int start = Math.max(0, Math.min(last, calibration.channelFromEnergy(minEnergy)));
+		int stop = Math.max(0, Math.min(last, calibration.channelFromEnergy(maxEnergy)));
+		RangeSet window = new RangeSet();
+		window.addRange(new Range(start, stop));
+		return window;
+	}
+	
+	/**
+	 * Generates quick-look maps of the integrated counts in the given channel windows. Unlike 
+	 * {@link #mapTask(DataSet, FilterSet, FittingSet, CurveFitter, FittingSolver)}, no filters 
+	 * are applied and no fitting is performed, so overlapping peaks are not separated.
+	 * <br/><br/>
+	 * If the {@link DataSet}'s {@link ChannelIndex} has been built, the windows are read from it 
+	 * directly, otherwise each scan is converted to a running sum once, after which each window 
+	 * is a single subtraction.
+	 * @param dataset the {@link DataSet} providing access to data
+	 * @param windows the channels to integrate for each {@link TransitionSeries}' map
+	 * @return a {@link StreamExecutor} which will return a {@link MapResultSet}
+	 */
+	public static StreamExecutor<MapResultSet> roiMapTask(DataSet dataset, Map<TransitionSeries, RangeSet> windows) {
+		
+		List<TransitionSeries> transitionSeries = new ArrayList<>(windows.keySet());
+		int scanCount = dataset.getScanData().scanCount();
+		int channelCount = dataset.getAnalysis().channelsPerScan();
+		MapResultSet maps = new MapResultSet(transitionSeries, scanCount);
+		
+		//break each window up into runs of consecutive channels, stored as [start, end) pairs
+		int[][] runs = new int[transitionSeries.size()][];
+		int lastChannel = 0;
+		for (int i = 0; i < transitionSeries.size(); i++) {
+			runs[i] = channelRuns(windows.get(transitionSeries.get(i)), channelCount);
+			for (int r = 1; r < runs[i].length; r += 2) {
+				lastChannel = Math.max(lastChannel, runs[i][r]);
+			}
+		}
+		int prefixLength = lastChannel + 1;
+		
+		StreamExecutor<MapResultSet> streamer = new StreamExecutor<>("Mapping Energy Windows", 1000);
+		streamer.setTask(new Range(0, scanCount-1), stream -> {
+			
+			MapResult[] results = new MapResult[transitionSeries.size()];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = maps.getMap(i);
+			}
+			
+			ChannelIndex index = dataset.getChannelIndex();
+			if (index.isReady()) {
 				
-				data = filters.applyFiltersUnsynchronized(data);
+				//read each window's channels for all scans at once
+				float[][] sums = new float[results.length][];
+				for (int i = 0; i < results.length; i++) {
+					sums[i] = new float[scanCount];
+					for (int r = 0; r < runs[i].length; r += 2) {
+						float[] run = index.channelRange(runs[i][r], runs[i][r+1]);
+						for (int s = 0; s < scanCount; s++) {
+							sums[i][s] += run[s];
+						}
+					}
+				}
+				stream.forEach(scan -> {
+					for (int i = 0; i < results.length; i++) {
+						results[i].data.set(scan, sums[i][scan]);
+					}
+				});
 				
-				FittingResultSet frs = solver.solve(data, fittings, fitter);
+			} else {
 				
-				for (FittingResult result : frs.getFits()) {
-					maps.putIntensityInMapAtPoint(result.getFit().sum(), result.getTransitionSeries(), index);
-				}
+				ThreadLocal<double[]> prefixes = ThreadLocal.withInitial(() -> new double[prefixLength]);
+				ThreadLocal<ScanBuffer> buffers = ThreadLocal.withInitial(ScanBuffer::new);
+				stream.forEach(scan -> {
+					
+					ReadOnlySpectrum data = buffers.get().read(dataset.getScanData(), scan);
+					if (data == null) return;
+					
+					//prefix[c] is the sum of all channels before c
+					double[] prefix = prefixes.get();
+					int size = Math.min(data.size(), prefixLength - 1);
+					double sum = 0;
+					for (int c = 0; c < size; c++) {
+						prefix[c] = sum;
+						sum += data.get(c);
+					}
+					for (int c = size; c < prefixLength; c++) {
+						prefix[c] = sum;
+					}
+					
+					for (int i = 0; i < results.length; i++) {
+						double intensity = 0;
+						for (int r = 0; r < runs[i].length; r += 2) {
+							intensity += prefix[runs[i][r+1]] - prefix[runs[i][r]];
+						}
+						results[i].data.set(scan, (float) intensity);
+					}
+					
+				});
 				
-			});
-			System.gc();
+			}
+			
 			return maps;
-		}); 
+		});
 		
 		return streamer;
 		
 	}
 	
+	/**
+	 * Converts a {@link RangeSet} of channels into a flat array of [start, end) pairs 
+	 * for each run of consecutive channels, ignoring channels outside of the data.
+	 */
+	private static int[] channelRuns(RangeSet window, int channelCount) {
+		List<Integer> bounds = new ArrayList<>();
+		int previous = -2;
+		for (int channel : window) {
+			if (channel < 0 || channel >= channelCount) continue;
+			if (channel != previous + 1) {
+				if (!bounds.isEmpty()) bounds.add(previous + 1);
+				bounds.add(channel);
+			}
+			previous = channel;
+		}
+		if (!bounds.isEmpty()) bounds.add(previous + 1);
+		
+		int[] runs = new int[bounds.size()];
+		for (int i = 0; i < runs.length; i++) {
+			runs[i] = bounds.get(i);
+		}
+		return runs;
+	}
+	
 }
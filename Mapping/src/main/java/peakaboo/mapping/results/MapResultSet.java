@@ -84,6 +84,26 @@ public class MapResultSet implements Cloneable
 	}
 
 
+	/**
+	 * Enlarges each map to hold the given number of points. New points start at zero. 
+	 * Maps are never made smaller.
+	 * @param mapSize the new size of the map data in each of the {@link MapResult}s
+	 */
+	public void resize(int mapSize)
+	{
+		if (mapSize <= this.mapSize) return;
+		
+		for (MapResult map : maps) {
+			Spectrum data = new ISpectrum(mapSize, 0.0f);
+			for (int i = 0; i < map.data.size(); i++) {
+				data.set(i, map.data.get(i));
+			}
+			map.data = data;
+		}
+		this.mapSize = mapSize;
+	}
+
+
 	/**
 	 * Get the number of maps
 	 * @return the number of maps
@@ -1,11 +1,13 @@
 package peakaboo.sdk.examples.datasource;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 
 import net.sciencestudio.autodialog.model.Group;
+import peakaboo.datasource.model.PartitionedDataSource;
 import peakaboo.datasource.model.components.datasize.DataSize;
 import peakaboo.datasource.model.components.fileformat.FileFormat;
 import peakaboo.datasource.model.components.fileformat.SimpleFileFormat;
@@ -14,21 +16,23 @@ import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
 import peakaboo.datasource.model.components.scandata.ScanData;
 import peakaboo.datasource.model.components.scandata.SimpleScanData;
 import peakaboo.datasource.plugin.AbstractDataSource;
+import scitypes.ISpectrum;
+import scitypes.Spectrum;
 
 
-public class CSVDataSource extends AbstractDataSource
+public class CSVDataSource extends AbstractDataSource implements PartitionedDataSource
 {
 
 	SimpleScanData		scanData;
 	SimpleFileFormat	fileFormat;
-	Path				file;
+	List<Path>			files;
 	
 	public CSVDataSource()
 	{
 		super();
 		
 		fileFormat = new SimpleFileFormat(
-				true, 
+				false, 
 				"Comma Separated Values", 
 				"The Comma Separated Value format is a simple XRF format comprised of rows of comma-separated numbers.", 
 				"csv");
@@ -36,11 +40,38 @@ public class CSVDataSource extends AbstractDataSource
 		
 
 
-	public void read(Path file) throws Exception
+	/*
+	 * Peakaboo calls this once before reading, so that we can decide how the
+	 * input should be divided up. Each CSV file is read independently of the 
+	 * others, so we use one partition per file.
+	 */
+	@Override
+	public SimpleScanData preparePartitions(List<Path> files) throws Exception
+	{
+		if (files == null) throw new UnsupportedOperationException();
+		if (files.size() == 0) throw new UnsupportedOperationException();
+		
+		this.files = new ArrayList<>(files);
+		this.scanData = new SimpleScanData(files.get(0).getFileName().toString());
+		return scanData;
+	}
+	
+	@Override
+	public int partitionCount()
+	{
+		return files.size();
+	}
+
+	/*
+	 * Peakaboo may call this from several threads at once, so we don't modify 
+	 * any shared state here. We just return the scans in the file, and Peakaboo 
+	 * stores them in the dataset after the scans from the files before it.
+	 */
+	@Override
+	public List<Spectrum> readPartition(int partition) throws Exception
 	{
+		List<Spectrum> scans = new ArrayList<>();
 		Scanner s = null;
-		this.file = file;
-		this.scanData = new SimpleScanData(file.getFileName().toString());
 		
 		int spectrumSize = -1;
 		
@@ -51,7 +82,7 @@ public class CSVDataSource extends AbstractDataSource
 			float[] spectrum;
 			
 			//create a scanner to read lines from the given file
-			s = new Scanner(file).useDelimiter("\n");
+			s = new Scanner(files.get(partition)).useDelimiter("\n");
 						
 			//read each line as a separate scan
 			while (s.hasNext()) {
@@ -72,8 +103,8 @@ public class CSVDataSource extends AbstractDataSource
 					spectrum[i] = Float.parseFloat(numbers[i]);
 				}
 				
-				//add the current spectrum to the list of spectra
-				scanData.add(spectrum);
+				//add the current spectrum to the list of spectra from this file
+				scans.add(new ISpectrum(spectrum));
 				
 			}
 			
@@ -88,18 +119,13 @@ public class CSVDataSource extends AbstractDataSource
 			if (s != null) s.close();
 		}
 		
+		return scans;
 	}
 
-	@Override
-	public void read(List<Path> files) throws Exception
-	{
-		if (files == null) throw new UnsupportedOperationException();
-		if (files.size() == 0) throw new UnsupportedOperationException();
-		if (files.size() > 1) throw new UnsupportedOperationException();
-		
-		read(files.get(0));
-	}
-
+	/*
+	 * We don't need to implement read(List<Path>) ourselves. PartitionedDataSource 
+	 * provides one which reads each of our partitions in turn using several threads.
+	 */
 
 
 	@Override
@@ -14,6 +14,8 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -26,10 +28,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import javax.swing.ImageIcon;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -54,13 +58,19 @@ import peakaboo.curvefit.peak.transition.TransitionSeries;
 import peakaboo.dataset.DatasetReadResult;
 import peakaboo.dataset.DatasetReadResult.ReadStatus;
 import peakaboo.datasink.model.DataSink;
+import peakaboo.dataset.DataSet;
 import peakaboo.datasource.model.DataSource;
+import peakaboo.datasource.model.MultiFileDataSource;
 import peakaboo.datasource.model.components.fileformat.FileFormat;
 import peakaboo.datasource.model.components.metadata.Metadata;
 import peakaboo.datasource.model.components.physicalsize.PhysicalSize;
+import peakaboo.datasource.model.components.scandata.ScanBuffer;
+import peakaboo.datasource.model.components.scandata.ScanData;
+import peakaboo.datasource.model.internal.LiveDataSource;
 import peakaboo.datasource.plugin.DataSourceLookup;
 import peakaboo.datasource.plugin.DataSourcePlugin;
 import peakaboo.datasource.plugin.DataSourcePluginManager;
+import peakaboo.filter.model.FilterPipeline;
 import peakaboo.filter.model.FilterSet;
 import peakaboo.mapping.results.MapResultSet;
 import peakaboo.ui.swing.mapping.MapperFrame;
@@ -83,6 +93,8 @@ import scidraw.swing.SavePicture;
 import scitypes.Bounds;
 import scitypes.Coord;
 import scitypes.Pair;
+import scitypes.Range;
+import scitypes.ReadOnlySpectrum;
 import scitypes.SISize;
 import scitypes.SigDigits;
 import scitypes.util.Mutable;
@@ -425,6 +437,57 @@ public class PlotPanel extends TabbedInterfacePanel
 	}
 	
 
+	/**
+	 * Prompts the user for a directory which is still being written to during an acquisition, 
+	 * opens the scans already in it, and then follows it, adding new scans as they are written.
+	 */
+	public void actionOpenLiveDirectory()
+	{
+		JFileChooser chooser = new JFileChooser(datasetFolder);
+		chooser.setDialogTitle("Select Acquisition Directory to Follow");
+		chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+		Path directory = chooser.getSelectedFile().toPath();
+		datasetFolder = directory.toFile();
+		
+		List<Path> paths;
+		try {
+			paths = Files.list(directory).filter(Files::isRegularFile).collect(Collectors.toList());
+		} catch (IOException e) {
+			PeakabooLog.get().log(Level.SEVERE, "Failed to list acquisition directory", e);
+			return;
+		}
+		
+		//only formats which store one scan per file can be followed
+		List<DataSourcePlugin> candidates = DataSourcePluginManager.SYSTEM.getPlugins().newInstances().stream()
+				.filter(p -> p instanceof MultiFileDataSource)
+				.collect(Collectors.toList());
+		List<DataSource> formats = paths.isEmpty() ? new ArrayList<>() : DataSourceLookup.findDataSourcesForFiles(paths, candidates);
+		
+		Consumer<DataSource> open = format -> {
+			LiveDataSource live = new LiveDataSource((MultiFileDataSource) format, directory);
+			//new scans update the plot, so they're announced on the event dispatch thread
+			live.setNotifier(javax.swing.SwingUtilities::invokeLater);
+			try {
+				loadFiles(live.listScans(), live, null);
+			} catch (IOException e) {
+				PeakabooLog.get().log(Level.SEVERE, "Failed to list acquisition directory", e);
+			}
+		};
+		
+		if (formats.size() > 1) {
+			new DataSourceSelection().pickDSP(this, formats, open);
+		} else if (formats.size() == 1) {
+			open.accept(formats.get(0));
+		} else {
+			new TabbedInterfaceDialog(
+					"Open Failed", 
+					"Could not find a one-scan-per-file data format for the scans in this directory", 
+					JOptionPane.ERROR_MESSAGE
+				).showIn(this);
+		}
+	}
+	
 	public void loadFiles(List<Path> paths, Runnable after) {
 		if (paths.size() == 0) {
 			return;
@@ -499,7 +562,16 @@ public class PlotPanel extends TabbedInterfacePanel
 		if (paths != null)
 		{
 			
-			ExecutorSet<DatasetReadResult> reading = controller.data().TASK_readFileListAsDataset(paths, dsp, result -> {
+			//once the first scans have been read, the modal progress panel is taken down 
+			//so that the partially read data can be used while the rest loads
+			Mutable<Boolean> previewed = new Mutable<>(false);
+			Runnable onPreview = () -> javax.swing.SwingUtilities.invokeLater(() -> {
+				previewed.set(true);
+				canvas.updateCanvasSize();
+				popModalComponent();
+			});
+			
+			ExecutorSet<DatasetReadResult> reading = controller.data().TASK_readFileListAsDataset(paths, dsp, onPreview, result -> {
 				javax.swing.SwingUtilities.invokeLater(() -> {
 						
 					if (result == null || result.status == ReadStatus.FAILED)
@@ -522,7 +594,9 @@ public class PlotPanel extends TabbedInterfacePanel
 					controller.data().setDataPaths(paths);
 					savedSessionFileName = null;
 					canvas.updateCanvasSize();
-					popModalComponent();
+					if (!previewed.get()) {
+						popModalComponent();
+					}
 					if (after != null) {
 						after.run();
 					}
@@ -591,11 +665,30 @@ public class PlotPanel extends TabbedInterfacePanel
 
 	public void actionMap()
 	{
-
 		if (!controller.data().hasDataSet()) return;
+		//maps of a live acquisition are kept up to date as new scans arrive
+		if (controller.data().isLive()) {
+			int mappedScans = controller.data().getDataSet().getScanData().scanCount();
+			showMaps(controller.getMapTask(), mappedScans, controller.getMapUpdater());
+		} else {
+			showMaps(controller.getMapTask(), -1, null);
+		}
+	}
+	
+	public void actionQuickMap()
+	{
+		if (!controller.data().hasDataSet()) return;
+		showMaps(controller.getROIMapTask(), -1, null);
+	}
+	
+	/**
+	 * @param mappedScans if not -1, the maps are of a live acquisition, and are updated 
+	 * with any scans after this many, as they are acquired
+	 * @param updater adds newly acquired scans to the maps, if they are of a live acquisition
+	 */
+	private void showMaps(StreamExecutor<MapResultSet> mapTask, int mappedScans, PlotController.MapUpdater updater)
+	{
 
-
-		StreamExecutor<MapResultSet> mapTask = controller.getMapTask();
 		if (mapTask == null) return;
 
 		StreamExecutorView taskView = new StreamExecutorView(mapTask);
@@ -646,6 +739,10 @@ public class PlotPanel extends TabbedInterfacePanel
 			
 			
 			mapperWindow = new MapperFrame(container, mapData, null, controller);
+			
+			if (mappedScans != -1) {
+				followLiveMaps(mapperWindow, mapData, results, mappedScans, updater);
+			}
 
 			mapperWindow.setVisible(true);
 
@@ -659,6 +756,45 @@ public class PlotPanel extends TabbedInterfacePanel
 	}
 
 
+	/**
+	 * Maps each new scan of a live acquisition into the given maps for as long as the 
+	 * mapping window is open, rather than regenerating the whole map.
+	 */
+	private void followLiveMaps(MapperFrame mapperWindow, MapSetController mapData, MapResultSet results, int mappedScans, PlotController.MapUpdater updater)
+	{
+		DataSet dataset = controller.data().getDataSet();
+		LiveDataSource.Listener update = (start, end) -> {
+			synchronized (results) {
+				updater.updateMaps(results, start, end);
+			}
+			javax.swing.SwingUtilities.invokeLater(mapData::mapDataChanged);
+		};
+		
+		//scan listeners are notified on the UI thread, so mapping is done in the background
+		LiveDataSource.Listener listener = (start, end) -> {
+			if (controller.data().getDataSet() != dataset) return;
+			Thread thread = new Thread(() -> update.scansAdded(start, end), "Live Map Update");
+			thread.setDaemon(true);
+			thread.start();
+		};
+		controller.data().addScanListener(listener);
+		mapperWindow.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				controller.data().removeScanListener(listener);
+			}
+		});
+		
+		//catch up on any scans which arrived while the maps were being generated
+		int scanCount = dataset.getScanData().scanCount();
+		if (scanCount > mappedScans) {
+			Thread catchup = new Thread(() -> update.scansAdded(mappedScans, scanCount), "Live Map Update");
+			catchup.setDaemon(true);
+			catchup.start();
+		}
+	}
+	
+
 	public void actionSaveSession()
 	{
 
@@ -718,14 +854,19 @@ public class PlotPanel extends TabbedInterfacePanel
 			
 			StreamExecutor<Throwable> streamexec = new StreamExecutor<>("Exporting Data");
 			streamexec.setParallel(false);
-			streamexec.setTask(controller.data().getDataSet().getScanData(), stream -> {
+			ScanData scandata = controller.data().getDataSet().getScanData();
+			streamexec.setTask(new Range(0, scandata.scanCount()-1), stream -> {
 				
 				try {
 										
 					Mutable<Boolean> errored = new Mutable<>(false);
 					OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(saveFile.get()));
-					stream.forEach(spectrum -> {
-						spectrum = filters.applyFiltersUnsynchronized(spectrum, false);
+					ScanBuffer buffer = new ScanBuffer();
+					FilterPipeline pipeline = filters.compile();
+					stream.forEach(index -> {
+						ReadOnlySpectrum spectrum = buffer.read(scandata, index);
+						if (spectrum == null) return;
+						spectrum = pipeline.apply(spectrum);
 						try {
 							osw.write(spectrum.toString() + "\n");
 						} catch (Exception e) { 
@@ -24,6 +24,8 @@ public class PlotMenuMain extends JPopupMenu {
 	private JMenuItem					exportFittingsMenuItem;
 	private JMenuItem					exportFilteredDataMenuItem;
 	private JMenu 						exportSinks;
+	private JMenuItem					quickMapMenuItem;
+	private JMenuItem					saveSessionMenuItem;
 
 	//EDIT
 	private JMenuItem					undo, redo;
@@ -38,12 +40,19 @@ public class PlotMenuMain extends JPopupMenu {
 				KeyStroke.getKeyStroke(KeyEvent.VK_O, ActionEvent.CTRL_MASK), KeyEvent.VK_O
 		));
 		
-		
 		this.add(PlotMenuUtils.createMenuItem(plot,
+				"Follow Live Acquisition\u2026", null, "Opens a directory of scans which is still being written, and adds new scans as they arrive",
+				e -> plot.actionOpenLiveDirectory(),
+				null, null
+		));
+		
+		
+		saveSessionMenuItem = PlotMenuUtils.createMenuItem(plot,
 				"Save Session", StockIcon.DOCUMENT_SAVE.toMenuIcon(), null, 
 				e -> plot.actionSaveSession(),
 				null, null
-		));
+		);
+		this.add(saveSessionMenuItem);
 		
 		this.add(PlotMenuUtils.createMenuItem(plot,
 				"Load Session", null, null,
@@ -94,6 +103,14 @@ public class PlotMenuMain extends JPopupMenu {
 
 		this.add(export);
 		
+		
+		quickMapMenuItem = PlotMenuUtils.createMenuItem(plot,
+				"Quick Map Energy Windows", null, "Maps the counts around each fitting's peaks without filtering or fitting",
+				e -> plot.actionQuickMap(),
+				null, null
+		);
+		this.add(quickMapMenuItem);
+		
 				
 
 		this.addSeparator();
@@ -155,10 +172,15 @@ public class PlotMenuMain extends JPopupMenu {
 	
 	public void setWidgetState(boolean hasData) {
 		
-		snapshotMenuItem.setEnabled(hasData);
-		exportFittingsMenuItem.setEnabled(hasData);
-		exportFilteredDataMenuItem.setEnabled(hasData);
-		exportSinks.setEnabled(hasData);
+		//a dataset which is still loading is only a preview, and shouldn't be saved or exported
+		boolean loading = controller.data().isLoading();
+		
+		snapshotMenuItem.setEnabled(hasData && !loading);
+		exportFittingsMenuItem.setEnabled(hasData && !loading);
+		exportFilteredDataMenuItem.setEnabled(hasData && !loading);
+		exportSinks.setEnabled(hasData && !loading);
+		saveSessionMenuItem.setEnabled(!loading);
+		quickMapMenuItem.setEnabled(hasData && controller.fitting().canMap() && controller.data().getDataSet().getDataSource().isContiguous() && !loading);
 				
 		undo.setEnabled(controller.history().canUndo());
 		redo.setEnabled(controller.history().canRedo());
@@ -100,11 +100,13 @@ public class PlotToolbar extends JToolBar {
 	
 	public void setWidgetState(boolean hasData) {
 		
-		toolbarSnapshot.setEnabled(hasData);
+		boolean loading = controller.data().isLoading();
+		
+		toolbarSnapshot.setEnabled(hasData && !loading);
 		toolbarInfo.setEnabled(hasData);
 		
 		if (hasData) {
-			toolbarMap.setEnabled(controller.fitting().canMap() && controller.data().getDataSet().getDataSource().isContiguous());
+			toolbarMap.setEnabled(controller.fitting().canMap() && controller.data().getDataSet().getDataSource().isContiguous() && !loading);
 		}
 		
 		
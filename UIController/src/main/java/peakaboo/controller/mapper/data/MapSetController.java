@@ -57,6 +57,15 @@ public class MapSetController extends EventfulType<String>
 
 	}
 	
+	/**
+	 * Notifies listeners that the values in the current maps have changed, 
+	 * such as when new scans from a live acquisition have been mapped
+	 */
+	public void mapDataChanged()
+	{
+		updateListeners(UpdateType.DATA.toString());
+	}
+	
 	public int getMapSize()
 	{
 		return mapModel.mapSize();
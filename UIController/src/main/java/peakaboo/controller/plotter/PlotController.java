@@ -9,7 +9,12 @@ import peakaboo.controller.plotter.fitting.FittingController;
 import peakaboo.controller.plotter.undo.UndoController;
 import peakaboo.controller.plotter.view.ViewController;
 import peakaboo.controller.settings.SavedSession;
+import peakaboo.curvefit.curve.fitting.FittingSet;
+import peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+import peakaboo.curvefit.curve.fitting.solver.FittingSolver;
 import peakaboo.display.plot.ChannelCompositeMode;
+import peakaboo.filter.model.Filter;
+import peakaboo.filter.model.FilterPipeline;
 import peakaboo.mapping.results.MapResultSet;
 import plural.streams.StreamExecutor;
 import scidraw.drawing.painters.axis.AxisPainter;
@@ -36,6 +41,9 @@ public class PlotController extends EventfulType<String>
 	private FilteringController				filteringController;
 	private FittingController				fittingController;
 	private ViewController					viewController;
+	
+	private ScanResultCache					scanCache = new ScanResultCache();
+	private ScanPrefetcher					scanPrefetcher = new ScanPrefetcher(this, scanCache);
 
 
 	public static enum UpdateType
@@ -66,6 +74,11 @@ public class PlotController extends EventfulType<String>
 		fittingController.addListener(b -> updateListeners(UpdateType.FITTING.toString()));
 		viewController.addListener(() -> updateListeners(UpdateType.UI.toString()));
 		
+		//any change to the data, filters or fittings makes prefetched results unwanted
+		dataController.addListener(scanPrefetcher::cancel);
+		filteringController.addListener(scanPrefetcher::cancel);
+		fittingController.addListener(b -> scanPrefetcher.cancel());
+		
 		undoController.setUndoPoint("");
 	}
 
@@ -167,16 +180,35 @@ public class PlotController extends EventfulType<String>
 		if (dataController.hasDataSet() && currentScan() != null)
 		{
 
+			// Recently viewed scans may already have been filtered and fitted
+			ScanResultCache.Key key = null;
+			ScanResultCache.Entry cached = null;
+			if (filteringController.getFilteredPlot() == null || !fittingController.hasSelectionFitting())
+			{
+				key = scanCacheKey(viewController.getScanNumber());
+				if (key != null) cached = scanCache.get(dataController.getDataSet(), key);
+			}
 			
 			if (filteringController.getFilteredPlot() == null)
 			{
-				filteringController.calculateFilteredData(currentScan());
+				if (cached != null) {
+					filteringController.restoreFilteredData(cached.getFiltered());
+				} else {
+					filteringController.calculateFilteredData(currentScan());
+				}
 			}
 
 			// Fitting Selections
 			if (!fittingController.hasSelectionFitting())
 			{
-				fittingController.calculateSelectionFittings(filteringController.getFilteredPlot());
+				if (cached != null) {
+					fittingController.restoreSelectionFittings(cached.getFittings());
+				} else {
+					fittingController.calculateSelectionFittings(filteringController.getFilteredPlot());
+					if (key != null) {
+						scanCache.put(dataController.getDataSet(), key, filteringController.getFilteredPlot(), fittingController.getFittingSelectionResults());
+					}
+				}
 			}
 
 			// Fitting Proposals
@@ -184,11 +216,56 @@ public class PlotController extends EventfulType<String>
 			{
 				fittingController.calculateProposalFittings();
 			}
+			
+			// Get a head start on the next scans the user is likely to look at
+			if (viewController.getChannelCompositeMode() == ChannelCompositeMode.NONE)
+			{
+				scanPrefetcher.prefetch(viewController.getScanNumber());
+			}
 
 		}
 
 	}
 	
+	/**
+	 * Builds the key identifying a scan's filtered data and selection fittings 
+	 * in the {@link ScanResultCache}, using the current settings.
+	 * @return the key, or null if the current results shouldn't be cached
+	 */
+	ScanResultCache.Key scanCacheKey(int scan)
+	{
+		//averaged and maximum plots are already cached by the dataset's analysis
+		if (viewController.getChannelCompositeMode() != ChannelCompositeMode.NONE) return null;
+		
+		//filters which draw a preview of their effect keep state from the last 
+		//spectrum they filtered, so their output must be recalculated
+		for (Filter filter : filteringController.getActiveFilters()) {
+			if (filter.isEnabled() && filter.hasPainter()) return null;
+		}
+		
+		List<Object> filters = filteringController.getActiveFilters().signature();
+		if (filters == null) return null;
+		
+		return new ScanResultCache.Key(scan, filters, fittingController.selectionSignature());
+	}
+	
+	/**
+	 * Returns the cache of filtered and fitted data for recently viewed scans
+	 */
+	public ScanResultCache getScanCache()
+	{
+		return scanCache;
+	}
+	
+	/**
+	 * Returns the prefetcher which fills the scan cache with the scans 
+	 * following the current one
+	 */
+	public ScanPrefetcher getScanPrefetcher()
+	{
+		return scanPrefetcher;
+	}
+	
 	
 	/**
 	 * Returns an {@link StreamExecutor} which will generate a map based on the user's current 
@@ -205,6 +282,37 @@ public class PlotController extends EventfulType<String>
 			);
 	}
 	
+	/**
+	 * Adds newly acquired scans from a live acquisition to existing maps
+	 */
+	@FunctionalInterface
+	public interface MapUpdater {
+		void updateMaps(MapResultSet maps, int start, int end);
+	}
+	
+	/**
+	 * Returns a {@link MapUpdater} for maps generated by {@link #getMapTask()}. The 
+	 * current filters and fittings are captured now, so that scans added to the maps 
+	 * later are treated the same way as the rest of the map, even if the user has 
+	 * since changed them. This should be called when the map task is created.
+	 */
+	public MapUpdater getMapUpdater() {
+		FilterPipeline filters = filteringController.getActiveFilters().compile();
+		FittingSet fittings = new FittingSet(fittingController.getFittingSelections());
+		CurveFitter fitter = fittingController.getCurveFitter();
+		FittingSolver solver = fittingController.getFittingSolver();
+		return (maps, start, end) -> dataController.updateMaps(maps, start, end, filters, fittings, fitter, solver);
+	}
+	
+	/**
+	 * Returns an {@link StreamExecutor} which will generate a quick-look map of the 
+	 * counts in the energy windows around the user's current fittings, without 
+	 * applying filters or performing any fitting.
+	 */
+	public StreamExecutor<MapResultSet> getROIMapTask() {
+		return dataController.getROIMapTask(fittingController.getFittingSelections());
+	}
+	
 	
 	public DataController data()
 	{
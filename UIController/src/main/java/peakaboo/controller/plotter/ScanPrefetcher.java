@@ -0,0 +1,161 @@
+package peakaboo.controller.plotter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import peakaboo.common.PeakabooLog;
+import peakaboo.curvefit.curve.fitting.FittingResultSet;
+import peakaboo.curvefit.curve.fitting.FittingSet;
+import peakaboo.curvefit.curve.fitting.fitter.CurveFitter;
+import peakaboo.curvefit.curve.fitting.solver.FittingSolver;
+import peakaboo.dataset.DataSet;
+import peakaboo.filter.model.FilterPipeline;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * Filters and fits the scans just ahead of the one being viewed, in the direction
+ * the user has been stepping through them, and stores the results in the
+ * {@link ScanResultCache}. When the user moves on to one of those scans, its
+ * results are already available. Work is done on low-priority background threads
+ * and is abandoned whenever the scan or any filter or fitting settings change.
+ */
+public class ScanPrefetcher {
+
+	public static final int DEFAULT_DEPTH = 4;
+
+	private static final ExecutorService pool = Executors.newFixedThreadPool(
+		Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+		runnable -> {
+			Thread thread = new Thread(runnable, "Scan Prefetcher");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+
+	private final PlotController plot;
+	private final ScanResultCache cache;
+
+	private int depth = DEFAULT_DEPTH;
+
+	//negative is downwards, positive is upwards, zero is not yet known
+	private int direction = 0;
+
+	//the scan whose neighbours are being prefetched, or -1 if nothing is
+	private int scheduled = -1;
+	private long generation = 0;
+	private final List<Future<?>> pending = new ArrayList<>();
+
+
+	public ScanPrefetcher(PlotController plot, ScanResultCache cache) {
+		this.plot = plot;
+		this.cache = cache;
+	}
+
+
+	/**
+	 * Records that the user has moved from one scan to another, so that later
+	 * prefetching continues in the same direction. Any outstanding work is
+	 * abandoned.
+	 */
+	public synchronized void scanChanged(int from, int to) {
+		cancel();
+		if (to != from) direction = Integer.signum(to - from);
+	}
+
+	/**
+	 * Abandons any outstanding work. This should be called whenever the
+	 * results it would produce may no longer be wanted.
+	 */
+	public synchronized void cancel() {
+		generation++;
+		scheduled = -1;
+		for (Future<?> future : pending) {
+			future.cancel(false);
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Starts filtering and fitting the scans following the given one in the
+	 * current direction, unless that work has already been started. This must be
+	 * called from the same thread which changes the plot's settings, so that the
+	 * settings captured here are consistent.
+	 */
+	public synchronized void prefetch(int scan) {
+		if (depth <= 0 || direction == 0 || scheduled == scan) return;
+		cancel();
+		scheduled = scan;
+
+		DataSet dataset = plot.data().getDataSet();
+		FilterPipeline pipeline = null;
+		FittingSet fittings = null;
+
+		int next = scan;
+		for (int i = 0; i < depth; i++) {
+			int last = next;
+			next = direction > 0
+					? dataset.getAnalysis().firstNonNullScanIndex(last + 1)
+					: dataset.getAnalysis().lastNonNullScanIndex(last - 1);
+			if (next < 0 || next >= dataset.getScanData().scanCount()) break;
+			if (Integer.signum(next - last) != direction) break;
+
+			ScanResultCache.Key key = plot.scanCacheKey(next);
+			if (key == null) break;
+			if (cache.contains(dataset, key)) continue;
+
+			//captured once, on this thread, and shared by every task in this batch
+			if (pipeline == null) {
+				pipeline = plot.filtering().getActiveFilters().compile();
+				fittings = new FittingSet(plot.fitting().getFittingSelections());
+			}
+
+			pending.add(pool.submit(task(generation, dataset, next, key, pipeline, fittings, plot.fitting().getCurveFitter(), plot.fitting().getFittingSolver())));
+		}
+	}
+
+	private Runnable task(long generation, DataSet dataset, int scan, ScanResultCache.Key key, FilterPipeline pipeline, FittingSet fittings, CurveFitter fitter, FittingSolver solver) {
+		return () -> {
+			if (!isCurrent(generation)) return;
+			try {
+				ReadOnlySpectrum data = dataset.getScanData().get(scan);
+				if (data == null) return;
+
+				//the pipeline's output is only valid until its next use on this thread
+				ReadOnlySpectrum filtered = new ISpectrum(pipeline.apply(data));
+				if (!isCurrent(generation)) return;
+				FittingResultSet results = solver.solve(filtered, fittings, fitter);
+
+				synchronized (this) {
+					if (generation != this.generation) return;
+					cache.put(dataset, key, filtered, results);
+				}
+			} catch (RuntimeException e) {
+				PeakabooLog.get().log(Level.WARNING, "Failed to prefetch scan " + scan, e);
+			}
+		};
+	}
+
+	private synchronized boolean isCurrent(long generation) {
+		return generation == this.generation;
+	}
+
+
+	public synchronized int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets how many scans ahead of the current one are prefetched. Zero
+	 * disables prefetching.
+	 */
+	public synchronized void setDepth(int depth) {
+		this.depth = Math.max(0, depth);
+		cancel();
+	}
+
+}
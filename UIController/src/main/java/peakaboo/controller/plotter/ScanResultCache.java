@@ -0,0 +1,201 @@
+package peakaboo.controller.plotter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import peakaboo.curvefit.curve.fitting.FittingResult;
+import peakaboo.curvefit.curve.fitting.FittingResultSet;
+import scitypes.ReadOnlySpectrum;
+
+/**
+ * Remembers the filtered spectrum and fitting results for recently viewed scans,
+ * so that stepping back and forth between scans doesn't re-filter and re-fit each
+ * one. Entries are keyed by the scan's index along with descriptions of the filters
+ * and fittings which produced them, so changing either simply causes new entries to
+ * be calculated. The least recently used entries are removed once the estimated size
+ * of all entries exceeds the byte budget.
+ */
+public class ScanResultCache {
+
+	public static final long DEFAULT_BUDGET = 64l << 20;
+
+	public static class Key {
+		private final int scan;
+		private final List<Object> filters;
+		private final List<Object> fittings;
+
+		public Key(int scan, List<Object> filters, List<Object> fittings) {
+			this.scan = scan;
+			this.filters = filters;
+			this.fittings = fittings;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return scan == other.scan && filters.equals(other.filters) && fittings.equals(other.fittings);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(scan, filters, fittings);
+		}
+	}
+
+	public static class Entry {
+		private final ReadOnlySpectrum filtered;
+		private final FittingResultSet fittings;
+		private final long bytes;
+
+		Entry(ReadOnlySpectrum filtered, FittingResultSet fittings) {
+			this.filtered = filtered;
+			this.fittings = fittings;
+			this.bytes = estimate(filtered, fittings);
+		}
+
+		public ReadOnlySpectrum getFiltered() {
+			return filtered;
+		}
+
+		public FittingResultSet getFittings() {
+			return fittings;
+		}
+	}
+
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long budget;
+	private long bytes = 0;
+	private Object owner;
+
+	private long hits = 0, misses = 0, evictions = 0;
+
+
+	public ScanResultCache() {
+		this(DEFAULT_BUDGET);
+	}
+
+	public ScanResultCache(long budget) {
+		this.budget = budget;
+	}
+
+
+	/**
+	 * Returns the cached results for the given key, or null if there are none.
+	 * @param owner the dataset the scan belongs to. Switching to a different
+	 * dataset clears the cache.
+	 */
+	public synchronized Entry get(Object owner, Key key) {
+		claim(owner);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Checks for cached results for the given key without affecting the
+	 * cache's metrics or which entries are least recently used.
+	 */
+	public synchronized boolean contains(Object owner, Key key) {
+		return this.owner == owner && entries.containsKey(key);
+	}
+
+	public synchronized void put(Object owner, Key key, ReadOnlySpectrum filtered, FittingResultSet fittings) {
+		claim(owner);
+		Entry entry = new Entry(filtered, fittings);
+		if (entry.bytes > budget) return;
+
+		Entry old = entries.put(key, entry);
+		if (old != null) bytes -= old.bytes;
+		bytes += entry.bytes;
+
+		Iterator<Entry> lru = entries.values().iterator();
+		while (bytes > budget && lru.hasNext()) {
+			bytes -= lru.next().bytes;
+			lru.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	private void claim(Object owner) {
+		if (this.owner != owner) {
+			clear();
+			this.owner = owner;
+		}
+	}
+
+
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the maximum estimated size of all cached entries, evicting
+	 * entries immediately if the cache is now over budget
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		Iterator<Entry> lru = entries.values().iterator();
+		while (this.bytes > budget && lru.hasNext()) {
+			this.bytes -= lru.next().bytes;
+			lru.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ScanResultCache: " + entries.size() + " entries, " + (bytes >> 10) + "KB of " + (budget >> 10) + "KB, "
+				+ hits + " hits, " + misses + " misses, " + evictions + " evictions";
+	}
+
+
+	private static long estimate(ReadOnlySpectrum filtered, FittingResultSet fittings) {
+		//object headers and references, roughly
+		long total = 256;
+		if (filtered != null) total += filtered.size() * 4l;
+		if (fittings != null) {
+			if (fittings.getTotalFit() != null) total += fittings.getTotalFit().size() * 4l;
+			if (fittings.getResidual() != null) total += fittings.getResidual().size() * 4l;
+			for (FittingResult fit : fittings.getFits()) {
+				total += 64;
+				if (fit.getFit() != null) total += fit.getFit().size() * 4l;
+			}
+		}
+		return total;
+	}
+
+}
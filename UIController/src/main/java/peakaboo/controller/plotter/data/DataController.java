@@ -1,14 +1,20 @@
 package peakaboo.controller.plotter.data;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 
 import eventful.Eventful;
 import eventful.EventfulListener;
+import peakaboo.common.PeakabooLog;
 import peakaboo.controller.plotter.PlotController;
 import peakaboo.controller.plotter.data.discards.Discards;
 import peakaboo.controller.plotter.data.discards.DiscardsList;
@@ -22,7 +28,9 @@ import peakaboo.dataset.EmptyDataSet;
 import peakaboo.dataset.StandardDataSet;
 import peakaboo.datasource.model.DataSource;
 import peakaboo.datasource.model.internal.CroppedDataSource;
+import peakaboo.datasource.model.internal.LiveDataSource;
 import peakaboo.datasource.model.internal.SelectionDataSource;
+import peakaboo.filter.model.FilterPipeline;
 import peakaboo.filter.model.FilterSet;
 import peakaboo.mapping.Mapping;
 import peakaboo.mapping.results.MapResultSet;
@@ -31,6 +39,7 @@ import plural.executor.ExecutorSet;
 import plural.streams.StreamExecutor;
 import scitypes.Coord;
 import scitypes.ReadOnlySpectrum;
+import scitypes.util.Mutable;
 
 
 /**
@@ -40,10 +49,12 @@ import scitypes.ReadOnlySpectrum;
 public class DataController extends Eventful
 {
 
-	private DataSet 			dataModel;
+	private volatile DataSet	dataModel;
 	private PlotController		plot;
 	private Discards			discards;
 	private List<Path>			dataPaths;
+	private List<LiveDataSource.Listener> scanListeners = new CopyOnWriteArrayList<>();
+	private UIDispatch			ui = new UIDispatch();
 	
 	
 	public DataController(PlotController plotController)
@@ -66,12 +77,43 @@ public class DataController extends Eventful
 	
 
 	public ExecutorSet<DatasetReadResult> TASK_readFileListAsDataset(final List<Path> paths, DataSource dsp, Consumer<DatasetReadResult> onResult)
+	{
+		return TASK_readFileListAsDataset(paths, dsp, null, onResult);
+	}
+	
+	/**
+	 * Reads the given files as a new {@link DataSet}. 
+	 * @param onPreview if not null, the dataset is made available as soon as some of 
+	 * its scans have been read, and is updated periodically while the rest are read. 
+	 * This is called on the UI thread once the first preview is available.
+	 * @param onResult called once the dataset has been completely read, has failed, or has been cancelled
+	 */
+	public ExecutorSet<DatasetReadResult> TASK_readFileListAsDataset(final List<Path> paths, DataSource dsp, Runnable onPreview, Consumer<DatasetReadResult> onResult)
 	{
 
 		//final LocalDataSetProvider dataset = new LocalDataSetProvider();
 		final StandardDataSet dataset = new StandardDataSet();
 		final ExecutorSet<DatasetReadResult> readTasks = dataset.TASK_readFileListAsDataset(paths, dsp);
 
+		Mutable<Boolean> shown = new Mutable<>(false);
+		if (onPreview != null) {
+			//previews are published from the dataset's own thread
+			dataset.setPreviewListener(preview -> ui.run(() -> {
+				if (readTasks.getCompleted()) {
+					//the completed dataset has already been handled
+					return;
+				}
+				if (!shown.get()) {
+					shown.set(true);
+					setDataSetProvider(preview);
+					onPreview.run();
+				} else if (dataModel == preview) {
+					//the average and maximum plots have changed
+					plot.filtering().filteredDataInvalidated();
+					updateListeners();
+				}
+			}));
+		}
 
 		
 		EventfulListener datasetListener = new EventfulListener() {
@@ -85,23 +127,39 @@ public class DataController extends Eventful
 				finished = true;
 				
 				DatasetReadResult result = readTasks.getResult();
+				boolean previewed = dataModel == dataset;
+				
+				//another dataset was opened while this one was being previewed
+				if (shown.get() && !previewed) {
+					dataset.discard();
+					return;
+				}
 				
 				switch (result.status) {
 				case SUCCESS:
 					
-					if (dataset.getAnalysis().channelsPerScan() > 0) {
+					if (previewed) {
+						//already showing this dataset, just refresh it with the complete analysis
+						plot.filtering().filteredDataInvalidated();
+						updateListeners();
+					} else if (dataset.getAnalysis().channelsPerScan() > 0) {
 						setDataSetProvider(dataset);
 					}
+					if (dsp instanceof LiveDataSource && dataModel == dataset) {
+						follow(dataset, (LiveDataSource) dsp);
+					}
 					onResult.accept(result);
 					return;
 					
 				case FAILED:
 					//Error reporting is handled at the UI level in this case. 
 					//Just don't try to read the result.
+					if (previewed) clearDataSet();
 					onResult.accept(result);
 					return;
 					
 				case CANCELLED:
+					if (previewed) clearDataSet();
 					onResult.accept(result);
 					return;
 				}
@@ -118,6 +176,90 @@ public class DataController extends Eventful
 
 	}
 
+	
+	/**
+	 * Starts following a live acquisition, updating the given {@link StandardDataSet} 
+	 * with only the new scans each time some are appended.
+	 */
+	private void follow(StandardDataSet dataset, LiveDataSource live) {
+		//new scans are announced through the live source's notifier, which the 
+		//UI sets to run them on its own thread
+		live.addListener((start, end) -> {
+			if (dataModel != dataset) return;
+			dataset.scansAdded(start, end);
+			plot.filtering().filteredDataInvalidated();
+			updateListeners();
+			for (LiveDataSource.Listener listener : scanListeners) {
+				listener.scansAdded(start, end);
+			}
+		});
+		
+		try {
+			live.start();
+		} catch (IOException e) {
+			PeakabooLog.get().log(Level.WARNING, "Could not follow live dataset in " + live.getDirectory(), e);
+		}
+	}
+	
+	/**
+	 * Delivers tasks handed to it from background threads the same way this 
+	 * controller's own events are delivered, so that they run on the UI thread.
+	 */
+	private static class UIDispatch extends Eventful {
+		
+		private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+		
+		public UIDispatch() {
+			addListener(() -> {
+				Runnable task;
+				while ((task = pending.poll()) != null) {
+					task.run();
+				}
+			});
+		}
+		
+		public void run(Runnable task) {
+			pending.add(task);
+			updateListeners();
+		}
+		
+	}
+	
+	/**
+	 * Indicates if the current {@link DataSet} is following a live acquisition, 
+	 * and may have new scans appended to it
+	 */
+	public boolean isLive() {
+		return dataModel.getDataSource() instanceof LiveDataSource;
+	}
+	
+	/**
+	 * Registers a listener to be notified after new scans from a live acquisition 
+	 * have been added to the current {@link DataSet}. Listeners are notified through 
+	 * the {@link LiveDataSource}'s notifier, which the UI sets to run on its own thread.
+	 */
+	public void addScanListener(LiveDataSource.Listener listener) {
+		scanListeners.add(listener);
+	}
+	
+	public void removeScanListener(LiveDataSource.Listener listener) {
+		scanListeners.remove(listener);
+	}
+	
+	
+	/**
+	 * Indicates if the current {@link DataSet} is a preview of a dataset which is still being read
+	 */
+	public boolean isLoading() {
+		return dataModel instanceof StandardDataSet && ((StandardDataSet) dataModel).isLoading();
+	}
+	
+	private void clearDataSet() {
+		DataSet old = dataModel;
+		dataModel = new EmptyDataSet();
+		if (old != null) old.discard();
+		updateListeners();
+	}
 
 
 	public CroppedDataSource getDataSourceForSubset(int x, int y, Coord<Integer> cstart, Coord<Integer> cend)
@@ -186,6 +328,16 @@ public class DataController extends Eventful
 		return Mapping.mapTask(dataModel, filters, fittings, fitter, solver);
 	}
 	
+	public void updateMaps(MapResultSet maps, int start, int end, FilterPipeline filters, FittingSet fittings, CurveFitter fitter, FittingSolver solver)
+	{
+		Mapping.mapScans(dataModel, filters, fittings, fitter, solver, maps, start, end);
+	}
+	
+	public StreamExecutor<MapResultSet> getROIMapTask(FittingSet fittings)
+	{
+		return Mapping.roiMapTask(dataModel, fittings);
+	}
+	
 	
 
 	
@@ -108,6 +108,16 @@ public class FilteringController extends Eventful
 		filteringModel.filteredPlot = filteringModel.filters.applyFilters(data, true);
 		updateListeners();
 	}
+	
+	/**
+	 * Uses previously calculated filtered data for the current scan instead
+	 * of applying the filters again
+	 */
+	public void restoreFilteredData(ReadOnlySpectrum filtered)
+	{
+		filteringModel.filteredPlot = filtered;
+		updateListeners();
+	}
 
 	public void filteredDataInvalidated()
 	{
@@ -2,6 +2,8 @@ package peakaboo.controller.plotter.fitting;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import eventful.EventfulType;
@@ -300,6 +302,37 @@ public class FittingController extends EventfulType<Boolean>
 	{
 		fittingModel.selectionResults = getFittingSolver().solve(data, fittingModel.selections, getCurveFitter());
 	}
+	
+	/**
+	 * Uses previously calculated selection fittings for the current scan 
+	 * instead of fitting it again
+	 */
+	public void restoreSelectionFittings(FittingResultSet results)
+	{
+		fittingModel.selectionResults = results;
+	}
+	
+	/**
+	 * Describes everything which goes into calculating the selection fittings 
+	 * other than the data being fitted. Two signatures are equal only if fitting 
+	 * the same data with each would give the same results.
+	 */
+	public List<Object> selectionSignature()
+	{
+		EnergyCalibration calibration = getEnergyCalibration();
+		return Arrays.asList(
+				new ArrayList<>(getFittedTransitionSeries()),
+				getVisibleTransitionSeries(),
+				getCurveFitter(),
+				getFittingSolver(),
+				getFittingFunction(),
+				getEscapeType(),
+				getFWHMBase(),
+				calibration.getMinEnergy(),
+				calibration.getMaxEnergy(),
+				calibration.getDataWidth()
+			);
+	}
 
 	public boolean hasProposalFitting()
 	{
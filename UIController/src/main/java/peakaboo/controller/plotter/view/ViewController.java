@@ -123,6 +123,7 @@ public class ViewController extends Eventful
 			number = plot.data().getDataSet().getScanData().scanCount() - 1;
 		}
 		if (number < 0) number = 0;
+		plot.getScanPrefetcher().scanChanged(viewModel.session.scanNumber, number);
 		viewModel.session.scanNumber = number;
 		plot.filtering().filteredDataInvalidated();
 	}
@@ -0,0 +1,119 @@
+package peakaboo.controller.plotter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import scitypes.ISpectrum;
+import scitypes.ReadOnlySpectrum;
+
+public class ScanResultCacheTest extends TestCase {
+
+	//with no fittings, each entry is estimated at 256 bytes plus its channels
+	private static final int CHANNELS = 1000;
+	private static final long ENTRY = 256 + CHANNELS * 4;
+
+	private Object dataset = new Object();
+
+	private static ScanResultCache.Key key(int scan) {
+		return new ScanResultCache.Key(scan, Arrays.asList("filter", 1), Collections.emptyList());
+	}
+
+	private static ReadOnlySpectrum spectrum(int scan) {
+		ISpectrum spectrum = new ISpectrum(CHANNELS);
+		spectrum.set(0, scan);
+		return spectrum;
+	}
+
+	private void put(ScanResultCache cache, int scan) {
+		cache.put(dataset, key(scan), spectrum(scan), null);
+	}
+
+
+	public void testGet() {
+		ScanResultCache cache = new ScanResultCache();
+		put(cache, 1);
+		ScanResultCache.Entry entry = cache.get(dataset, key(1));
+		assertNotNull(entry);
+		assertEquals(1f, entry.getFiltered().get(0), 0f);
+		assertNull(cache.get(dataset, key(2)));
+
+		//keys only match if the filters and fittings they describe match too
+		assertNull(cache.get(dataset, new ScanResultCache.Key(1, Arrays.asList("filter", 2), Collections.emptyList())));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	public void testLeastRecentlyUsedEvicted() {
+		ScanResultCache cache = new ScanResultCache(ENTRY * 3);
+		put(cache, 1);
+		put(cache, 2);
+		put(cache, 3);
+		assertEquals(3, cache.size());
+		assertEquals(ENTRY * 3, cache.getBytes());
+
+		//using scan 1 makes scan 2 the least recently used
+		cache.get(dataset, key(1));
+		put(cache, 4);
+
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertFalse(cache.contains(dataset, key(2)));
+		assertTrue(cache.contains(dataset, key(1)));
+		assertTrue(cache.contains(dataset, key(3)));
+		assertTrue(cache.contains(dataset, key(4)));
+	}
+
+	public void testContainsDoesNotAffectRecency() {
+		ScanResultCache cache = new ScanResultCache(ENTRY * 2);
+		put(cache, 1);
+		put(cache, 2);
+		assertTrue(cache.contains(dataset, key(1)));
+		put(cache, 3);
+
+		assertFalse(cache.contains(dataset, key(1)));
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+
+	public void testReplace() {
+		ScanResultCache cache = new ScanResultCache(ENTRY * 2);
+		put(cache, 1);
+		put(cache, 1);
+		assertEquals(1, cache.size());
+		assertEquals(ENTRY, cache.getBytes());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	public void testOversizedEntry() {
+		ScanResultCache cache = new ScanResultCache(ENTRY - 1);
+		put(cache, 1);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+	}
+
+	public void testSetBudget() {
+		ScanResultCache cache = new ScanResultCache(ENTRY * 4);
+		for (int i = 0; i < 4; i++) {
+			put(cache, i);
+		}
+		cache.setBudget(ENTRY * 2);
+		assertEquals(2, cache.size());
+		assertEquals(ENTRY * 2, cache.getBytes());
+		assertEquals(2, cache.getEvictions());
+		assertTrue(cache.contains(dataset, key(2)));
+		assertTrue(cache.contains(dataset, key(3)));
+	}
+
+	public void testNewOwnerClears() {
+		ScanResultCache cache = new ScanResultCache();
+		put(cache, 1);
+		Object other = new Object();
+		assertFalse(cache.contains(other, key(1)));
+		assertNull(cache.get(other, key(1)));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+	}
+
+}